@@ -0,0 +1,16 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface AnalysisEngine extends AutoCloseable {
+    AnalysisResult analyze(String fen, SearchLimits limits) throws IOException;
+
+    // The best lineCount moves from one search, best first; fewer when the position has fewer legal moves.
+    List<AnalysisResult> analyze(String fen, SearchLimits limits, int lineCount) throws IOException;
+
+    boolean isAlive();
+
+    @Override
+    void close();
+}
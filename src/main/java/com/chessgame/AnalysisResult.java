@@ -0,0 +1,94 @@
+package com.chessgame;
+
+import java.util.List;
+
+public final class AnalysisResult {
+    private static final int MATE_VALUE = 100_000;
+
+    private final String fen;
+    private final String bestMove;
+    private final int score;
+    private final boolean mateScore;
+    private final int depth;
+    private final List<String> principalVariation;
+    private final String error;
+
+    public AnalysisResult(String fen, String bestMove, int score, boolean mateScore, int depth) {
+        this(fen, bestMove, score, mateScore, depth, bestMove == null ? List.of() : List.of(bestMove), null);
+    }
+
+    public AnalysisResult(String fen, int score, boolean mateScore, int depth, List<String> principalVariation) {
+        this(fen, principalVariation.isEmpty() ? null : principalVariation.get(0), score, mateScore, depth,
+                List.copyOf(principalVariation), null);
+    }
+
+    private AnalysisResult(String fen, String bestMove, int score, boolean mateScore, int depth,
+                           List<String> principalVariation, String error) {
+        this.fen = fen;
+        this.bestMove = bestMove;
+        this.score = score;
+        this.mateScore = mateScore;
+        this.depth = depth;
+        this.principalVariation = principalVariation;
+        this.error = error;
+    }
+
+    public static AnalysisResult failed(String fen, String error) {
+        return new AnalysisResult(fen, null, 0, false, 0, List.of(), error);
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public String getBestMove() {
+        return bestMove;
+    }
+
+    // Centipawns from the side to move's point of view, or moves to mate when isMateScore() is true.
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isMateScore() {
+        return mateScore;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    // Moves in UCI notation starting with getBestMove(); just that move when the engine reported no line.
+    public List<String> getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    // Centipawns, with mates mapped beyond any material score (nearer mates rank higher), for ranking lines.
+    public int getComparableScore() {
+        if (!mateScore) {
+            return score;
+        }
+        return score > 0 ? MATE_VALUE - score : -MATE_VALUE - score;
+    }
+
+    public String formatScore() {
+        return mateScore ? "#" + score : String.format("%+.2f", score / 100.0);
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        if (isFailed()) {
+            return fen + " failed: " + error;
+        }
+        return fen + " bestmove " + bestMove + " score " + (mateScore ? "mate " : "cp ") + score + " depth " + depth
+                + " pv " + String.join(" ", principalVariation);
+    }
+}
@@ -0,0 +1,77 @@
+package com.chessgame;
+
+// Precomputed attack sets. Squares use the PositionSnapshot numbering (0 = a8, 63 = h1),
+// so "north" towards rank 8 is -8.
+public final class Attacks {
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    static final long[][] PAWN = new long[2][64];
+
+    // Directions 0-3 increase the square index (first blocker is the lowest bit), 4-7 decrease it.
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}};
+    private static final long[][] RAYS = new long[8][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = square / 8;
+            int col = square % 8;
+            KNIGHT[square] = offsets(row, col, new int[][]{{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}});
+            KING[square] = offsets(row, col, new int[][]{{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}});
+            PAWN[0][square] = offsets(row, col, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN[1][square] = offsets(row, col, new int[][]{{1, -1}, {1, 1}});
+            for (int dir = 0; dir < 8; dir++) {
+                long ray = 0L;
+                for (int r = row + DIRECTIONS[dir][0], c = col + DIRECTIONS[dir][1]; Position.isOnBoard(r, c);
+                     r += DIRECTIONS[dir][0], c += DIRECTIONS[dir][1]) {
+                    ray |= 1L << (r * 8 + c);
+                }
+                RAYS[dir][square] = ray;
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    private static long offsets(int row, int col, int[][] deltas) {
+        long attacks = 0L;
+        for (int[] delta : deltas) {
+            if (Position.isOnBoard(row + delta[0], col + delta[1])) {
+                attacks |= 1L << ((row + delta[0]) * 8 + col + delta[1]);
+            }
+        }
+        return attacks;
+    }
+
+    private static long ray(int dir, int square, long occupied) {
+        long attacks = RAYS[dir][square];
+        long blockers = attacks & occupied;
+        if (blockers != 0) {
+            int blocker = dir < 4 ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+            attacks ^= RAYS[dir][blocker];
+        }
+        return attacks;
+    }
+
+    public static long rook(int square, long occupied) {
+        return ray(0, square, occupied) | ray(1, square, occupied) | ray(4, square, occupied) | ray(5, square, occupied);
+    }
+
+    public static long bishop(int square, long occupied) {
+        return ray(2, square, occupied) | ray(3, square, occupied) | ray(6, square, occupied) | ray(7, square, occupied);
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    // Squares strictly between two squares on a shared line, or 0 if they are not aligned.
+    public static long between(int from, int to) {
+        for (int dir = 0; dir < 8; dir++) {
+            if ((RAYS[dir][from] & (1L << to)) != 0) {
+                return RAYS[dir][from] & ~RAYS[dir][to] & ~(1L << to);
+            }
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,207 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Fans FEN positions out over a fixed pool of engines. Both queues are bounded, so a slow consumer
+// stalls the workers and the workers stall the reader of the input stream.
+// Results arrive in completion order, not input order. Each call runs its own reader and workers;
+// closing the returned stream cancels them, so close it when stopping early (limit, findFirst).
+public class BatchAnalyzer implements AutoCloseable {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String END_OF_INPUT = new String("end-of-input");
+    private static final Object WORKER_DONE = new Object();
+
+    private final Supplier<AnalysisEngine> engineFactory;
+    private final int workerCount;
+    private final int queueCapacity;
+    private final ExecutorService executor;
+
+    public BatchAnalyzer(Supplier<AnalysisEngine> engineFactory, int workerCount, int queueCapacity) {
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("workerCount and queueCapacity must be positive");
+        }
+        this.engineFactory = engineFactory;
+        this.workerCount = workerCount;
+        this.queueCapacity = queueCapacity;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "batch-analyzer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // One single-threaded Stockfish per core is what makes throughput scale with the machine.
+    public static BatchAnalyzer withBundledStockfish(int workerCount) {
+        return new BatchAnalyzer(() -> {
+            try {
+                UciEngine engine = UciEngine.startBundled();
+                engine.setOption("Threads", 1);
+                engine.setOption("Hash", 16);
+                engine.syncReady();
+                return engine;
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to start Stockfish worker", e);
+            }
+        }, workerCount, workerCount * 4);
+    }
+
+    public Stream<AnalysisResult> analyze(Stream<String> fens, SearchLimits limits) {
+        return run(fens, (engine, fen) -> engine.analyze(fen, limits), AnalysisResult::failed);
+    }
+
+    // Multi-PV variant: each element holds the ranked lines for one position.
+    public Stream<List<AnalysisResult>> analyze(Stream<String> fens, SearchLimits limits, int lineCount) {
+        return run(fens, (engine, fen) -> engine.analyze(fen, limits, lineCount),
+                (fen, error) -> List.of(AnalysisResult.failed(fen, error)));
+    }
+
+    private interface EngineCall<T> {
+        T apply(AnalysisEngine engine, String fen) throws IOException;
+    }
+
+    private <T> Stream<T> run(Stream<String> fens, EngineCall<T> call, BiFunction<String, String, T> failure) {
+        BlockingQueue<String> pending = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> results = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<RuntimeException> inputFailure = new AtomicReference<>();
+        List<Future<?>> tasks = new ArrayList<>();
+
+        tasks.add(executor.submit(() -> {
+            try {
+                Iterator<String> source = fens.iterator();
+                while (source.hasNext()) {
+                    pending.put(source.next());
+                }
+            } catch (RuntimeException e) {
+                // Rethrown to the consumer once the workers have finished what was read.
+                inputFailure.set(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                endInput(pending);
+            }
+        }));
+        for (int i = 0; i < workerCount; i++) {
+            tasks.add(executor.submit(() -> runWorker(pending, results, call, failure)));
+        }
+
+        Iterator<T> iterator = new Iterator<>() {
+            private int finishedWorkers;
+            private T next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && finishedWorkers < workerCount) {
+                    try {
+                        Object result = results.take();
+                        if (result == WORKER_DONE) {
+                            finishedWorkers++;
+                        } else {
+                            @SuppressWarnings("unchecked")
+                            T typed = (T) result;
+                            next = typed;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                if (next == null && inputFailure.get() != null) {
+                    throw inputFailure.get();
+                }
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T result = next;
+                next = null;
+                return result;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    for (Future<?> task : tasks) {
+                        task.cancel(true);
+                    }
+                    fens.close();
+                });
+    }
+
+    // One marker per worker, so each stops once the queue is drained. A closed run is interrupted and
+    // skips them; its workers are being interrupted as well.
+    private void endInput(BlockingQueue<String> pending) {
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                pending.put(END_OF_INPUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> void runWorker(BlockingQueue<String> pending, BlockingQueue<Object> results,
+                               EngineCall<T> call, BiFunction<String, String, T> failure) {
+        AnalysisEngine engine = null;
+        try {
+            String fen;
+            while ((fen = pending.take()) != END_OF_INPUT) {
+                T result = null;
+                String lastError = null;
+                for (int attempt = 0; attempt < MAX_ATTEMPTS && result == null; attempt++) {
+                    try {
+                        if (engine == null || !engine.isAlive()) {
+                            if (engine != null) {
+                                engine.close();
+                            }
+                            engine = engineFactory.get();
+                        }
+                        result = call.apply(engine, fen);
+                    } catch (IOException | RuntimeException e) {
+                        // A dead or confused engine is replaced and the position retried on the fresh one.
+                        lastError = e.getMessage();
+                        if (engine != null) {
+                            engine.close();
+                            engine = null;
+                        }
+                    }
+                }
+                results.put(result != null ? result : failure.apply(fen, lastError));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (engine != null) {
+                engine.close();
+            }
+            try {
+                results.put(WORKER_DONE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
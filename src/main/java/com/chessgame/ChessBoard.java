@@ -1,15 +1,68 @@
 package com.chessgame;
 
-import javax.swing.*;
-
 public class ChessBoard {
     private Piece[][] board;
+    private final long[] bitboards = new long[12];
+    private long pieceHash;
 
     public ChessBoard() {
         this.board = new Piece[8][8];
         setupPieces();
     }
 
+    public ChessBoard(PositionSnapshot snapshot) {
+        this.board = new Piece[8][8];
+        for (int square = 0; square < 64; square++) {
+            int index = snapshot.pieceIndexAt(square);
+            if (index >= 0) {
+                place(square / 8, square % 8, createPiece(index, Position.of(square)));
+            }
+        }
+
+        int rights = snapshot.getCastlingRights();
+        markMovedUnlessCastlingRight(7, PositionSnapshot.WHITE_KINGSIDE, PositionSnapshot.WHITE_QUEENSIDE, rights);
+        markMovedUnlessCastlingRight(0, PositionSnapshot.BLACK_KINGSIDE, PositionSnapshot.BLACK_QUEENSIDE, rights);
+
+        int epSquare = snapshot.getEnPassantSquare();
+        if (epSquare >= 0) {
+            int pawnRow = epSquare / 8 == 2 ? 3 : 4;
+            Piece pawn = board[pawnRow][epSquare % 8];
+            if (pawn instanceof Pawn) {
+                ((Pawn) pawn).setJustMovedTwoSquares(true);
+            }
+        }
+    }
+
+    private static Piece createPiece(int index, Position position) {
+        PieceColor color = index < 6 ? PieceColor.WHITE : PieceColor.BLACK;
+        switch (index % 6) {
+            case 0:
+                return new Pawn(color, position);
+            case 1:
+                return new Knight(color, position);
+            case 2:
+                return new Bishop(color, position);
+            case 3:
+                return new Rook(color, position);
+            case 4:
+                return new Queen(color, position);
+            default:
+                return new King(color, position);
+        }
+    }
+
+    private void markMovedUnlessCastlingRight(int row, int kingsideRight, int queensideRight, int rights) {
+        for (int col = 0; col < 8; col++) {
+            Piece piece = board[row][col];
+            if (piece instanceof King) {
+                ((King) piece).setHasMoved(col != 4 || (rights & (kingsideRight | queensideRight)) == 0);
+            } else if (piece instanceof Rook) {
+                boolean canCastle = (col == 7 && (rights & kingsideRight) != 0) || (col == 0 && (rights & queensideRight) != 0);
+                ((Rook) piece).setHasMoved(!canCastle);
+            }
+        }
+    }
+
     public Piece[][] getBoard() {
         return board;
     }
@@ -19,9 +72,26 @@ public class ChessBoard {
     }
 
     public void setPiece(int row, int column, Piece piece) {
+        place(row, column, piece);
+        if (piece != null) {
+            piece.setPosition(Position.of(row, column));
+        }
+    }
+
+    // Every write to the grid goes through here so the bitboards and piece hash stay in sync.
+    private void place(int row, int column, Piece piece) {
+        int square = row * 8 + column;
+        Piece previous = board[row][column];
+        if (previous != null) {
+            int index = Zobrist.pieceIndex(previous);
+            bitboards[index] &= ~(1L << square);
+            pieceHash ^= Zobrist.PIECE_SQUARE[index][square];
+        }
         board[row][column] = piece;
         if (piece != null) {
-            piece.setPosition(new Position(row, column));
+            int index = Zobrist.pieceIndex(piece);
+            bitboards[index] |= 1L << square;
+            pieceHash ^= Zobrist.PIECE_SQUARE[index][square];
         }
     }
 
@@ -31,31 +101,95 @@ public class ChessBoard {
         int[][] bishopPositions = {{0, 2}, {0, 5}, {7, 2}, {7, 5}};
 
         for (int[] pos : rookPositions) 
-            board[pos[0]][pos[1]] = new Rook(getColor(pos[0]), new Position(pos[0], pos[1]));
+            place(pos[0], pos[1], new Rook(getColor(pos[0]), Position.of(pos[0], pos[1])));
 
         for (int[] pos : knightPositions) 
-            board[pos[0]][pos[1]] = new Knight(getColor(pos[0]), new Position(pos[0], pos[1]));
+            place(pos[0], pos[1], new Knight(getColor(pos[0]), Position.of(pos[0], pos[1])));
 
         for (int[] pos : bishopPositions) 
-            board[pos[0]][pos[1]] = new Bishop(getColor(pos[0]), new Position(pos[0], pos[1]));
+            place(pos[0], pos[1], new Bishop(getColor(pos[0]), Position.of(pos[0], pos[1])));
 
-        board[0][3] = new Queen(PieceColor.BLACK, new Position(0, 3));
-        board[7][3] = new Queen(PieceColor.WHITE, new Position(7, 3));
+        place(0, 3, new Queen(PieceColor.BLACK, Position.of(0, 3)));
+        place(7, 3, new Queen(PieceColor.WHITE, Position.of(7, 3)));
         
-        board[0][4] = new King(PieceColor.BLACK, new Position(0, 4));
-        board[7][4] = new King(PieceColor.WHITE, new Position(7, 4));
+        place(0, 4, new King(PieceColor.BLACK, Position.of(0, 4)));
+        place(7, 4, new King(PieceColor.WHITE, Position.of(7, 4)));
 
         for (int i = 0; i < 8; i++) {
-            board[1][i] = new Pawn(PieceColor.BLACK, new Position(1, i));
-            board[6][i] = new Pawn(PieceColor.WHITE, new Position(6, i));
+            place(1, i, new Pawn(PieceColor.BLACK, Position.of(1, i)));
+            place(6, i, new Pawn(PieceColor.WHITE, Position.of(6, i)));
         }
     }
 
+    public long computeZobristHash(PieceColor sideToMove) {
+        long hash = pieceHash;
+        int castlingRights = getCastlingRights();
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & (1 << i)) != 0) {
+                hash ^= Zobrist.CASTLING[i];
+            }
+        }
+        int epFile = getEnPassantFile(sideToMove);
+        if (epFile >= 0) {
+            hash ^= Zobrist.EN_PASSANT_FILE[epFile];
+        }
+        if (sideToMove == PieceColor.BLACK) {
+            hash ^= Zobrist.SIDE_TO_MOVE;
+        }
+        return hash;
+    }
+
+    public PositionSnapshot snapshot(PieceColor sideToMove, int halfmoveClock, int fullmoveNumber) {
+        int epFile = getEnPassantFile(sideToMove);
+        int enPassantSquare = epFile < 0 ? -1 : (sideToMove == PieceColor.WHITE ? 2 : 5) * 8 + epFile;
+        return new PositionSnapshot(bitboards, sideToMove, getCastlingRights(), enPassantSquare,
+                halfmoveClock, fullmoveNumber, computeZobristHash(sideToMove));
+    }
+
+    private int getCastlingRights() {
+        int rights = 0;
+        if (hasCastlingRight(7, 7)) rights |= PositionSnapshot.WHITE_KINGSIDE;
+        if (hasCastlingRight(7, 0)) rights |= PositionSnapshot.WHITE_QUEENSIDE;
+        if (hasCastlingRight(0, 7)) rights |= PositionSnapshot.BLACK_KINGSIDE;
+        if (hasCastlingRight(0, 0)) rights |= PositionSnapshot.BLACK_QUEENSIDE;
+        return rights;
+    }
+
+    private boolean hasCastlingRight(int row, int rookCol) {
+        Piece king = board[row][4];
+        Piece rook = board[row][rookCol];
+        return king instanceof King && !((King) king).hasMoved()
+                && rook instanceof Rook && !((Rook) rook).hasMoved()
+                && rook.getColor() == king.getColor();
+    }
+
+    // Only counts the en passant file when a pawn of the side to move can actually capture there.
+    private int getEnPassantFile(PieceColor sideToMove) {
+        int row = sideToMove == PieceColor.WHITE ? 3 : 4;
+        for (int col = 0; col < 8; col++) {
+            Piece piece = board[row][col];
+            if (piece instanceof Pawn && piece.getColor() != sideToMove && ((Pawn) piece).hasJustMovedTwoSquares()) {
+                for (int adjacent = col - 1; adjacent <= col + 1; adjacent += 2) {
+                    if (adjacent >= 0 && adjacent < 8 && board[row][adjacent] instanceof Pawn
+                            && board[row][adjacent].getColor() == sideToMove) {
+                        return col;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
     private PieceColor getColor(int row) {
         return (row == 0 || row == 1) ? PieceColor.BLACK : PieceColor.WHITE;
     }
 
     public void movePiece(Position start, Position end, boolean isEnPassantMove) {
+        movePiece(start, end, isEnPassantMove, Move.QUEEN);
+    }
+
+    // promotion is a Move piece type and only matters when a pawn reaches the last rank.
+    public void movePiece(Position start, Position end, boolean isEnPassantMove, int promotion) {
         Piece movingPiece = board[start.getRow()][start.getColumn()];
         if (movingPiece == null) return;
         if (!isEnPassantMove && !movingPiece.isValidMove(end, board)) return;
@@ -69,20 +203,20 @@ public class ChessBoard {
             // Handle pawn promotion
             if ((movingPiece.getColor() == PieceColor.WHITE && end.getRow() == 0) ||
                 (movingPiece.getColor() == PieceColor.BLACK && end.getRow() == 7)) {
-                promotePawn((Pawn) movingPiece, end);
-                board[start.getRow()][start.getColumn()] = null;
+                place(end.getRow(), end.getColumn(), promotedPiece(movingPiece.getColor(), end, promotion));
+                place(start.getRow(), start.getColumn(), null);
                 return;
             }
         }
 
         // Move the piece
-        board[end.getRow()][end.getColumn()] = movingPiece;
+        place(end.getRow(), end.getColumn(), movingPiece);
         if (movingPiece instanceof Pawn) {
             ((Pawn) movingPiece).move(end);
         } else {
             movingPiece.setPosition(end);
         }
-        board[start.getRow()][start.getColumn()] = null;
+        place(start.getRow(), start.getColumn(), null);
 
         // Update moved status
         if (movingPiece instanceof King) {
@@ -102,39 +236,22 @@ public class ChessBoard {
 
         Piece rook = board[row][rookCol];
         if (rook instanceof Rook && !((Rook) rook).hasMoved()) {
-            board[row][newRookCol] = rook;
-            rook.setPosition(new Position(row, newRookCol));
-            board[row][rookCol] = null;
-        }
-    }
-
-    private void promotePawn(Pawn pawn, Position position) {
-        String[] options = {"Queen", "Rook", "Bishop", "Knight"};
-        String selectedOption = (String) JOptionPane.showInputDialog(null,
-                "Choose a piece to promote your pawn to:",
-                "Pawn Promotion",
-                JOptionPane.PLAIN_MESSAGE,
-                null,
-                options,
-                options[0]);
-
-        if (selectedOption != null) {
-            Piece promotedPiece = null;
-            switch (selectedOption) {
-                case "Queen":
-                    promotedPiece = new Queen(pawn.getColor(), position);
-                    break;
-                case "Rook":
-                    promotedPiece = new Rook(pawn.getColor(), position);
-                    break;
-                case "Bishop":
-                    promotedPiece = new Bishop(pawn.getColor(), position);
-                    break;
-                case "Knight":
-                    promotedPiece = new Knight(pawn.getColor(), position);
-                    break;
-            } 
-            board[position.getRow()][position.getColumn()] = promotedPiece;
+            place(row, newRookCol, rook);
+            rook.setPosition(Position.of(row, newRookCol));
+            place(row, rookCol, null);
+        }
+    }
+
+    private static Piece promotedPiece(PieceColor color, Position position, int promotion) {
+        switch (promotion) {
+            case Move.ROOK:
+                return new Rook(color, position);
+            case Move.BISHOP:
+                return new Bishop(color, position);
+            case Move.KNIGHT:
+                return new Knight(color, position);
+            default:
+                return new Queen(color, position);
         }
     }
 }
\ No newline at end of file
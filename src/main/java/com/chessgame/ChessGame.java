@@ -2,114 +2,190 @@ package com.chessgame;
 
 import java.util.List;
 import java.util.ArrayList;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.nio.file.Path;
+
+public final class ChessGame {
+    private static final int DEFAULT_SKILL_LEVEL = 10;
 
-public class ChessGame {
     private ChessBoard board;
     private boolean whiteTurn = true;
-    private final List<String> moveHistory = new ArrayList<>();
-    private Process stockfishProcess;
-    private BufferedReader stockfishInput;
-    private PrintWriter stockfishOutput;
+    // Packed moves (see Move) of the current line; entries past plyCount are stale.
+    private int[] moveHistory = new int[64];
+    private int plyCount = 0;
+    private final List<PositionSnapshot> snapshotHistory = new ArrayList<>();
+    private int currentPly = 0;
+    private int halfmoveClock = 0;
+    private GameStatus cachedStatus;
+    private LegalMoveMap legalMoves;
+    private volatile PositionSnapshot snapshot;
+    private GameClock clock;
+    private final List<long[]> clockHistory = new ArrayList<>();
+    private UciEngine stockfish;
+    private CompletableFuture<UciEngine> pendingStockfish;
+    private int skillLevel = DEFAULT_SKILL_LEVEL;
+    private InProcessEngine localEngine;
+    private NnueNetwork network;
+    private MateSolver mateSolver;
+    private SpectatorChannel spectators;
+    private GameJournal journal;
+    private long journalGameId;
+    private boolean journalGameOpen;
     private boolean isStockfishInitialized = false;
+    private boolean ponderEnabled = true;
+    private boolean isPondering = false;
+    private boolean ponderHitPending = false;
+    private int ponderMove = Move.NONE;
+    private String expectedReply;
 
     public ChessGame() {
+        this(true);
+    }
+
+    // Without the engine every request is answered by the in-process searcher.
+    ChessGame(boolean startEngine) {
         this.board = new ChessBoard();
-        initializeStockfish();
+        updateSnapshot();
+        if (startEngine) {
+            // Extracting the binary and the UCI handshake take long enough to hold up the window, so they run
+            // in the background; the first call that needs an answer from the engine waits for them.
+            pendingStockfish = CompletableFuture.supplyAsync(ChessGame::startStockfish, runnable -> {
+                Thread thread = new Thread(runnable, "engine-startup");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
     }
 
-    private void initializeStockfish() {
+    // Runs on the startup thread, so it touches nothing but the new engine. Returns null on failure.
+    private static UciEngine startStockfish() {
+        long startNanos = System.nanoTime();
+        EngineStartEvent event = new EngineStartEvent();
+        event.begin();
+        UciEngine engine = null;
         try {
-            String resourcePath = "/stockfish/stockfish-macos";
-            File tempStockfish = File.createTempFile("stockfish", null);
-            tempStockfish.deleteOnExit();
-    
-            try (
-                InputStream is = getClass().getResourceAsStream(resourcePath);
-                FileOutputStream os = new FileOutputStream(tempStockfish)
-            ) {
-                if (is == null) {
-                    throw new FileNotFoundException("Could not find Stockfish binary in resources: " + resourcePath);
-                }
-                byte[] buffer = new byte[8192];
-                int bytesRead;
-                while ((bytesRead = is.read(buffer)) != -1) {
-                    os.write(buffer, 0, bytesRead);
-                }
-            }
-    
-            if (!tempStockfish.setExecutable(true)) {
-                throw new IOException("Failed to make Stockfish executable");
-            }
-    
-            ProcessBuilder pb = new ProcessBuilder(tempStockfish.getAbsolutePath());
-            stockfishProcess = pb.start();
-            stockfishInput = new BufferedReader(new InputStreamReader(stockfishProcess.getInputStream()));
-            stockfishOutput = new PrintWriter(new OutputStreamWriter(stockfishProcess.getOutputStream()), true);
-    
-            stockfishOutput.println("uci");
-            waitForLine("uciok");
-    
-            stockfishOutput.println("isready");
-            waitForLine("readyok");
-    
-            isStockfishInitialized = true;
-            setStockfishSkillLevel(10);
-    
+            engine = UciEngine.startBundled();
+            event.executable = engine.getExecutable();
+
+            engine.setOption("Ponder", true);
+            engine.setOption("Skill Level", DEFAULT_SKILL_LEVEL);
+            engine.setOption("UCI_LimitStrength", true);
+            engine.syncReady();
         } catch (Exception e) {
+            ChessMetrics.ENGINE_START.recordError();
             System.err.println("Failed to initialize Stockfish:");
             e.printStackTrace();
-            stockfishOutput = null;
-            stockfishInput = null;
-            stockfishProcess = null;
-            isStockfishInitialized = false;
+            if (engine != null) {
+                engine.close();
+            }
+            engine = null;
         }
+        event.success = engine != null;
+        event.commit();
+        ChessMetrics.ENGINE_START.recordSince(startNanos);
+        return engine;
     }
-    
-    private void waitForLine(String expected) throws IOException {
-        String line;
-        while ((line = stockfishInput.readLine()) != null) {
-            if (line.trim().equals(expected)) break;
+
+    // Takes over the engine once startup has finished, waiting for it only when asked to. Positions played
+    // while it was starting are sent in one go here.
+    private void adoptStockfish(boolean wait) {
+        if (pendingStockfish == null || !(wait || pendingStockfish.isDone())) {
+            return;
+        }
+        stockfish = pendingStockfish.join();
+        pendingStockfish = null;
+        isStockfishInitialized = stockfish != null;
+        if (stockfish != null) {
+            if (skillLevel != DEFAULT_SKILL_LEVEL) {
+                setStockfishSkillLevel(skillLevel);
+            }
+            stockfish.send(enginePositionCommand(Move.NONE));
         }
     }
 
     public void setStockfishSkillLevel(int level) {
-        if (stockfishOutput != null && isStockfishInitialized) {
+        adoptStockfish(false);
+        if (pendingStockfish != null) {
+            // Still starting; the level is applied when the engine is adopted.
+            if (level >= 0 && level <= 20) {
+                skillLevel = level;
+            }
+            return;
+        }
+        if (stockfish != null && isStockfishInitialized) {
             if (level < 0 || level > 20) {
                 System.err.println("Invalid Stockfish skill level: " + level + ". Must be between 0 and 20.");
                 return;
             }
-            stockfishOutput.println("setoption name Skill Level value " + level);
-            stockfishOutput.println("setoption name UCI_LimitStrength value true");
-            stockfishOutput.println("isready");
+            skillLevel = level;
+            cancelPendingSearch();
+            stockfish.setOption("Skill Level", level);
+            stockfish.setOption("UCI_LimitStrength", true);
             try {
-                String line;
-                while ((line = stockfishInput.readLine()) != null) {
-                    if (line.equals("readyok")) break;
-                }
-            } catch (Exception e) {
+                stockfish.syncReady();
+            } catch (IOException e) {
                 System.err.println("Error confirming Stockfish readiness after setting skill level: " + e.getMessage());
+                recoverStockfish();
             }
         } else {
             System.err.println("Stockfish is not initialized. Cannot set skill level.");
         }
     }
 
+    public EngineState getEngineState() {
+        adoptStockfish(false);
+        if (pendingStockfish != null) {
+            return EngineState.STARTING;
+        }
+        return stockfish == null ? EngineState.FAILED : stockfish.getState();
+    }
+
+    // Called after a timeout or a dead process. The restarted engine comes back with the same options and is
+    // resynced to the game; if it cannot be restarted the game carries on with the in-process engine.
+    private void recoverStockfish() {
+        isPondering = false;
+        ponderHitPending = false;
+        ponderMove = Move.NONE;
+        expectedReply = null;
+        try {
+            stockfish.restart();
+            stockfish.send(enginePositionCommand(Move.NONE));
+            System.err.println("Stockfish restarted (restart " + stockfish.getRestartCount() + ")");
+        } catch (IOException e) {
+            System.err.println("Stockfish failed and could not be restarted: " + e.getMessage());
+            isStockfishInitialized = false;
+        }
+    }
+
+    public void setPonderEnabled(boolean enabled) {
+        this.ponderEnabled = enabled;
+        if (!enabled) {
+            cancelPendingSearch();
+        }
+    }
+
+    public boolean isPondering() {
+        return isPondering;
+    }
+
     public void closeStockfish() {
-        if (stockfishOutput != null) {
-            stockfishOutput.println("quit");
+        if (pendingStockfish != null) {
+            // Don't hold up shutdown for a handshake; close the engine whenever it finishes starting.
+            pendingStockfish.thenAccept(engine -> {
+                if (engine != null) {
+                    engine.close();
+                }
+            });
+            pendingStockfish = null;
         }
-        if (stockfishProcess != null) {
+        if (stockfish != null) {
+            if (isPondering || ponderHitPending) {
+                stockfish.send("stop");
+            }
             try {
-                stockfishProcess.destroy();
+                stockfish.close();
             } catch (Exception e) {
                 System.err.println("Error closing Stockfish: " + e.getMessage());
             }
@@ -120,15 +196,306 @@ public class ChessGame {
         return this.board;
     }
 
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Zobrist key of the current position; equal positions reached by different move orders share it.
+    public long getPositionHash() {
+        return snapshot.getHash();
+    }
+
+    // Archived games that reached the current position, from an index built by PositionIndexBuilder.
+    public List<PositionIndex.Occurrence> findGamesWithPosition(PositionIndex index) {
+        return index.lookup(snapshot.getHash());
+    }
+
+    // Moves played from the current position in an opening tree built by OpeningTreeBuilder.
+    public List<OpeningTree.OpeningMove> getOpeningMoves(OpeningTree tree) {
+        return tree.lookup(snapshot.getHash());
+    }
+
+    private void updateSnapshot() {
+        snapshot = board.snapshot(getCurrentPlayerColor(), halfmoveClock, currentPly / 2 + 1);
+        snapshotHistory.add(snapshot);
+        cachedStatus = null;
+        legalMoves = null;
+    }
+
+    // Built lazily on the first lookup of a turn and reused until the position changes.
+    public LegalMoveMap getLegalMoves() {
+        LegalMoveMap moves = legalMoves;
+        if (moves == null) {
+            moves = LegalMoveMap.of(snapshot);
+            legalMoves = moves;
+        }
+        return moves;
+    }
+
+    public int getCurrentPly() {
+        return currentPly;
+    }
+
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    // The move that led from ply - 1 to ply, for 1 <= ply <= getPlyCount().
+    public int getMove(int ply) {
+        if (ply < 1 || ply > plyCount) {
+            throw new IllegalArgumentException("No such ply: " + ply + " (game has " + plyCount + ")");
+        }
+        return moveHistory[ply - 1];
+    }
+
+    public boolean canTakeback() {
+        return currentPly > 0;
+    }
+
+    public boolean canRedo() {
+        return currentPly < plyCount;
+    }
+
+    public boolean takeback() {
+        if (!canTakeback()) {
+            return false;
+        }
+        jumpToPly(currentPly - 1);
+        return true;
+    }
+
+    public boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        jumpToPly(currentPly + 1);
+        return true;
+    }
+
+    // Every ply keeps its snapshot, so any position of the current line is rebuilt directly instead of replayed.
+    public void jumpToPly(int ply) {
+        if (ply < 0 || ply > plyCount) {
+            throw new IllegalArgumentException("No such ply: " + ply + " (game has " + plyCount + ")");
+        }
+        cancelPendingSearch();
+        expectedReply = null;
+        selectedPosition = null;
+
+        currentPly = ply;
+        snapshot = snapshotHistory.get(ply);
+        board = new ChessBoard(snapshot);
+        whiteTurn = snapshot.getSideToMove() == PieceColor.WHITE;
+        halfmoveClock = snapshot.getHalfmoveClock();
+        cachedStatus = null;
+        legalMoves = null;
+        if (clock != null) {
+            long[] times = clockHistory.get(ply);
+            clock.setRemainingMillis(times[0], times[1]);
+            clock.start(getCurrentPlayerColor());
+        }
+        publishToSpectators(Move.NONE);
+
+        adoptStockfish(false);
+        if (stockfish != null) {
+            stockfish.send(enginePositionCommand(Move.NONE));
+        }
+    }
+
+    // Null plays untimed. Otherwise both sides start from the full time and the side to move's clock starts now.
+    public void setTimeControl(TimeControl timeControl) {
+        startClock(timeControl);
+        if (journal != null && journalGameOpen) {
+            beginJournalGame();
+        }
+    }
+
+    private void startClock(TimeControl timeControl) {
+        clockHistory.clear();
+        if (timeControl == null) {
+            clock = null;
+        } else {
+            clock = new GameClock(timeControl);
+            long initial = timeControl.getInitialMillis();
+            for (int ply = 0; ply < snapshotHistory.size(); ply++) {
+                clockHistory.add(new long[]{initial, initial});
+            }
+            clock.start(getCurrentPlayerColor());
+        }
+    }
+
+    public GameClock getClock() {
+        return clock;
+    }
+
+    // Starts publishing this game's moves, resets and history jumps to spectators; the first event is the
+    // current state. Publishing is a ring-buffer store, so spectators add nothing to the players' moves.
+    public SpectatorChannel hostSpectators() {
+        if (spectators == null) {
+            spectators = new SpectatorChannel(SpectatorChannel.DEFAULT_CAPACITY);
+            publishToSpectators(Move.NONE);
+        }
+        return spectators;
+    }
+
+    // Also serves the events on a loopback port (0 picks one); closing the server leaves the channel open.
+    public SpectatorServer hostSpectators(int port) throws IOException {
+        return new SpectatorServer(hostSpectators(), port);
+    }
+
+    public void stopHostingSpectators() {
+        if (spectators != null) {
+            spectators.close();
+            spectators = null;
+        }
+    }
+
+    // Journals this game from now on, starting with the moves already played. Moves are only buffered
+    // on the way; the journal's writer puts them on disk in batches, so no move waits for a disk sync.
+    public void attachJournal(GameJournal journal) {
+        this.journal = journal;
+        journalGameOpen = false;
+        beginJournalGame();
+    }
+
+    // Replays a game the journal recovered, restores its clocks and keeps journaling it under its id.
+    // The moves go onto the board only; the clock, spectators and engine see the resumed position once.
+    public void resumeJournalGame(GameJournal journal, GameJournal.GameState state) {
+        this.journal = null;
+        startClock(null);
+        resetGame();
+        int[] moves = state.getMoves();
+        int replayed = 0;
+        for (; replayed < moves.length; replayed++) {
+            int move = getLegalMoves().find(moves[replayed]);
+            if (move == Move.NONE) {
+                System.err.println("Journaled game " + state.getId() + " has an illegal move at ply " + replayed + "; resuming before it");
+                break;
+            }
+            playOnBoard(move);
+        }
+        if (state.getTimeControl() != null) {
+            startClock(state.getTimeControl());
+            for (int ply = 0; ply < replayed; ply++) {
+                if (state.getWhiteMillis(ply) >= 0) {
+                    clockHistory.set(ply + 1, new long[]{state.getWhiteMillis(ply), state.getBlackMillis(ply)});
+                }
+            }
+        }
+        jumpToPly(replayed);
+        this.journal = journal;
+        journalGameId = state.getId();
+        journalGameOpen = true;
+        if (replayed < moves.length) {
+            beginJournalGame();
+        }
+    }
+
+    // Writes the whole current line as the journal's game, under a new id once the previous one has ended.
+    private void beginJournalGame() {
+        if (!journalGameOpen) {
+            journalGameId = journal.nextGameId();
+            journalGameOpen = true;
+        }
+        journal.startGame(journalGameId, clock != null ? clock.getTimeControl() : null);
+        for (int ply = 0; ply < plyCount; ply++) {
+            long[] times = clock != null && ply + 1 < clockHistory.size() ? clockHistory.get(ply + 1) : null;
+            journal.recordMove(journalGameId, ply, moveHistory[ply], times != null ? times[0] : -1, times != null ? times[1] : -1);
+        }
+    }
+
+    private void journalMove(int move) {
+        if (journal == null) {
+            return;
+        }
+        if (!journalGameOpen) {
+            // Play went on from an earlier position of a finished game: that is a new game.
+            beginJournalGame();
+            return;
+        }
+        long whiteMillis = clock != null ? clock.getRemainingMillis(PieceColor.WHITE) : -1;
+        long blackMillis = clock != null ? clock.getRemainingMillis(PieceColor.BLACK) : -1;
+        journal.recordMove(journalGameId, currentPly - 1, move, whiteMillis, blackMillis);
+    }
+
+    private void endJournalGame(GameStatus status) {
+        if (journal == null || !journalGameOpen) {
+            return;
+        }
+        String result = GameRecord.DRAW;
+        if (status == GameStatus.CHECKMATE || status == GameStatus.TIME_FORFEIT) {
+            result = getCurrentPlayerColor() == PieceColor.WHITE ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS;
+        }
+        journal.endGame(journalGameId, result);
+        journalGameOpen = false;
+    }
+
+    private void publishToSpectators(int move) {
+        if (spectators == null) {
+            return;
+        }
+        // The status is cached, so the GUI's check right after the move gets it for free.
+        GameStatus status = evaluateStatus();
+        long startNanos = System.nanoTime();
+        long whiteMillis = clock != null ? clock.getRemainingMillis(PieceColor.WHITE) : -1;
+        long blackMillis = clock != null ? clock.getRemainingMillis(PieceColor.BLACK) : -1;
+        spectators.publish(currentPly, move, snapshot, whiteMillis, blackMillis, status);
+        ChessMetrics.SPECTATOR_PUBLISH.recordSince(startNanos);
+    }
+
+    private void recordClock() {
+        clockHistory.subList(Math.min(currentPly, clockHistory.size()), clockHistory.size()).clear();
+        clockHistory.add(new long[]{clock.getRemainingMillis(PieceColor.WHITE), clock.getRemainingMillis(PieceColor.BLACK)});
+    }
+
+    // The engine gets the real clock when there is one, so it budgets its own time like a player would.
+    private SearchLimits engineLimits() {
+        return clock != null ? SearchLimits.clock(clock) : SearchLimits.moveTime(1000);
+    }
+
+    // Syncs the engine from the last irreversible ply so repetitions stay visible without resending the whole game.
+    private String enginePositionCommand(int extraMove) {
+        int checkpoint = Math.max(0, currentPly - halfmoveClock);
+        StringBuilder command = new StringBuilder("position fen ").append(snapshotHistory.get(checkpoint).toFen());
+        if (checkpoint < currentPly || extraMove != Move.NONE) {
+            command.append(" moves");
+            for (int ply = checkpoint; ply < currentPly; ply++) {
+                Move.appendUci(moveHistory[ply], command.append(' '));
+            }
+            if (extraMove != Move.NONE) {
+                Move.appendUci(extraMove, command.append(' '));
+            }
+        }
+        return command.toString();
+    }
+
     public void resetGame() {
+        if (journal != null && journalGameOpen && plyCount > 0) {
+            // Abandoned unfinished; it is archived without a result.
+            journal.endGame(journalGameId, GameRecord.UNKNOWN);
+            journalGameOpen = false;
+        }
         this.board = new ChessBoard();
         this.whiteTurn = true;
-        moveHistory.clear();
-
-        if (stockfishOutput != null) {
-            stockfishOutput.println("ucinewgame");
-            stockfishOutput.println("position startpos");
-        } else {
+        plyCount = 0;
+        snapshotHistory.clear();
+        currentPly = 0;
+        halfmoveClock = 0;
+        updateSnapshot();
+        if (clock != null) {
+            startClock(clock.getTimeControl());
+        }
+        if (journal != null) {
+            beginJournalGame();
+        }
+        publishToSpectators(Move.NONE);
+
+        adoptStockfish(false);
+        if (stockfish != null) {
+            cancelPendingSearch();
+            expectedReply = null;
+            stockfish.send("ucinewgame");
+            stockfish.send("position startpos");
+        } else if (pendingStockfish == null) {
             System.err.println("Stockfish output is not initialized. Cannot reset Stockfish.");
         }
     }
@@ -144,69 +511,140 @@ public class ChessGame {
     }
 
     public boolean handleSquareSelection(int row, int col) {
+        return handleSquareSelection(row, col, Move.QUEEN);
+    }
+
+    // promotion (a Move piece type) is used when the selected pawn is moving to the last rank.
+    public boolean handleSquareSelection(int row, int col, int promotion) {
         if (selectedPosition == null) {
             Piece selectedPiece = board.getPiece(row, col);
             if (selectedPiece != null
                     && selectedPiece.getColor() == (whiteTurn ? PieceColor.WHITE : PieceColor.BLACK)) {
-                selectedPosition = new Position(row, col);
+                selectedPosition = Position.of(row, col);
                 return false;
             }
         } else {
-            boolean moveMade = makeMove(selectedPosition, new Position(row, col));
+            boolean moveMade = makeMove(selectedPosition, Position.of(row, col), promotion);
             selectedPosition = null;
             return moveMade;
         }
         return false;
     }
 
+    public void clearSelection() {
+        selectedPosition = null;
+    }
+
+    // True when the selected piece is a pawn that would promote on the given square, so the caller should ask
+    // which piece it becomes.
+    public boolean isPromotionPending(int row, int col) {
+        return selectedPosition != null && getLegalMoves().isPromotion(selectedPosition, Position.of(row, col));
+    }
+
     public boolean isEnPassantMove(Position start, Position end, Piece movingPiece) {
-        if (movingPiece instanceof Pawn) {
-            int direction = movingPiece.getColor() == PieceColor.WHITE ? -1 : 1;
-            int colDiff = Math.abs(start.getColumn() - end.getColumn());
-            int rowDiff = (end.getRow() - start.getRow()) * direction;
-
-            if (rowDiff == 1 && colDiff == 1) {
-                Position adjacentPosition = new Position(start.getRow(), end.getColumn());
-                Piece adjacentPiece = board.getPiece(adjacentPosition.getRow(), adjacentPosition.getColumn());
-                if (adjacentPiece instanceof Pawn) {
-                    Pawn adjacentPawn = (Pawn) adjacentPiece;
-                    return adjacentPawn.getColor() != movingPiece.getColor() &&
-                           adjacentPawn.hasJustMovedTwoSquares();
-                }
-            }
-        }
-        return false;
+        return movingPiece != null && movingPiece.getColor() == getCurrentPlayerColor()
+                && getLegalMoves().isEnPassant(start, end);
     }
 
+    // A pawn reaching the last rank becomes a queen; use the three-argument form to choose.
     public boolean makeMove(Position start, Position end) {
-        Piece movingPiece = board.getPiece(start.getRow(), start.getColumn());
-        if (movingPiece == null || movingPiece.getColor() != (whiteTurn ? PieceColor.WHITE : PieceColor.BLACK)) {
-            return false;
-        }
+        return makeMove(Move.of(start.getSquare(), end.getSquare(), getLegalMoves().isPromotion(start, end)
+                ? Move.QUEEN : 0, 0));
+    }
 
-        boolean isEnPassantMove = isEnPassantMove(start, end, movingPiece);
+    public boolean makeMove(Position start, Position end, int promotion) {
+        return makeMove(Move.of(start.getSquare(), end.getSquare(),
+                getLegalMoves().isPromotion(start, end) ? promotion : 0, 0));
+    }
 
-        if (movingPiece.isValidMove(end, board.getBoard()) || isEnPassantMove) {
-            if (isEnPassantMove) {
-                executeEnPassant(start, end);
-            } else {
-                board.movePiece(start, end, false);
-            }
+    // Plays a packed move (see Move). Only from, to and promotion are read; the flags are looked up, so
+    // Move.of(from, to, promotion, 0) and parseMove() results are both accepted.
+    public boolean makeMove(int move) {
+        long startNanos = System.nanoTime();
+        MoveValidationEvent event = new MoveValidationEvent();
+        event.begin();
+        boolean legal = applyMove(move);
+        event.end();
+        if (event.shouldCommit()) {
+            event.move = Move.toUci(move);
+            event.legal = legal;
+            event.commit();
+        }
+        ChessMetrics.MOVE_VALIDATION.recordSince(startNanos);
+        return legal;
+    }
+
+    // Reads UCI ("e7e8q") or standard algebraic ("exd8=Q+") notation for the current position; Move.NONE if it
+    // is not a legal move here.
+    public int parseMove(CharSequence text) {
+        EngineBoard position = getLegalMoves().getBoard();
+        int move = position.parseUciMove(text);
+        return move != Move.NONE ? move : position.parseSanMove(text);
+    }
 
-            resetJustMovedTwoSquaresForPawns(movingPiece);
+    // Standard algebraic notation of a legal move in the current position.
+    public String toSan(int move) {
+        return getLegalMoves().getBoard().appendSan(getLegalMoves().find(move), new StringBuilder(8)).toString();
+    }
 
-            String moveNotation = generateMoveNotation(start, end);
-            moveHistory.add(moveNotation);
-            whiteTurn = !whiteTurn;
+    private boolean applyMove(int requested) {
+        int move = getLegalMoves().find(requested);
+        if (move != Move.NONE) {
+            if (clock != null && !clock.completeMove(getCurrentPlayerColor())) {
+                // The flag fell before the move was made; evaluateStatus() reports the loss on time.
+                return false;
+            }
+            playOnBoard(move);
+            if (clock != null) {
+                recordClock();
+            }
+            journalMove(move);
+            publishToSpectators(move);
+
+            if (isPondering && move == ponderMove) {
+                // The engine has been searching this exact position; let it finish on its own clock.
+                stockfish.send("ponderhit");
+                isPondering = false;
+                ponderHitPending = true;
+                return true;
+            }
+            cancelPendingSearch();
 
-            if (stockfishOutput != null) {
-                stockfishOutput.println("position startpos moves " + String.join(" ", moveHistory));
+            adoptStockfish(false);
+            if (stockfish != null) {
+                stockfish.send(enginePositionCommand(Move.NONE));
             }
             return true;
         }
         return false;
     }
 
+    // The move itself, without the clock, journal, spectators or engine; move must be legal here.
+    private void playOnBoard(int move) {
+        Position start = Position.of(Move.from(move));
+        Position end = Position.of(Move.to(move));
+        Piece movingPiece = board.getPiece(start.getRow(), start.getColumn());
+        boolean isCapture = Move.isCapture(move);
+        if (Move.isEnPassant(move)) {
+            executeEnPassant(start, end);
+        } else {
+            board.movePiece(start, end, false, Move.promotion(move));
+        }
+
+        resetJustMovedTwoSquaresForPawns(movingPiece);
+
+        snapshotHistory.subList(currentPly + 1, snapshotHistory.size()).clear();
+        if (currentPly == moveHistory.length) {
+            moveHistory = Arrays.copyOf(moveHistory, currentPly * 2);
+        }
+        moveHistory[currentPly++] = move;
+        plyCount = currentPly;
+        whiteTurn = !whiteTurn;
+
+        halfmoveClock = (isCapture || movingPiece instanceof Pawn) ? 0 : halfmoveClock + 1;
+        updateSnapshot();
+    }
+
     private void resetJustMovedTwoSquaresForPawns(Piece movingPiece) {
         for (int row = 0; row < board.getBoard().length; row++) {
             for (int col = 0; col < board.getBoard()[row].length; col++) {
@@ -225,238 +663,341 @@ public class ChessGame {
         board.setPiece(capturedPawnRow, capturedPawnCol, null);
     }
 
-    public String getLastMove() {
-        if (!moveHistory.isEmpty()) {
-            return moveHistory.get(moveHistory.size() - 1);
+    // Move.NONE at the start of the game.
+    public int getLastMove() {
+        return currentPly > 0 ? moveHistory[currentPly - 1] : Move.NONE;
+    }
+
+    // Falls back to the in-process engine, on the same clock-driven limits, when Stockfish is unavailable.
+    // Returns the packed move, or Move.NONE when neither engine produced a legal one.
+    public int getStockfishMove() {
+        long startNanos = System.nanoTime();
+        SearchLimits limits = engineLimits();
+        EngineRequestEvent event = new EngineRequestEvent();
+        event.command = ponderHitPending ? "ponderhit" : limits.toGoCommand();
+        event.begin();
+        String bestMove = null;
+        adoptStockfish(true);
+        if (isStockfishInitialized) {
+            bestMove = requestStockfishMove(limits);
+            if (bestMove == null) {
+                ChessMetrics.ENGINE_REQUEST.recordError();
+            }
         }
-        return null;
+        if (bestMove == null) {
+            bestMove = requestLocalMove(limits);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.response = bestMove;
+            event.commit();
+        }
+        ChessMetrics.ENGINE_REQUEST.recordSince(startNanos);
+        // UCI text stops at the engine boundary; promotions such as "e7e8q" parse like any other move.
+        return bestMove == null ? Move.NONE : getLegalMoves().getBoard().parseUciMove(bestMove);
     }
 
-    private String generateMoveNotation(Position start, Position end) {
-        char startFile = (char) ('a' + start.getColumn());
-        int startRank = 8 - start.getRow();
-        char endFile = (char) ('a' + end.getColumn());
-        int endRank = 8 - end.getRow();
-        return "" + startFile + startRank + endFile + endRank;
+    private String requestLocalMove(SearchLimits limits) {
+        return localEngine().analyze(snapshot.toFen(), limits).getBestMove();
+    }
+
+    private InProcessEngine localEngine() {
+        if (localEngine == null) {
+            localEngine = new InProcessEngine();
+            localEngine.setNetwork(network);
+        }
+        return localEngine;
     }
 
-    public String getStockfishMove() {
-        if (!isStockfishInitialized) {
-            System.err.println("Stockfish is not initialized. Cannot get Stockfish move.");
-            return null;
+    // Switches the in-process engine to an NNUE network; null returns it to the hand-written evaluation.
+    public void loadNetwork(Path weights) throws IOException {
+        network = weights == null ? null : NnueNetwork.load(weights);
+        if (localEngine != null) {
+            localEngine.setNetwork(network);
         }
+    }
 
+    private String requestStockfishMove(SearchLimits limits) {
         try {
-            stockfishOutput.println("go movetime 1000");
-            String line;
-            while ((line = stockfishInput.readLine()) != null) {
+            if (ponderHitPending) {
+                ponderHitPending = false;
+            } else {
+                if (isPondering) {
+                    cancelPendingSearch();
+                    stockfish.send(enginePositionCommand(Move.NONE));
+                }
+                stockfish.send(limits.toGoCommand());
+            }
+            long deadline = System.currentTimeMillis() + UciEngine.searchTimeoutMillis(limits);
+            boolean stopSent = false;
+            while (true) {
+                String line;
+                try {
+                    line = stockfish.readLine(Math.max(1, deadline - System.currentTimeMillis()));
+                } catch (IOException e) {
+                    if (stopSent) {
+                        throw e;
+                    }
+                    // Overdue: ask for the best move so far and give the engine one more grace period.
+                    stockfish.send("stop");
+                    stopSent = true;
+                    deadline = System.currentTimeMillis() + UciEngine.COMMAND_TIMEOUT_MILLIS;
+                    continue;
+                }
+                if (line == null) {
+                    break;
+                }
                 if (line.startsWith("bestmove")) {
-                    return line.split(" ")[1];
+                    String[] tokens = line.split(" ");
+                    expectedReply = tokens.length >= 4 && tokens[2].equals("ponder") ? tokens[3] : null;
+                    return tokens[1];
                 }
             }
-        } catch (Exception e) {
+            throw new IOException("Stockfish exited during search");
+        } catch (IOException e) {
             System.err.println("Error getting Stockfish move: " + e.getMessage());
+            recoverStockfish();
         }
         return null;
     }
 
-    public void playStockfishMove() {
-        if (!isStockfishInitialized) {
-            System.err.println("Stockfish is not initialized. Cannot play Stockfish move.");
+    private void startPondering() {
+        if (!ponderEnabled || expectedReply == null || stockfish == null) {
             return;
         }
-
-        String stockfishMove = getStockfishMove();
-        if (stockfishMove != null && stockfishMove.length() == 4) {
-            Position start = new Position(8 - (stockfishMove.charAt(1) - '0'), stockfishMove.charAt(0) - 'a');
-            Position end = new Position(8 - (stockfishMove.charAt(3) - '0'), stockfishMove.charAt(2) - 'a');
-            makeMove(start, end);
+        int reply = getLegalMoves().getBoard().parseUciMove(expectedReply);
+        expectedReply = null;
+        if (reply == Move.NONE) {
+            return;
         }
+        // Time limits count from "go", so after a ponderhit the time already spent pondering counts against them.
+        stockfish.send(enginePositionCommand(reply));
+        stockfish.send("go ponder" + engineLimits().toGoCommand().substring("go".length()));
+        ponderMove = reply;
+        isPondering = true;
     }
 
-    public boolean isInCheck(PieceColor kingColor) {
-        Position kingPosition = findKingPosition(kingColor);
-        for (int row = 0; row < board.getBoard().length; row++) {
-            for (int col = 0; col < board.getBoard()[row].length; col++) {
-                Piece piece = board.getPiece(row, col);
-                if (piece != null && piece.getColor() != kingColor) {
-                    if (piece.isValidMove(kingPosition, board.getBoard())) {
-                        return true;
-                    }
-                }
-            }
+    private void cancelPendingSearch() {
+        if (!isPondering && !ponderHitPending) {
+            return;
         }
-        return false;
-    }
-
-    private Position findKingPosition(PieceColor color) {
-        for (int row = 0; row < board.getBoard().length; row++) {
-            for (int col = 0; col < board.getBoard()[row].length; col++) {
-                Piece piece = board.getPiece(row, col);
-                if (piece instanceof King && piece.getColor() == color) {
-                    return new Position(row, col);
+        isPondering = false;
+        ponderHitPending = false;
+        ponderMove = Move.NONE;
+        stockfish.send("stop");
+        try {
+            long deadline = System.currentTimeMillis() + UciEngine.COMMAND_TIMEOUT_MILLIS;
+            String line;
+            while ((line = stockfish.readLine(Math.max(1, deadline - System.currentTimeMillis()))) != null) {
+                if (line.startsWith("bestmove")) {
+                    return;
                 }
             }
+            throw new IOException("Stockfish exited while stopping");
+        } catch (IOException e) {
+            System.err.println("Error stopping Stockfish ponder search: " + e.getMessage());
+            recoverStockfish();
         }
-        throw new RuntimeException("King not found, which should never happen.");
     }
 
-    public boolean isCheckmate(PieceColor kingColor) {
-        if (!isInCheck(kingColor)) {
-            return false;
+    public void playStockfishMove() {
+        int move = getStockfishMove();
+        if (move != Move.NONE && makeMove(move)) {
+            startPondering();
         }
+    }
 
-        Position kingPosition = findKingPosition(kingColor);
-        King king = (King) board.getPiece(kingPosition.getRow(), kingPosition.getColumn());
-
-        for (int rowOffset = -1; rowOffset <= 1; rowOffset++) {
-            for (int colOffset = -1; colOffset <= 1; colOffset++) {
-                if (rowOffset == 0 && colOffset == 0) {
-                    continue;
-                }
-                Position newPosition = new Position(kingPosition.getRow() + rowOffset,
-                        kingPosition.getColumn() + colOffset);
-
-                if (isPositionOnBoard(newPosition) && king.isValidMove(newPosition, board.getBoard())
-                        && !wouldBeInCheckAfterMove(kingColor, kingPosition, newPosition)) {
-                    return false;
-                }
+    // Ranked alternatives from a single multi-PV search, best first. Falls back to the in-process
+    // engine when Stockfish is unavailable or fails.
+    public List<AnalysisResult> getCandidateMoves(int count) {
+        String fen = snapshot.toFen();
+        adoptStockfish(true);
+        if (stockfish != null && isStockfishInitialized) {
+            try {
+                cancelPendingSearch();
+                List<AnalysisResult> lines = stockfish.analyze(fen, SearchLimits.moveTime(1000), count);
+                // analyze() sets a bare FEN; restore the move history so repetitions stay visible.
+                stockfish.send(enginePositionCommand(Move.NONE));
+                return lines;
+            } catch (IOException e) {
+                System.err.println("Error analyzing candidate moves: " + e.getMessage());
+                recoverStockfish();
             }
         }
-        return true;
+        return localEngine().analyze(fen, SearchLimits.moveTime(1000), count);
     }
 
-    private boolean isPositionOnBoard(Position position) {
-        return position.getRow() >= 0 && position.getRow() < board.getBoard().length &&
-                position.getColumn() >= 0 && position.getColumn() < board.getBoard()[0].length;
+    // Static evaluation of the current position in centipawns from White's point of view.
+    public int getStaticEvaluation() {
+        int score = Evaluator.evaluate(EngineBoard.fromSnapshot(snapshot));
+        return whiteTurn ? score : -score;
     }
 
-    private boolean wouldBeInCheckAfterMove(PieceColor kingColor, Position from, Position to) {
-        Piece temp = board.getPiece(to.getRow(), to.getColumn());
-        board.setPiece(to.getRow(), to.getColumn(), board.getPiece(from.getRow(), from.getColumn()));
-        board.setPiece(from.getRow(), from.getColumn(), null);
-
-        boolean inCheck = isInCheck(kingColor);
-
-        board.setPiece(from.getRow(), from.getColumn(), board.getPiece(to.getRow(), to.getColumn()));
-        board.setPiece(to.getRow(), to.getColumn(), temp);
-
-        return inCheck;
+    // Material the mover expects to net from the capture sequence on the target square; 0 for quiet moves.
+    public int getExchangeValue(Position start, Position end) {
+        LegalMoveMap moves = getLegalMoves();
+        int move = moves.find(start, end);
+        return Move.isCapture(move) ? StaticExchange.evaluate(moves.getBoard(), move) : 0;
     }
 
-    public List<Position> getLegalMovesForPieceAt(Position position) {
-        Piece selectedPiece = board.getPiece(position.getRow(), position.getColumn());
-        if (selectedPiece == null) {
-            return new ArrayList<>();
-        }
-
-        List<Position> legalMoves = new ArrayList<>();
-
-        if (selectedPiece instanceof Pawn) {
-            addPawnMoves(position, selectedPiece.getColor(), legalMoves);
-        } else {
-            for (int row = 0; row < board.getBoard().length; row++) {
-                for (int col = 0; col < board.getBoard()[row].length; col++) {
-                    Position newPos = new Position(row, col);
-                    if (selectedPiece.isValidMove(newPos, board.getBoard())) {
-                        legalMoves.add(newPos);
-                    }
-                }
-            }
+    // Shortest forced mate for the side to move within maxMoves of its own moves. The solution either
+    // holds the mating line, proves there is no such mate, or reports that the node limit ran out.
+    public MateSolver.Solution findForcedMate(int maxMoves) {
+        if (mateSolver == null) {
+            mateSolver = new MateSolver(16);
         }
-        return legalMoves;
+        return mateSolver.solve(EngineBoard.fromSnapshot(snapshot), maxMoves, MateSolver.DEFAULT_NODE_LIMIT);
     }
 
-    private void addPawnMoves(Position position, PieceColor color, List<Position> legalMoves) {
-        int direction = color == PieceColor.WHITE ? -1 : 1;
-        Position newPos = new Position(position.getRow() + direction, position.getColumn());
-        if (isPositionOnBoard(newPos) && board.getPiece(newPos.getRow(), newPos.getColumn()) == null) {
-            legalMoves.add(newPos);
+    public List<Position> getHangingPieces(PieceColor color) {
+        long hanging = StaticExchange.hangingPieces(EngineBoard.fromSnapshot(snapshot), color == PieceColor.WHITE ? 0 : 1);
+        List<Position> squares = new ArrayList<>();
+        while (hanging != 0) {
+            squares.add(Position.of(Long.numberOfTrailingZeros(hanging)));
+            hanging &= hanging - 1;
         }
+        return squares;
+    }
 
-        if ((color == PieceColor.WHITE && position.getRow() == 6) ||
-                (color == PieceColor.BLACK && position.getRow() == 1)) {
-            newPos = new Position(position.getRow() + 2 * direction, position.getColumn());
-            Position intermediatePos = new Position(position.getRow() + direction, position.getColumn());
-            if (isPositionOnBoard(newPos) && board.getPiece(newPos.getRow(), newPos.getColumn()) == null
-                    && board.getPiece(intermediatePos.getRow(), intermediatePos.getColumn()) == null) {
-                legalMoves.add(newPos);
+    public GameStatus evaluateStatus() {
+        if (cachedStatus == null) {
+            long startNanos = System.nanoTime();
+            cachedStatus = computeStatus();
+            ChessMetrics.STATUS_EVALUATION.recordSince(startNanos);
+            if (cachedStatus.isGameOver() && clock != null) {
+                clock.stop();
             }
-        }
-
-        for (int colOffset : new int[]{-1, 1}) {
-            Position capturePos = new Position(position.getRow() + direction, position.getColumn() + colOffset);
-            if (isPositionOnBoard(capturePos)) {
-                Piece capturePiece = board.getPiece(capturePos.getRow(), capturePos.getColumn());
-                if (capturePiece != null && capturePiece.getColor() != color) {
-                    legalMoves.add(capturePos);
-                } else if (isEnPassantMove(position, capturePos, board.getPiece(position.getRow(), position.getColumn()))) {
-                    legalMoves.add(capturePos);
-                }
+            if (cachedStatus.isGameOver()) {
+                endJournalGame(cachedStatus);
             }
         }
-    }
-
-    public boolean isCastlingMove(Position start, Position end) {
-        Piece movingPiece = board.getPiece(start.getRow(), start.getColumn());
-
-        if (!(movingPiece instanceof King)) {
-            return false;
+        // The clock keeps running between moves, so flag-fall is checked live rather than cached.
+        PieceColor sideToMove = getCurrentPlayerColor();
+        if (clock != null && clock.isFlagged(sideToMove)) {
+            clock.stop();
+            PieceColor opponent = sideToMove == PieceColor.WHITE ? PieceColor.BLACK : PieceColor.WHITE;
+            GameStatus status = hasMatingMaterial(opponent) ? GameStatus.TIME_FORFEIT : GameStatus.DRAW_BY_INSUFFICIENT_MATERIAL;
+            endJournalGame(status);
+            return status;
         }
+        return cachedStatus;
+    }
 
-        King king = (King) movingPiece;
-        if (king.hasMoved()) {
-            return false;
+    // A flag only loses if the opponent has something to mate with; a lone king or king and minor piece does not.
+    private boolean hasMatingMaterial(PieceColor color) {
+        long own = color == PieceColor.WHITE ? snapshot.getWhite() : snapshot.getBlack();
+        if ((own & (snapshot.getPawns() | snapshot.getRooks() | snapshot.getQueens())) != 0) {
+            return true;
         }
+        return Long.bitCount(own & (snapshot.getKnights() | snapshot.getBishops())) >= 2;
+    }
 
-        int row = start.getRow();
-        int colDiff = end.getColumn() - start.getColumn();
+    private GameStatus computeStatus() {
+        LegalMoveMap moves = getLegalMoves();
+        boolean inCheck = moves.getBoard().isInCheck();
 
-        if (Math.abs(colDiff) != 2) {
-            return false;
+        if (moves.size() == 0) {
+            return inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        } else if (isThreefoldRepetition()) {
+            return GameStatus.DRAW_BY_REPETITION;
+        } else if (halfmoveClock >= 100) {
+            return GameStatus.DRAW_BY_FIFTY_MOVE_RULE;
+        } else if (hasInsufficientMaterial()) {
+            return GameStatus.DRAW_BY_INSUFFICIENT_MATERIAL;
         }
+        return inCheck ? GameStatus.CHECK : GameStatus.IN_PROGRESS;
+    }
 
-        int rookCol = (colDiff > 0) ? 7 : 0;
-        Piece rook = board.getPiece(row, rookCol);
-
-        if (!(rook instanceof Rook) || ((Rook) rook).hasMoved()) {
-            return false;
+    private boolean isThreefoldRepetition() {
+        long current = snapshot.getHash();
+        int occurrences = 1;
+        // Only positions since the last capture or pawn move can repeat, and only with the same side to move.
+        for (int i = currentPly - 2; i >= 0 && i >= currentPly - halfmoveClock; i -= 2) {
+            if (snapshotHistory.get(i).getHash() == current && ++occurrences >= 3) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        int step = (colDiff > 0) ? 1 : -1;
-        for (int col = start.getColumn() + step; col != rookCol; col += step) {
-            if (board.getPiece(row, col) != null) {
-                return false;
+    private boolean hasInsufficientMaterial() {
+        int knights = 0;
+        int bishops = 0;
+        int bishopSquareColors = 0;
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                Piece piece = board.getPiece(row, col);
+                if (piece == null || piece instanceof King) {
+                    continue;
+                }
+                if (piece instanceof Knight) {
+                    knights++;
+                } else if (piece instanceof Bishop) {
+                    bishops++;
+                    bishopSquareColors |= 1 << ((row + col) % 2);
+                } else {
+                    return false;
+                }
             }
         }
-
-        Position middlePosition = new Position(row, start.getColumn() + step);
-        if (isInCheck(king.getColor()) || wouldBeInCheckAfterMove(king.getColor(), start, middlePosition) ||
-            wouldBeInCheckAfterMove(king.getColor(), start, end)) {
-            return false;
+        if (knights + bishops <= 1) {
+            return true;
         }
-
-        return true;
+        // Bishops that all live on one square color cannot force mate on their own.
+        return knights == 0 && bishopSquareColors != 3;
     }
 
-    public boolean isStalemate(PieceColor kingColor) {
-        if (isInCheck(kingColor)) {
-            return false;
+    public boolean isInCheck(PieceColor kingColor) {
+        Position kingPosition = findKingPosition(kingColor);
+        for (int row = 0; row < board.getBoard().length; row++) {
+            for (int col = 0; col < board.getBoard()[row].length; col++) {
+                Piece piece = board.getPiece(row, col);
+                if (piece != null && piece.getColor() != kingColor) {
+                    if (piece.isValidMove(kingPosition, board.getBoard())) {
+                        return true;
+                    }
+                }
+            }
         }
+        return false;
+    }
 
+    private Position findKingPosition(PieceColor color) {
         for (int row = 0; row < board.getBoard().length; row++) {
             for (int col = 0; col < board.getBoard()[row].length; col++) {
                 Piece piece = board.getPiece(row, col);
-                if (piece != null && piece.getColor() == kingColor) {
-                    Position position = new Position(row, col);
-                    List<Position> legalMoves = getLegalMovesForPieceAt(position);
-                    if (!legalMoves.isEmpty()) {
-                        return false;
-                    }
+                if (piece instanceof King && piece.getColor() == color) {
+                    return Position.of(row, col);
                 }
             }
         }
+        throw new RuntimeException("King not found, which should never happen.");
+    }
 
-        return true;
+    public boolean isCheckmate(PieceColor kingColor) {
+        return kingColor == getCurrentPlayerColor() && getLegalMoves().size() == 0 && isInCheck(kingColor);
+    }
+
+    public List<Position> getLegalMovesForPieceAt(Position position) {
+        long startNanos = System.nanoTime();
+        LegalMoveGenerationEvent event = new LegalMoveGenerationEvent();
+        event.begin();
+        List<Position> legalMoves = getLegalMoves().getTargets(position);
+        event.end();
+        if (event.shouldCommit()) {
+            event.square = position.toChessNotation();
+            event.moveCount = legalMoves.size();
+            event.commit();
+        }
+        ChessMetrics.LEGAL_MOVE_GENERATION.recordSince(startNanos);
+        return legalMoves;
+    }
+
+    public boolean isCastlingMove(Position start, Position end) {
+        return getLegalMoves().isCastling(start, end);
+    }
+
+    public boolean isStalemate(PieceColor kingColor) {
+        return kingColor == getCurrentPlayerColor() && getLegalMoves().size() == 0 && !isInCheck(kingColor);
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,8 @@ package com.chessgame;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,13 @@ public class ChessGameGUI extends JFrame {
     private PieceColor stockfishColor = null; // null means human vs. human, otherwise WHITE or BLACK
     private JSlider stockfishLevelSlider;
     private JLabel skillLevelLabel;
+    private JLabel evaluationLabel;
+    private JLabel clockLabel;
+    private JLabel explorerLabel;
+    private OpeningTree openingTree;
+    private SpectatorServer spectatorServer;
+    private GameJournal journal;
+    private final Timer clockTimer = new Timer(100, e -> updateClock());
     private int stockfishSkillLevel = 10; // Default skill level (0-20)
 
     public ChessGameGUI() {
@@ -49,10 +58,15 @@ public class ChessGameGUI extends JFrame {
             @Override
             public void windowClosing(WindowEvent e) {
                 game.closeStockfish();
+                closeOpeningTree();
+                stopHostingSpectators();
+                closeJournal();
             }
         });
+        openJournal();
 
         SwingUtilities.invokeLater(this::refreshBoard);
+        clockTimer.start();
 
         pack();
         setVisible(true);
@@ -188,12 +202,52 @@ public class ChessGameGUI extends JFrame {
         gbc.gridy = 5;
         sidePanel.add(bestMoveButton, gbc);
 
+        JButton topMovesButton = new JButton("Show Top 3 Moves");
+        topMovesButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        topMovesButton.addActionListener(e -> showTopMoves());
+        gbc.gridy = 6;
+        sidePanel.add(topMovesButton, gbc);
+
+        JButton hangingButton = new JButton("Show Hanging Pieces");
+        hangingButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        hangingButton.addActionListener(e -> showHangingPieces());
+        gbc.gridy = 7;
+        sidePanel.add(hangingButton, gbc);
+
+        JButton undoButton = new JButton("Undo Move");
+        undoButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        undoButton.addActionListener(e -> undoMove());
+        gbc.gridy = 8;
+        sidePanel.add(undoButton, gbc);
+
+        JButton redoButton = new JButton("Redo Move");
+        redoButton.setFont(new Font("Arial", Font.PLAIN, 14));
+        redoButton.addActionListener(e -> redoMove());
+        gbc.gridy = 9;
+        sidePanel.add(redoButton, gbc);
+
         JButton resetButton = new JButton("Reset Game");
         resetButton.setFont(new Font("Arial", Font.PLAIN, 14));
         resetButton.addActionListener(e -> resetGame());
-        gbc.gridy = 6;
+        gbc.gridy = 10;
         sidePanel.add(resetButton, gbc);
 
+        evaluationLabel = new JLabel();
+        evaluationLabel.setFont(new Font("Arial", Font.PLAIN, 14));
+        gbc.gridy = 11;
+        sidePanel.add(evaluationLabel, gbc);
+        updateEvaluation();
+
+        clockLabel = new JLabel("Untimed");
+        clockLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        gbc.gridy = 12;
+        sidePanel.add(clockLabel, gbc);
+
+        explorerLabel = new JLabel();
+        explorerLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        gbc.gridy = 13;
+        sidePanel.add(explorerLabel, gbc);
+
         sidePanel.setPreferredSize(new Dimension(300, getHeight()));
         return sidePanel;
     }
@@ -251,23 +305,139 @@ public class ChessGameGUI extends JFrame {
         }
 
         clearHighlights();
+        updateEvaluation();
+        updateExplorer();
         SwingUtilities.invokeLater(this::repaint);
     }
 
+    private void updateExplorer() {
+        if (explorerLabel == null) {
+            return;
+        }
+        if (openingTree == null) {
+            explorerLabel.setText("");
+            return;
+        }
+        List<OpeningTree.OpeningMove> moves = game.getOpeningMoves(openingTree);
+        if (moves.isEmpty()) {
+            explorerLabel.setText("<html><b>Opening Explorer</b><br>No games reached this position.</html>");
+            return;
+        }
+        StringBuilder text = new StringBuilder("<html><b>Opening Explorer</b> (white / draw / black)");
+        for (int i = 0; i < Math.min(8, moves.size()); i++) {
+            OpeningTree.OpeningMove move = moves.get(i);
+            text.append(String.format("<br>%s &nbsp;%d &nbsp;%.0f%% / %.0f%% / %.0f%%", move.getMove(), move.getGames(),
+                    move.getWhiteWinRate() * 100, move.getDrawRate() * 100, move.getBlackWinRate() * 100));
+        }
+        explorerLabel.setText(text.append("</html>").toString());
+    }
+
+    private void openOpeningTree() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        closeOpeningTree();
+        try {
+            openingTree = OpeningTree.open(chooser.getSelectedFile().toPath());
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Unable to open opening tree: " + e.getMessage());
+        }
+        updateExplorer();
+    }
+
+    private void closeOpeningTree() {
+        if (openingTree != null) {
+            try {
+                openingTree.close();
+            } catch (IOException e) {
+                System.err.println("Error closing opening tree: " + e.getMessage());
+            }
+            openingTree = null;
+        }
+        updateExplorer();
+    }
+
+    // Games survive a restart: the last unfinished one is resumed, and finished ones are archived under
+    // ~/.chessgame/journal.
+    private void openJournal() {
+        try {
+            journal = GameJournal.open(Paths.get(System.getProperty("user.home"), ".chessgame", "journal"), 1);
+        } catch (IOException e) {
+            System.err.println("Games will not be saved; unable to open the journal: " + e.getMessage());
+            return;
+        }
+        List<GameJournal.GameState> unfinished = journal.getRecoveredGames();
+        if (unfinished.isEmpty()) {
+            game.attachJournal(journal);
+        } else {
+            game.resumeJournalGame(journal, unfinished.get(unfinished.size() - 1));
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private void hostSpectators() {
+        String port = JOptionPane.showInputDialog(this, "Local port for spectators (0 picks one):", "0");
+        if (port == null) {
+            return;
+        }
+        stopHostingSpectators();
+        try {
+            spectatorServer = game.hostSpectators(Integer.parseInt(port.trim()));
+            JOptionPane.showMessageDialog(this, "Spectators can connect to localhost:" + spectatorServer.getPort());
+        } catch (NumberFormatException | IOException e) {
+            JOptionPane.showMessageDialog(this, "Unable to host spectators: " + e.getMessage());
+        }
+    }
+
+    private void stopHostingSpectators() {
+        if (spectatorServer != null) {
+            spectatorServer.close();
+            spectatorServer = null;
+        }
+        game.stopHostingSpectators();
+    }
+
+    private void updateEvaluation() {
+        if (evaluationLabel != null) {
+            evaluationLabel.setText(String.format("Evaluation: %+.2f", game.getStaticEvaluation() / 100.0));
+        }
+    }
+
     private void handleSquareClick(int row, int col) {
         try {
             // Only allow human moves if it's not Stockfish's turn
             if (stockfishColor == null || game.getCurrentPlayerColor() != stockfishColor) {
-                boolean moveResult = game.handleSquareSelection(row, col);
+                boolean moveResult;
+                if (game.isPromotionPending(row, col)) {
+                    int promotion = choosePromotion();
+                    if (promotion == 0) {
+                        game.clearSelection();
+                        clearHighlights();
+                        return;
+                    }
+                    moveResult = game.handleSquareSelection(row, col, promotion);
+                } else {
+                    moveResult = game.handleSquareSelection(row, col);
+                }
                 clearHighlights();
 
                 if (moveResult) {
-                    checkForPawnPromotion(row, col);
                     refreshBoard();
                     checkGameState();
                     checkGameOver();
                 } else if (game.isPieceSelected()) {
-                    highlightLegalMoves(new Position(row, col));
+                    highlightLegalMoves(Position.of(row, col));
                 }
             }
 
@@ -281,32 +451,21 @@ public class ChessGameGUI extends JFrame {
         }
     }
 
-    private void checkForPawnPromotion(int row, int col) {
-        Piece piece = game.getBoard().getPiece(row, col);
-        if (piece instanceof Pawn) {
-            Pawn pawn = (Pawn) piece;
-            if ((pawn.getColor() == PieceColor.WHITE && row == 0) || (pawn.getColor() == PieceColor.BLACK && row == 7)) {
-                promotePawn(pawn);
-            }
-        }
-    }
-
     private void checkGameState() {
-        PieceColor currentPlayer = game.getCurrentPlayerColor();
-        boolean inCheck = game.isInCheck(currentPlayer);
-        if (inCheck) {
-            JOptionPane.showMessageDialog(this, currentPlayer + " is in check!");
+        if (game.evaluateStatus() == GameStatus.CHECK) {
+            JOptionPane.showMessageDialog(this, game.getCurrentPlayerColor() + " is in check!");
         }
     }
 
     private void highlightLegalMoves(Position position) {
-        List<Position> legalMoves = game.getLegalMovesForPieceAt(position);
-        for (Position move : legalMoves) {
-            Piece movingPiece = game.getBoard().getPiece(position.getRow(), position.getColumn());
-            if (movingPiece != null && game.isEnPassantMove(position, move, movingPiece)) {
+        LegalMoveMap legalMoves = game.getLegalMoves();
+        for (Position move : game.getLegalMovesForPieceAt(position)) {
+            if (legalMoves.isEnPassant(position, move)) {
                 squares[move.getRow()][move.getColumn()].setBackground(Color.PINK);
-            } else if (game.isCastlingMove(position, move)) {
+            } else if (legalMoves.isCastling(position, move)) {
                 squares[move.getRow()][move.getColumn()].setBackground(Color.BLUE);
+            } else if (game.getExchangeValue(position, move) < 0) {
+                squares[move.getRow()][move.getColumn()].setBackground(Color.ORANGE);
             } else {
                 squares[move.getRow()][move.getColumn()].setBackground(Color.GREEN);
             }
@@ -367,9 +526,60 @@ public class ChessGameGUI extends JFrame {
         boardsMenu.add(greenBoard);
         menuBar.add(boardsMenu);
 
+        JMenu timeMenu = new JMenu("Time Control");
+        JMenuItem untimedItem = new JMenuItem("Untimed");
+        untimedItem.addActionListener(e -> changeTimeControl(null));
+        timeMenu.add(untimedItem);
+        for (String control : new String[]{"1+0", "3+2", "5+0", "10+5", "15d10"}) {
+            JMenuItem item = new JMenuItem(control.contains("d") ? control.replace("d", " delay ") : control);
+            item.addActionListener(e -> changeTimeControl(TimeControl.parse(control)));
+            timeMenu.add(item);
+        }
+        menuBar.add(timeMenu);
+
+        JMenu explorerMenu = new JMenu("Explorer");
+        JMenuItem openTreeItem = new JMenuItem("Open Opening Tree...");
+        JMenuItem closeTreeItem = new JMenuItem("Close Opening Tree");
+        openTreeItem.addActionListener(e -> openOpeningTree());
+        closeTreeItem.addActionListener(e -> closeOpeningTree());
+        explorerMenu.add(openTreeItem);
+        explorerMenu.add(closeTreeItem);
+        menuBar.add(explorerMenu);
+
+        JMenu spectatorMenu = new JMenu("Spectators");
+        JMenuItem hostItem = new JMenuItem("Host on Local Port...");
+        JMenuItem stopHostingItem = new JMenuItem("Stop Hosting");
+        hostItem.addActionListener(e -> hostSpectators());
+        stopHostingItem.addActionListener(e -> stopHostingSpectators());
+        spectatorMenu.add(hostItem);
+        spectatorMenu.add(stopHostingItem);
+        menuBar.add(spectatorMenu);
+
         setJMenuBar(menuBar);
     }
 
+    private void changeTimeControl(TimeControl timeControl) {
+        game.setTimeControl(timeControl);
+        resetGame();
+        updateClock();
+    }
+
+    private void updateClock() {
+        GameClock clock = game.getClock();
+        if (clock == null) {
+            clockLabel.setText("Untimed");
+            return;
+        }
+        clockLabel.setText("White " + GameClock.format(clock.getRemainingMillis(PieceColor.WHITE))
+                + "   Black " + GameClock.format(clock.getRemainingMillis(PieceColor.BLACK)));
+        if (clock.isFlagged(game.getCurrentPlayerColor())) {
+            // Stop ticking while the dialog is up, or every tick would open another one.
+            clockTimer.stop();
+            checkGameOver();
+            clockTimer.start();
+        }
+    }
+
     private void changeTheme(boolean dark) {
         isDarkTheme = dark;
         refreshBoard();
@@ -392,23 +602,60 @@ public class ChessGameGUI extends JFrame {
         }
     }
 
+    private void undoMove() {
+        game.takeback();
+        // Against Stockfish, step back to the human's previous turn rather than handing the move to the engine.
+        if (stockfishColor != null && game.getCurrentPlayerColor() == stockfishColor) {
+            if (!game.takeback()) {
+                game.redo();
+            }
+        }
+        refreshBoard();
+    }
+
+    private void redoMove() {
+        game.redo();
+        if (stockfishColor != null && game.getCurrentPlayerColor() == stockfishColor) {
+            game.redo();
+        }
+        refreshBoard();
+        if (stockfishColor != null && game.getCurrentPlayerColor() == stockfishColor) {
+            SwingUtilities.invokeLater(this::playStockfishMove);
+        }
+    }
+
     private void checkGameOver() {
-        PieceColor currentPlayer = game.getCurrentPlayerColor();
-        if (game.isCheckmate(currentPlayer)) {
+        GameStatus status = game.evaluateStatus();
+        if (status == GameStatus.CHECKMATE) {
             int response = JOptionPane.showConfirmDialog(this, "Checkmate! Would you like to play again?", "Game Over", JOptionPane.YES_NO_OPTION);
             if (response == JOptionPane.YES_OPTION) {
                 resetGame();
             } else {
                 game.closeStockfish();
+                closeJournal();
                 System.exit(0);
             }
-        } else if (game.isStalemate(currentPlayer)) {
+        } else if (status == GameStatus.STALEMATE) {
             JOptionPane.showMessageDialog(this, "Stalemate! The game is a draw.");
             resetGame();
+        } else if (status == GameStatus.DRAW_BY_REPETITION) {
+            JOptionPane.showMessageDialog(this, "Threefold repetition! The game is a draw.");
+            resetGame();
+        } else if (status == GameStatus.DRAW_BY_FIFTY_MOVE_RULE) {
+            JOptionPane.showMessageDialog(this, "Fifty-move rule! The game is a draw.");
+            resetGame();
+        } else if (status == GameStatus.DRAW_BY_INSUFFICIENT_MATERIAL) {
+            JOptionPane.showMessageDialog(this, "Insufficient material! The game is a draw.");
+            resetGame();
+        } else if (status == GameStatus.TIME_FORFEIT) {
+            JOptionPane.showMessageDialog(this, game.getCurrentPlayerColor() + " ran out of time!");
+            resetGame();
         }
     }
 
-    private void promotePawn(Pawn pawn) {
+    // Asked before the move is made, so the model, the snapshot and the engine all see the same piece.
+    // Returns a Move piece type, or 0 if the dialog was cancelled.
+    private int choosePromotion() {
         String[] options = {"Queen", "Rook", "Bishop", "Knight"};
         String selectedOption = (String) JOptionPane.showInputDialog(this,
                 "Choose a piece to promote your pawn to:",
@@ -417,30 +664,18 @@ public class ChessGameGUI extends JFrame {
                 null,
                 options,
                 options[0]);
-
-        if (selectedOption != null) {
-            int row = pawn.getPosition().getRow();
-            int col = pawn.getPosition().getColumn();
-            game.getBoard().setPiece(row, col, null);
-            Piece promotedPiece = null;
-            switch (selectedOption) {
-                case "Queen":
-                    promotedPiece = new Queen(pawn.getColor(), pawn.getPosition());
-                    break;
-                case "Rook":
-                    promotedPiece = new Rook(pawn.getColor(), pawn.getPosition());
-                    break;
-                case "Bishop":
-                    promotedPiece = new Bishop(pawn.getColor(), pawn.getPosition());
-                    break;
-                case "Knight":
-                    promotedPiece = new Knight(pawn.getColor(), pawn.getPosition());
-                    break;
-            }
-            if (promotedPiece != null) {
-                game.getBoard().setPiece(row, col, promotedPiece);
-            }
-            refreshBoard();
+        if (selectedOption == null) {
+            return 0;
+        }
+        switch (selectedOption) {
+            case "Rook":
+                return Move.ROOK;
+            case "Bishop":
+                return Move.BISHOP;
+            case "Knight":
+                return Move.KNIGHT;
+            default:
+                return Move.QUEEN;
         }
     }
 
@@ -452,7 +687,16 @@ public class ChessGameGUI extends JFrame {
     }
 
     private void playStockfishMove() {
+        int plyBefore = game.getCurrentPly();
         game.playStockfishMove();
+        if (game.getCurrentPly() == plyBefore) {
+            // No move came back; retrying from invokeLater would spin forever on a dead engine.
+            if (!game.evaluateStatus().isGameOver()) {
+                JOptionPane.showMessageDialog(this, "The engine did not produce a move (engine state: "
+                        + game.getEngineState() + ").");
+            }
+            return;
+        }
         refreshBoard();
         checkGameState();
         checkGameOver();
@@ -464,10 +708,10 @@ public class ChessGameGUI extends JFrame {
 
     private void showStockfishBestMove() {
         clearHighlights();
-        String stockfishMove = game.getStockfishMove();
-        if (stockfishMove != null && stockfishMove.length() == 4) {
-            Position start = new Position(8 - (stockfishMove.charAt(1) - '0'), stockfishMove.charAt(0) - 'a');
-            Position end = new Position(8 - (stockfishMove.charAt(3) - '0'), stockfishMove.charAt(2) - 'a');
+        int stockfishMove = game.getStockfishMove();
+        if (stockfishMove != Move.NONE) {
+            Position start = Position.of(Move.from(stockfishMove));
+            Position end = Position.of(Move.to(stockfishMove));
             squares[start.getRow()][start.getColumn()].setBackground(Color.YELLOW);
             squares[end.getRow()][end.getColumn()].setBackground(Color.YELLOW);
         } else {
@@ -475,6 +719,41 @@ public class ChessGameGUI extends JFrame {
         }
     }
 
+    private void showTopMoves() {
+        clearHighlights();
+        List<AnalysisResult> candidates = game.getCandidateMoves(3);
+        if (candidates.isEmpty() || candidates.get(0).getBestMove() == null) {
+            JOptionPane.showMessageDialog(this, "No moves to analyze.");
+            return;
+        }
+        Color[] rankColors = {Color.YELLOW, new Color(255, 230, 150), new Color(255, 245, 210)};
+        StringBuilder message = new StringBuilder();
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            String move = candidates.get(i).getBestMove();
+            Position start = Position.fromChessNotation(move, 0);
+            Position end = Position.fromChessNotation(move, 2);
+            squares[start.getRow()][start.getColumn()].setBackground(rankColors[i]);
+            squares[end.getRow()][end.getColumn()].setBackground(rankColors[i]);
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            AnalysisResult line = candidates.get(i);
+            message.append(i + 1).append(". ").append(line.getBestMove()).append("  ").append(line.formatScore())
+                    .append("  ").append(String.join(" ", line.getPrincipalVariation())).append('\n');
+        }
+        JOptionPane.showMessageDialog(this, message.toString());
+    }
+
+    private void showHangingPieces() {
+        clearHighlights();
+        List<Position> hanging = game.getHangingPieces(game.getCurrentPlayerColor());
+        if (hanging.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No hanging pieces.");
+        }
+        for (Position position : hanging) {
+            squares[position.getRow()][position.getColumn()].setBackground(Color.RED);
+        }
+    }
+
     public static void main(String[] args) {
         if (GraphicsEnvironment.isHeadless()) {
             System.out.println("Error: Headless environment detected. GUI cannot be created.");
@@ -0,0 +1,32 @@
+package com.chessgame;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class ChessMetrics {
+    public static final OperationMetrics MOVE_VALIDATION = register("MoveValidation");
+    public static final OperationMetrics LEGAL_MOVE_GENERATION = register("LegalMoveGeneration");
+    public static final OperationMetrics STATUS_EVALUATION = register("StatusEvaluation");
+    public static final OperationMetrics ENGINE_REQUEST = register("EngineRequest");
+    public static final OperationMetrics ENGINE_START = register("EngineStart");
+    public static final OperationMetrics SPECTATOR_PUBLISH = register("SpectatorPublish");
+
+    private ChessMetrics() {
+    }
+
+    private static OperationMetrics register(String name) {
+        OperationMetrics metrics = new OperationMetrics();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.chessgame:type=Metrics,name=" + name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Failed to register metrics MBean " + name + ": " + e.getMessage());
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,111 @@
+package com.chessgame;
+
+import java.util.Arrays;
+
+// Layout shared by CompactGameWriter and CompactGameReader. A game is stored as the result and ply
+// count followed by each move's index in the pseudo-legal move list of the position it was played
+// from; the decoder regenerates the same list while replaying, so an index is all it needs. Pseudo-
+// legal lists skip the make/unmake legality test per candidate, which is most of the cost of a
+// fully legal list, and only the decoded move is checked.
+//
+//   magic (8 bytes) | mode (1) | games...
+//
+// MODE_INDEX: each game is a varint of (plies << 2 | result) and then one byte per move index,
+// taken from EngineBoard.generateMoves order.
+//
+// MODE_RANGE_CODED: everything after the mode byte is one RangeEncoder stream. Instead of the index,
+// the move's rank under a cheap static score is stored; the move actually played is usually near the
+// front, and the rank is coded against an adaptive model. Each game is preceded by a "more games" bit.
+final class CompactGameFormat {
+    static final long MAGIC = 0x434847414D454958L; // "CHGAMEIX"
+    static final int MODE_INDEX = 0;
+    static final int MODE_RANGE_CODED = 1;
+    static final String[] RESULTS = {GameRecord.WHITE_WINS, GameRecord.BLACK_WINS, GameRecord.DRAW, GameRecord.UNKNOWN};
+    static final int INDEX_BITS = 8;
+    static final int BYTE_BITS = 8;
+    private static final int WALK_RANKS = 4;
+
+    private CompactGameFormat() {
+    }
+
+    static int resultCode(String result) {
+        for (int code = 0; code < RESULTS.length; code++) {
+            if (RESULTS[code].equals(result)) {
+                return code;
+            }
+        }
+        throw new IllegalArgumentException("Unknown game result: " + result);
+    }
+
+    // Ranking keys for MODE_RANGE_CODED, best move first. Both sides of the format compute them on
+    // identical move lists, so they only have to be deterministic, not good; they are good enough that
+    // played moves land in the first few ranks most of the time. The generation index in the low bits
+    // breaks ties, so every key in a list is distinct.
+    static void rankKeys(EngineBoard board, int[] moves, int count, int[] keys) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = score(board, moves[i]) << 8 | (255 - i);
+        }
+    }
+
+    static int rankOf(int[] keys, int count, int index) {
+        int rank = 0;
+        for (int i = 0; i < count; i++) {
+            if (keys[i] > keys[index]) {
+                rank++;
+            }
+        }
+        return rank;
+    }
+
+    // Generation index of the move with the given rank, or -1 if there is no such rank. Small ranks,
+    // by far the most common, are found by walking down from the best key; otherwise the keys are
+    // sorted in place and the index read back from the low bits.
+    static int indexAtRank(int[] keys, int count, int rank) {
+        if (rank >= count) {
+            return -1;
+        }
+        if (rank >= WALK_RANKS) {
+            Arrays.sort(keys, 0, count);
+            return 255 - (keys[count - 1 - rank] & 0xFF);
+        }
+        int bound = Integer.MAX_VALUE;
+        int index = -1;
+        for (int r = 0; r <= rank; r++) {
+            index = -1;
+            for (int i = 0; i < count; i++) {
+                if (keys[i] < bound && (index < 0 || keys[i] > keys[index])) {
+                    index = i;
+                }
+            }
+            bound = keys[index];
+        }
+        return index;
+    }
+
+    // Midgame material and piece-square gain for the mover, less the piece's value when it steps
+    // onto a square an enemy pawn attacks.
+    private static int score(EngineBoard board, int move) {
+        int us = board.getSideToMove();
+        int sign = us == EngineBoard.WHITE ? 1 : -1;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = board.pieceAt(from);
+        int type = piece % 6;
+        int gain = Evaluator.MG_TABLE[piece][to] - Evaluator.MG_TABLE[piece][from];
+        if (Move.isEnPassant(move)) {
+            int square = to + (us == EngineBoard.WHITE ? 8 : -8);
+            gain -= Evaluator.MG_TABLE[board.pieceAt(square)][square];
+        } else if (board.pieceAt(to) != EngineBoard.EMPTY) {
+            gain -= Evaluator.MG_TABLE[board.pieceAt(to)][to];
+        }
+        if (Move.promotion(move) != 0) {
+            gain += Evaluator.MG_TABLE[us * 6 + Move.promotion(move)][to] - Evaluator.MG_TABLE[piece][to];
+        }
+        gain *= sign;
+        int enemyPawns = (us ^ 1) * 6 + EngineBoard.PAWN;
+        if (type != EngineBoard.PAWN && (Attacks.PAWN[us][to] & board.getPieces(enemyPawns)) != 0) {
+            gain -= StaticExchange.VALUE[type];
+        }
+        return gain;
+    }
+}
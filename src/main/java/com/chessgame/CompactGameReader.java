@@ -0,0 +1,196 @@
+package com.chessgame;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Streaming decoder for archives written by CompactGameWriter. Games are rebuilt by replaying the
+// stored move indices through the move generator, one game at a time.
+public final class CompactGameReader implements AutoCloseable {
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private final InputStream in;
+    private final RangeDecoder decoder;
+    private final EngineBoard startingPosition = EngineBoard.startingPosition();
+    private final int[] moves = new int[EngineBoard.MAX_MOVES];
+    private final int[] keys = new int[EngineBoard.MAX_MOVES];
+    private final short[] moreGamesModel = RangeEncoder.newModel(1);
+    private final short[] byteModel = RangeEncoder.newModel(CompactGameFormat.BYTE_BITS);
+    private final short[] indexModel = RangeEncoder.newModel(CompactGameFormat.INDEX_BITS);
+    private boolean finished;
+
+    public CompactGameReader(InputStream in) throws IOException {
+        this.in = in;
+        DataInputStream header = new DataInputStream(in);
+        if (header.readLong() != CompactGameFormat.MAGIC) {
+            throw new IOException("Not a compact game archive");
+        }
+        int mode = header.readUnsignedByte();
+        if (mode != CompactGameFormat.MODE_INDEX && mode != CompactGameFormat.MODE_RANGE_CODED) {
+            throw new IOException("Unknown compact game archive mode " + mode);
+        }
+        decoder = mode == CompactGameFormat.MODE_RANGE_CODED ? new RangeDecoder(in) : null;
+    }
+
+    public static CompactGameReader open(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), IO_BUFFER_BYTES);
+        try {
+            return new CompactGameReader(in);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    public static boolean isCompactArchive(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            return in.readLong() == CompactGameFormat.MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    // The next game, or null once the archive is exhausted.
+    public GameRecord next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        long header;
+        if (decoder == null) {
+            int first = in.read();
+            if (first < 0) {
+                finished = true;
+                return null;
+            }
+            header = readVarLong(first);
+        } else {
+            if (decoder.decodeBit(moreGamesModel, 0) == 0) {
+                finished = true;
+                return null;
+            }
+            header = readVarLong(decoder.decodeTree(byteModel, CompactGameFormat.BYTE_BITS));
+        }
+        int result = (int) (header & 3);
+        long plies = header >>> 2;
+        List<String> uciMoves = new ArrayList<>((int) Math.min(plies, 1024));
+        EngineBoard board = startingPosition.copy();
+        for (long ply = 0; ply < plies; ply++) {
+            int count = board.generateMoves(moves, false);
+            int index = readIndex();
+            if (decoder != null) {
+                CompactGameFormat.rankKeys(board, moves, count, keys);
+                index = CompactGameFormat.indexAtRank(keys, count, index);
+            }
+            if (index < 0 || index >= count) {
+                throw new IOException("Corrupt compact game archive: no move " + index + " of " + count + " at ply " + ply);
+            }
+            int move = moves[index];
+            int mover = board.getSideToMove();
+            board.makeMove(move);
+            if (board.isSquareAttacked(board.getKingSquare(mover), mover ^ 1)) {
+                throw new IOException("Corrupt compact game archive: illegal move " + Move.toUci(move) + " at ply " + ply);
+            }
+            uciMoves.add(Move.toUci(move));
+        }
+        return new GameRecord(CompactGameFormat.RESULTS[result], uciMoves);
+    }
+
+    private int readIndex() throws IOException {
+        if (decoder != null) {
+            return decoder.decodeTree(indexModel, CompactGameFormat.INDEX_BITS);
+        }
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException("Compact game archive is truncated");
+        }
+        return value;
+    }
+
+    private long readVarLong(int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int next = first;
+        while ((next & 0x80) != 0) {
+            if (shift > 56) {
+                throw new IOException("Corrupt compact game archive: game header too long");
+            }
+            next = decoder == null ? in.read() : decoder.decodeTree(byteModel, CompactGameFormat.BYTE_BITS);
+            if (next < 0) {
+                throw new EOFException("Compact game archive is truncated");
+            }
+            value |= (long) (next & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    // Lazily streams the remaining games; closing the stream closes the reader.
+    public Stream<GameRecord> stream() {
+        Iterator<GameRecord> games = new Iterator<>() {
+            private GameRecord pending;
+
+            @Override
+            public boolean hasNext() {
+                if (pending == null) {
+                    try {
+                        pending = CompactGameReader.this.next();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return pending != null;
+            }
+
+            @Override
+            public GameRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                GameRecord game = pending;
+                pending = null;
+                return game;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(games, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Usage: CompactGameReader <compact archive>
+    // Prints the archive in GameRecord's text format.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CompactGameReader <compact archive>");
+            return;
+        }
+        try (CompactGameReader reader = open(Paths.get(args[0]))) {
+            for (GameRecord game = reader.next(); game != null; game = reader.next()) {
+                System.out.println(game.toLine());
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.chessgame;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Streaming encoder for the compact archive format described in CompactGameFormat. Each game is
+// replayed through the move generator and stored as move list indices: a byte per move
+// uncompressed, and a few bits per move when range coded, against roughly five bytes of UCI text.
+public final class CompactGameWriter implements AutoCloseable {
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private final OutputStream out;
+    private final RangeEncoder encoder;
+    private final EngineBoard startingPosition = EngineBoard.startingPosition();
+    private final int[] moves = new int[EngineBoard.MAX_MOVES];
+    private final int[] keys = new int[EngineBoard.MAX_MOVES];
+    private final short[] moreGamesModel = RangeEncoder.newModel(1);
+    private final short[] byteModel = RangeEncoder.newModel(CompactGameFormat.BYTE_BITS);
+    private final short[] indexModel = RangeEncoder.newModel(CompactGameFormat.INDEX_BITS);
+    // Stored index or rank per ply of the game being written.
+    private int[] indices = new int[256];
+    private long gamesWritten;
+    private long movesWritten;
+    private boolean closed;
+
+    public CompactGameWriter(OutputStream out, boolean rangeCoded) throws IOException {
+        this.out = out;
+        int mode = rangeCoded ? CompactGameFormat.MODE_RANGE_CODED : CompactGameFormat.MODE_INDEX;
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeLong(CompactGameFormat.MAGIC);
+        header.writeByte(mode);
+        this.encoder = rangeCoded ? new RangeEncoder(out) : null;
+    }
+
+    public static CompactGameWriter create(Path path, boolean rangeCoded) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_BYTES);
+        try {
+            return new CompactGameWriter(out, rangeCoded);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    // Throws IllegalArgumentException, leaving the output untouched, if the result is not one of
+    // GameRecord's tokens or a move is not legal.
+    public void write(GameRecord game) throws IOException {
+        int result = CompactGameFormat.resultCode(game.getResult());
+        List<String> uciMoves = game.getMoves();
+        int plies = uciMoves.size();
+        if (plies > indices.length) {
+            indices = Arrays.copyOf(indices, Math.max(plies, indices.length * 2));
+        }
+        EngineBoard board = startingPosition.copy();
+        for (int ply = 0; ply < plies; ply++) {
+            int count = board.generateMoves(moves, false);
+            int move = board.parseUciMove(uciMoves.get(ply));
+            int index = 0;
+            while (index < count && moves[index] != move) {
+                index++;
+            }
+            if (move == Move.NONE || index == count) {
+                throw new IllegalArgumentException("Illegal move " + uciMoves.get(ply) + " at ply " + ply);
+            }
+            if (encoder == null) {
+                indices[ply] = index;
+            } else {
+                CompactGameFormat.rankKeys(board, moves, count, keys);
+                indices[ply] = CompactGameFormat.rankOf(keys, count, index);
+            }
+            board.makeMove(move);
+        }
+
+        long header = (long) plies << 2 | result;
+        if (encoder == null) {
+            writeVarLong(header);
+            for (int ply = 0; ply < plies; ply++) {
+                out.write(indices[ply]);
+            }
+        } else {
+            encoder.encodeBit(moreGamesModel, 0, 1);
+            writeVarLong(header);
+            for (int ply = 0; ply < plies; ply++) {
+                encoder.encodeTree(indexModel, CompactGameFormat.INDEX_BITS, indices[ply]);
+            }
+        }
+        gamesWritten++;
+        movesWritten += plies;
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while (true) {
+            int bits = (int) (value & 0x7F);
+            value >>>= 7;
+            int next = value == 0 ? bits : bits | 0x80;
+            if (encoder == null) {
+                out.write(next);
+            } else {
+                encoder.encodeTree(byteModel, CompactGameFormat.BYTE_BITS, next);
+            }
+            if (value == 0) {
+                return;
+            }
+        }
+    }
+
+    public long getGamesWritten() {
+        return gamesWritten;
+    }
+
+    public long getMovesWritten() {
+        return movesWritten;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (encoder != null) {
+                encoder.encodeBit(moreGamesModel, 0, 0);
+                encoder.flush();
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    // Usage: CompactGameWriter <archive> <output> [--raw]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompactGameWriter <archive> <output> [--raw]");
+            return;
+        }
+        boolean rangeCoded = !(args.length > 2 && args[2].equals("--raw"));
+        long skipped = 0;
+        long start = System.nanoTime();
+        try (Stream<GameRecord> games = GameRecord.readArchive(Paths.get(args[0]))) {
+            CompactGameWriter writer = create(Paths.get(args[1]), rangeCoded);
+            // Closed before the sizes are read, so the output is complete on disk.
+            try (writer) {
+                Iterator<GameRecord> source = games.iterator();
+                while (source.hasNext()) {
+                    GameRecord game = source.next();
+                    try {
+                        writer.write(game);
+                    } catch (IllegalArgumentException e) {
+                        skipped++;
+                        System.err.println("Game " + (writer.getGamesWritten() + skipped) + ": " + e.getMessage());
+                    }
+                }
+            }
+            long inputBytes = Files.size(Paths.get(args[0]));
+            long outputBytes = Files.size(Paths.get(args[1]));
+            System.out.printf("Games: %d, skipped: %d, moves: %d%n", writer.getGamesWritten(), skipped,
+                    writer.getMovesWritten());
+            System.out.printf("%d -> %d bytes (%.2f bits per move, %.1fx) in %d ms%n", inputBytes, outputBytes,
+                    outputBytes * 8.0 / Math.max(1, writer.getMovesWritten()), (double) inputBytes / outputBytes,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
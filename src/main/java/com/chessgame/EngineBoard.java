@@ -0,0 +1,649 @@
+package com.chessgame;
+
+import java.util.Arrays;
+
+// Compact mutable position for search and replay. Unlike ChessBoard it supports make/unmake and
+// keeps the hash and the material + piece-square accumulators up to date on every change.
+// Colors are 0 for White and 1 for Black; piece indexes follow Zobrist (color * 6 + type).
+public class EngineBoard {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    public static final int EMPTY = -1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int MAX_MOVES = 256;
+    private static final String SAN_PIECES = " NBRQK";
+
+    private static final long[] CASTLING_KEYS = new long[16];
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        for (int rights = 0; rights < 16; rights++) {
+            for (int i = 0; i < 4; i++) {
+                if ((rights & (1 << i)) != 0) {
+                    CASTLING_KEYS[rights] ^= Zobrist.CASTLING[i];
+                }
+            }
+        }
+        Arrays.fill(CASTLING_MASK, 15);
+        CASTLING_MASK[60] &= ~(PositionSnapshot.WHITE_KINGSIDE | PositionSnapshot.WHITE_QUEENSIDE);
+        CASTLING_MASK[63] &= ~PositionSnapshot.WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~PositionSnapshot.WHITE_QUEENSIDE;
+        CASTLING_MASK[4] &= ~(PositionSnapshot.BLACK_KINGSIDE | PositionSnapshot.BLACK_QUEENSIDE);
+        CASTLING_MASK[7] &= ~PositionSnapshot.BLACK_KINGSIDE;
+        CASTLING_MASK[0] &= ~PositionSnapshot.BLACK_QUEENSIDE;
+    }
+
+    private final int[] mailbox = new int[64];
+    private final long[] pieces = new long[12];
+    private final long[] occupancy = new long[2];
+    private int sideToMove;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private long hash;
+    private int midgameScore;
+    private int endgameScore;
+    private int phase;
+    private NnueAccumulator accumulator;
+
+    private int ply;
+    private int[] undoCaptured = new int[64];
+    private int[] undoCastling = new int[64];
+    private int[] undoEnPassant = new int[64];
+    private int[] undoHalfmove = new int[64];
+    private long[] undoHash = new long[64];
+    private final int[] parseBuffer = new int[MAX_MOVES];
+    private final int[] sanBuffer = new int[MAX_MOVES];
+    private final StringBuilder sanScratch = new StringBuilder(8);
+
+    private EngineBoard() {
+        Arrays.fill(mailbox, EMPTY);
+    }
+
+    public static EngineBoard startingPosition() {
+        return fromFen(PositionSnapshot.STARTING_FEN);
+    }
+
+    public static EngineBoard fromFen(String fen) {
+        return fromSnapshot(PositionSnapshot.fromFen(fen));
+    }
+
+    public static EngineBoard fromSnapshot(PositionSnapshot snapshot) {
+        EngineBoard board = new EngineBoard();
+        for (int square = 0; square < 64; square++) {
+            int piece = snapshot.pieceIndexAt(square);
+            if (piece != EMPTY) {
+                board.putPiece(piece, square);
+            }
+        }
+        board.sideToMove = snapshot.getSideToMove() == PieceColor.WHITE ? WHITE : BLACK;
+        board.castlingRights = snapshot.getCastlingRights();
+        board.enPassantSquare = snapshot.getEnPassantSquare();
+        board.halfmoveClock = snapshot.getHalfmoveClock();
+        board.fullmoveNumber = snapshot.getFullmoveNumber();
+        board.hash = snapshot.getHash();
+        return board;
+    }
+
+    public PositionSnapshot toSnapshot() {
+        return new PositionSnapshot(pieces, sideToMove == WHITE ? PieceColor.WHITE : PieceColor.BLACK,
+                castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber, hash);
+    }
+
+    public String toFen() {
+        return toSnapshot().toFen();
+    }
+
+    public EngineBoard copy() {
+        EngineBoard copy = fromSnapshot(toSnapshot());
+        if (accumulator != null) {
+            copy.attachNetwork(accumulator.getNetwork());
+        }
+        return copy;
+    }
+
+    // From now on every piece change also updates the network's accumulator; null detaches it.
+    public void attachNetwork(NnueNetwork network) {
+        accumulator = network == null ? null : new NnueAccumulator(network, this);
+    }
+
+    NnueAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    private void putPiece(int piece, int square) {
+        long bit = 1L << square;
+        mailbox[square] = piece;
+        pieces[piece] |= bit;
+        occupancy[piece / 6] |= bit;
+        hash ^= Zobrist.PIECE_SQUARE[piece][square];
+        midgameScore += Evaluator.MG_TABLE[piece][square];
+        endgameScore += Evaluator.EG_TABLE[piece][square];
+        phase += Evaluator.PHASE_WEIGHT[piece % 6];
+        if (accumulator != null) {
+            accumulator.add(piece, square);
+        }
+    }
+
+    private int removePiece(int square) {
+        int piece = mailbox[square];
+        long bit = 1L << square;
+        mailbox[square] = EMPTY;
+        pieces[piece] &= ~bit;
+        occupancy[piece / 6] &= ~bit;
+        hash ^= Zobrist.PIECE_SQUARE[piece][square];
+        midgameScore -= Evaluator.MG_TABLE[piece][square];
+        endgameScore -= Evaluator.EG_TABLE[piece][square];
+        phase -= Evaluator.PHASE_WEIGHT[piece % 6];
+        if (accumulator != null) {
+            accumulator.remove(piece, square);
+        }
+        return piece;
+    }
+
+    private void movePiece(int from, int to) {
+        putPiece(removePiece(from), to);
+    }
+
+    private void saveState() {
+        if (ply == undoHash.length) {
+            int size = ply * 2;
+            undoCaptured = Arrays.copyOf(undoCaptured, size);
+            undoCastling = Arrays.copyOf(undoCastling, size);
+            undoEnPassant = Arrays.copyOf(undoEnPassant, size);
+            undoHalfmove = Arrays.copyOf(undoHalfmove, size);
+            undoHash = Arrays.copyOf(undoHash, size);
+        }
+        undoCastling[ply] = castlingRights;
+        undoEnPassant[ply] = enPassantSquare;
+        undoHalfmove[ply] = halfmoveClock;
+        undoHash[ply] = hash;
+    }
+
+    public void makeMove(int move) {
+        saveState();
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int movingType = mailbox[from] % 6;
+        int captured = EMPTY;
+
+        if (enPassantSquare >= 0) {
+            hash ^= Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+            enPassantSquare = -1;
+        }
+        if (Move.isEnPassant(move)) {
+            captured = removePiece(to + (sideToMove == WHITE ? 8 : -8));
+        } else if (mailbox[to] != EMPTY) {
+            captured = removePiece(to);
+        }
+        movePiece(from, to);
+
+        if (Move.promotion(move) != 0) {
+            removePiece(to);
+            putPiece(sideToMove * 6 + Move.promotion(move), to);
+        } else if (Move.isCastling(move)) {
+            movePiece(castlingRookFrom(to), castlingRookTo(to));
+        } else if (Move.isDoublePush(move)) {
+            int target = (from + to) / 2;
+            // Only record en passant when it can actually be taken, the same rule ChessBoard uses for hashing.
+            if ((Attacks.PAWN[sideToMove][target] & pieces[(sideToMove ^ 1) * 6 + PAWN]) != 0) {
+                enPassantSquare = target;
+                hash ^= Zobrist.EN_PASSANT_FILE[target & 7];
+            }
+        }
+
+        hash ^= CASTLING_KEYS[castlingRights];
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        hash ^= CASTLING_KEYS[castlingRights];
+
+        halfmoveClock = (movingType == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        undoCaptured[ply] = captured;
+        ply++;
+        sideToMove ^= 1;
+        hash ^= Zobrist.SIDE_TO_MOVE;
+    }
+
+    public void unmakeMove(int move) {
+        ply--;
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.promotion(move) != 0) {
+            removePiece(to);
+            putPiece(sideToMove * 6 + PAWN, to);
+        } else if (Move.isCastling(move)) {
+            movePiece(castlingRookTo(to), castlingRookFrom(to));
+        }
+        movePiece(to, from);
+
+        int captured = undoCaptured[ply];
+        if (captured != EMPTY) {
+            putPiece(captured, Move.isEnPassant(move) ? to + (sideToMove == WHITE ? 8 : -8) : to);
+        }
+
+        castlingRights = undoCastling[ply];
+        enPassantSquare = undoEnPassant[ply];
+        halfmoveClock = undoHalfmove[ply];
+        hash = undoHash[ply];
+    }
+
+    public void makeNullMove() {
+        saveState();
+        undoCaptured[ply] = EMPTY;
+        if (enPassantSquare >= 0) {
+            hash ^= Zobrist.EN_PASSANT_FILE[enPassantSquare & 7];
+            enPassantSquare = -1;
+        }
+        halfmoveClock++;
+        ply++;
+        sideToMove ^= 1;
+        hash ^= Zobrist.SIDE_TO_MOVE;
+    }
+
+    public void unmakeNullMove() {
+        ply--;
+        sideToMove ^= 1;
+        enPassantSquare = undoEnPassant[ply];
+        halfmoveClock = undoHalfmove[ply];
+        hash = undoHash[ply];
+    }
+
+    private static int castlingRookFrom(int kingTo) {
+        return kingTo == 62 ? 63 : kingTo == 58 ? 56 : kingTo == 6 ? 7 : 0;
+    }
+
+    private static int castlingRookTo(int kingTo) {
+        return kingTo == 62 ? 61 : kingTo == 58 ? 59 : kingTo == 6 ? 5 : 3;
+    }
+
+    public boolean isSquareAttacked(int square, int byColor) {
+        long occupied = occupancy[0] | occupancy[1];
+        int offset = byColor * 6;
+        return (Attacks.PAWN[byColor ^ 1][square] & pieces[offset + PAWN]) != 0
+                || (Attacks.KNIGHT[square] & pieces[offset + KNIGHT]) != 0
+                || (Attacks.KING[square] & pieces[offset + KING]) != 0
+                || (Attacks.bishop(square, occupied) & (pieces[offset + BISHOP] | pieces[offset + QUEEN])) != 0
+                || (Attacks.rook(square, occupied) & (pieces[offset + ROOK] | pieces[offset + QUEEN])) != 0;
+    }
+
+    // Attackers of both colors, computed against the given occupancy so callers can peel pieces away.
+    public long attackersTo(int square, long occupied) {
+        long bishopsQueens = pieces[BISHOP] | pieces[QUEEN] | pieces[6 + BISHOP] | pieces[6 + QUEEN];
+        long rooksQueens = pieces[ROOK] | pieces[QUEEN] | pieces[6 + ROOK] | pieces[6 + QUEEN];
+        return (Attacks.PAWN[BLACK][square] & pieces[PAWN])
+                | (Attacks.PAWN[WHITE][square] & pieces[6 + PAWN])
+                | (Attacks.KNIGHT[square] & (pieces[KNIGHT] | pieces[6 + KNIGHT]))
+                | (Attacks.KING[square] & (pieces[KING] | pieces[6 + KING]))
+                | (Attacks.bishop(square, occupied) & bishopsQueens)
+                | (Attacks.rook(square, occupied) & rooksQueens);
+    }
+
+    public boolean isInCheck() {
+        return isSquareAttacked(getKingSquare(sideToMove), sideToMove ^ 1);
+    }
+
+    public boolean isLegal(int move) {
+        int mover = sideToMove;
+        makeMove(move);
+        boolean legal = !isSquareAttacked(getKingSquare(mover), mover ^ 1);
+        unmakeMove(move);
+        return legal;
+    }
+
+    public int generateLegalMoves(int[] moves) {
+        int count = generateMoves(moves, false);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i])) {
+                moves[legal++] = moves[i];
+            }
+        }
+        return legal;
+    }
+
+    // Matches UCI text such as "e2e4" or "e7e8q" against the moves available here; Move.NONE if it is not legal.
+    public int parseUciMove(CharSequence uci) {
+        if (uci.length() < 4 || uci.length() > 5) {
+            return Move.NONE;
+        }
+        int from = parseSquare(uci, 0);
+        int to = parseSquare(uci, 2);
+        int promotion = uci.length() == 5 ? "nbrq".indexOf(uci.charAt(4)) + 1 : 0;
+        if (from < 0 || to < 0 || (uci.length() == 5 && promotion == 0)) {
+            return Move.NONE;
+        }
+        int count = generateMoves(parseBuffer, false);
+        for (int i = 0; i < count; i++) {
+            int move = parseBuffer[i];
+            if (Move.from(move) == from && Move.to(move) == to && Move.promotion(move) == promotion) {
+                return isLegal(move) ? move : Move.NONE;
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Standard algebraic notation such as "Nbd7", "exd5", "e8=Q+" or "O-O-O", with the check or mate suffix.
+    public StringBuilder appendSan(int move, StringBuilder out) {
+        appendSanBody(move, out);
+        makeMove(move);
+        if (isInCheck()) {
+            out.append(generateLegalMoves(parseBuffer) == 0 ? '#' : '+');
+        }
+        unmakeMove(move);
+        return out;
+    }
+
+    private void appendSanBody(int move, StringBuilder out) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = mailbox[from] % 6;
+        if (Move.isCastling(move)) {
+            out.append((to & 7) == 6 ? "O-O" : "O-O-O");
+            return;
+        }
+        if (type == PAWN) {
+            if (Move.isCapture(move)) {
+                out.append((char) ('a' + (from & 7))).append('x');
+            }
+            Move.appendSquare(to, out);
+            if (Move.promotion(move) != 0) {
+                out.append('=').append(SAN_PIECES.charAt(Move.promotion(move)));
+            }
+            return;
+        }
+        out.append(SAN_PIECES.charAt(type));
+        boolean ambiguous = false;
+        boolean sharesFile = false;
+        boolean sharesRank = false;
+        int count = generateLegalMoves(parseBuffer);
+        for (int i = 0; i < count; i++) {
+            int other = Move.from(parseBuffer[i]);
+            if (Move.to(parseBuffer[i]) == to && other != from && mailbox[other] == mailbox[from]) {
+                ambiguous = true;
+                sharesFile |= (other & 7) == (from & 7);
+                sharesRank |= (other >>> 3) == (from >>> 3);
+            }
+        }
+        if (ambiguous) {
+            if (!sharesFile) {
+                out.append((char) ('a' + (from & 7)));
+            } else if (!sharesRank) {
+                out.append((char) ('8' - (from >>> 3)));
+            } else {
+                Move.appendSquare(from, out);
+            }
+        }
+        if (Move.isCapture(move)) {
+            out.append('x');
+        }
+        Move.appendSquare(to, out);
+    }
+
+    // Matches algebraic notation against the moves available here; Move.NONE if nothing matches. Capture,
+    // promotion and check marks are optional, and "0-0" is accepted for "O-O".
+    public int parseSanMove(CharSequence san) {
+        int destination = -1;
+        for (int i = san.length() - 2; i >= 0 && destination < 0; i--) {
+            destination = parseSquare(san, i);
+        }
+        int count = generateLegalMoves(sanBuffer);
+        for (int i = 0; i < count; i++) {
+            int move = sanBuffer[i];
+            if (!Move.isCastling(move) && Move.to(move) != destination) {
+                continue;
+            }
+            sanScratch.setLength(0);
+            appendSanBody(move, sanScratch);
+            if (sanMatches(sanScratch, san)) {
+                return move;
+            }
+        }
+        return parseOverqualifiedSan(san, destination, count);
+    }
+
+    // Fallback for piece moves that name more of the origin square than needed, such as "Rad1" or "Qh5e2".
+    private int parseOverqualifiedSan(CharSequence san, int destination, int count) {
+        int type = san.length() > 0 ? SAN_PIECES.indexOf(san.charAt(0)) : -1;
+        if (type < KNIGHT || destination < 0) {
+            return Move.NONE;
+        }
+        int end = san.length() - 2;
+        while (parseSquare(san, end) != destination) {
+            end--;
+        }
+        int file = -1;
+        int rank = -1;
+        for (int i = 1; i < end; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                file = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                rank = '8' - c;
+            }
+        }
+        int found = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = sanBuffer[i];
+            int from = Move.from(move);
+            if (Move.to(move) == destination && mailbox[from] % 6 == type && (file < 0 || (from & 7) == file)
+                    && (rank < 0 || (from >>> 3) == rank)) {
+                if (found != Move.NONE) {
+                    return Move.NONE;
+                }
+                found = move;
+            }
+        }
+        return found;
+    }
+
+    private static boolean sanMatches(CharSequence canonical, CharSequence text) {
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < canonical.length() && isSanDecoration(canonical.charAt(i))) {
+                i++;
+            }
+            while (j < text.length() && isSanDecoration(text.charAt(j))) {
+                j++;
+            }
+            if (i == canonical.length() || j == text.length()) {
+                return i == canonical.length() && j == text.length();
+            }
+            char c = text.charAt(j) == '0' ? 'O' : text.charAt(j);
+            if (canonical.charAt(i) != c) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+    }
+
+    private static boolean isSanDecoration(char c) {
+        return c == 'x' || c == '=' || c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    private static int parseSquare(CharSequence text, int offset) {
+        int file = text.charAt(offset) - 'a';
+        int rank = text.charAt(offset + 1) - '1';
+        return file < 0 || file > 7 || rank < 0 || rank > 7 ? -1 : (7 - rank) * 8 + file;
+    }
+
+    // Pseudo-legal moves; with capturesOnly, just captures and queen promotions for quiescence search.
+    public int generateMoves(int[] moves, boolean capturesOnly) {
+        int count = 0;
+        int us = sideToMove;
+        int them = us ^ 1;
+        long own = occupancy[us];
+        long enemy = occupancy[them];
+        long occupied = own | enemy;
+        long targets = capturesOnly ? enemy : ~own;
+
+        long pawns = pieces[us * 6 + PAWN];
+        int forward = us == WHITE ? -8 : 8;
+        int promotionRow = us == WHITE ? 0 : 7;
+        int startRow = us == WHITE ? 6 : 1;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int to = from + forward;
+            if (mailbox[to] == EMPTY) {
+                if (to / 8 == promotionRow) {
+                    count = addPromotions(moves, count, from, to, 0, capturesOnly);
+                } else if (!capturesOnly) {
+                    moves[count++] = Move.of(from, to, 0, 0);
+                    if (from / 8 == startRow && mailbox[to + forward] == EMPTY) {
+                        moves[count++] = Move.of(from, to + forward, 0, Move.DOUBLE_PUSH);
+                    }
+                }
+            }
+            long captures = Attacks.PAWN[us][from] & enemy;
+            while (captures != 0) {
+                int target = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if (target / 8 == promotionRow) {
+                    count = addPromotions(moves, count, from, target, Move.CAPTURE, false);
+                } else {
+                    moves[count++] = Move.of(from, target, 0, Move.CAPTURE);
+                }
+            }
+            if (enPassantSquare >= 0 && (Attacks.PAWN[us][from] & (1L << enPassantSquare)) != 0) {
+                moves[count++] = Move.of(from, enPassantSquare, 0, Move.CAPTURE | Move.EN_PASSANT);
+            }
+        }
+
+        for (int type = KNIGHT; type <= KING; type++) {
+            long movers = pieces[us * 6 + type];
+            while (movers != 0) {
+                int from = Long.numberOfTrailingZeros(movers);
+                movers &= movers - 1;
+                long attacks = Evaluator.attacksOf(type, from, occupied) & targets;
+                while (attacks != 0) {
+                    int to = Long.numberOfTrailingZeros(attacks);
+                    attacks &= attacks - 1;
+                    moves[count++] = Move.of(from, to, 0, mailbox[to] != EMPTY ? Move.CAPTURE : 0);
+                }
+            }
+        }
+
+        if (!capturesOnly && castlingRights != 0) {
+            count = addCastling(moves, count, occupied);
+        }
+        return count;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to, int flags, boolean queenOnly) {
+        moves[count++] = Move.of(from, to, Move.QUEEN, flags);
+        if (!queenOnly) {
+            moves[count++] = Move.of(from, to, Move.ROOK, flags);
+            moves[count++] = Move.of(from, to, Move.BISHOP, flags);
+            moves[count++] = Move.of(from, to, Move.KNIGHT, flags);
+        }
+        return count;
+    }
+
+    private int addCastling(int[] moves, int count, long occupied) {
+        int them = sideToMove ^ 1;
+        int kingSquare = sideToMove == WHITE ? 60 : 4;
+        int kingside = sideToMove == WHITE ? PositionSnapshot.WHITE_KINGSIDE : PositionSnapshot.BLACK_KINGSIDE;
+        int queenside = sideToMove == WHITE ? PositionSnapshot.WHITE_QUEENSIDE : PositionSnapshot.BLACK_QUEENSIDE;
+        if ((castlingRights & (kingside | queenside)) == 0 || isSquareAttacked(kingSquare, them)) {
+            return count;
+        }
+        if ((castlingRights & kingside) != 0 && (occupied & (3L << (kingSquare + 1))) == 0
+                && !isSquareAttacked(kingSquare + 1, them)) {
+            moves[count++] = Move.of(kingSquare, kingSquare + 2, 0, Move.CASTLING);
+        }
+        if ((castlingRights & queenside) != 0 && (occupied & (7L << (kingSquare - 3))) == 0
+                && !isSquareAttacked(kingSquare - 1, them)) {
+            moves[count++] = Move.of(kingSquare, kingSquare - 2, 0, Move.CASTLING);
+        }
+        return count;
+    }
+
+    // True if the current position already occurred since the last irreversible move.
+    public boolean isRepetition() {
+        for (int i = ply - 2; i >= 0 && i >= ply - halfmoveClock; i -= 2) {
+            if (undoHash[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int pieceAt(int square) {
+        return mailbox[square];
+    }
+
+    public long getPieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long getOccupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long getOccupied() {
+        return occupancy[0] | occupancy[1];
+    }
+
+    public int getKingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[color * 6 + KING]);
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
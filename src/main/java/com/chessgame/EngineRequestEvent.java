@@ -0,0 +1,17 @@
+package com.chessgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.chessgame.EngineRequest")
+@Label("Engine Request")
+@Category({"Chess", "Engine"})
+public class EngineRequestEvent extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("Response")
+    String response;
+}
@@ -0,0 +1,17 @@
+package com.chessgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.chessgame.EngineStart")
+@Label("Engine Start")
+@Category({"Chess", "Engine"})
+public class EngineStartEvent extends Event {
+    @Label("Executable")
+    String executable;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,9 @@
+package com.chessgame;
+
+public enum EngineState {
+    STARTING,
+    READY,
+    RESTARTING,
+    // Restarts were exhausted; the engine will not answer again until it is replaced.
+    FAILED
+}
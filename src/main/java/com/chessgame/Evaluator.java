@@ -0,0 +1,322 @@
+package com.chessgame;
+
+import java.util.Arrays;
+
+// Tapered static evaluation. Material and piece-square terms are kept incrementally by EngineBoard;
+// mobility and king safety depend on the whole position and are computed here on demand.
+public final class Evaluator {
+    static final int MAX_PHASE = 24;
+    static final int[] PHASE_WEIGHT = {0, 1, 1, 2, 4, 0};
+
+    private static final int[] MG_MATERIAL = {82, 337, 365, 477, 1025, 0};
+    private static final int[] EG_MATERIAL = {94, 281, 297, 512, 936, 0};
+
+    // Tables are written from White's side with a8 first, which matches the square numbering directly.
+    private static final int[][] MG_PST = {
+        {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             98, 134,  61,  95,  68, 126,  34, -11,
+             -6,   7,  26,  31,  65,  56,  25, -20,
+            -14,  13,   6,  21,  23,  12,  17, -23,
+            -27,  -2,  -5,  12,  17,   6,  10, -25,
+            -26,  -4,  -4, -10,   3,   3,  33, -12,
+            -35,  -1, -20, -23, -15,  24,  38, -22,
+              0,   0,   0,   0,   0,   0,   0,   0,
+        },
+        {
+            -167, -89, -34, -49,  61, -97, -15, -107,
+             -73, -41,  72,  36,  23,  62,   7,  -17,
+             -47,  60,  37,  65,  84, 129,  73,   44,
+              -9,  17,  19,  53,  37,  69,  18,   22,
+             -13,   4,  16,  13,  28,  19,  21,   -8,
+             -23,  -9,  12,  10,  19,  17,  25,  -16,
+             -29, -53, -12,  -3,  -1,  18, -14,  -19,
+            -105, -21, -58, -33, -17, -28, -19,  -23,
+        },
+        {
+            -29,   4, -82, -37, -25, -42,   7,  -8,
+            -26,  16, -18, -13,  30,  59,  18, -47,
+            -16,  37,  43,  40,  35,  50,  37,  -2,
+             -4,   5,  19,  50,  37,  37,   7,  -2,
+             -6,  13,  13,  26,  34,  12,  10,   4,
+              0,  15,  15,  15,  14,  27,  18,  10,
+              4,  15,  16,   0,   7,  21,  33,   1,
+            -33,  -3, -14, -21, -13, -12, -39, -21,
+        },
+        {
+             32,  42,  32,  51,  63,   9,  31,  43,
+             27,  32,  58,  62,  80,  67,  26,  44,
+             -5,  19,  26,  36,  17,  45,  61,  16,
+            -24, -11,   7,  26,  24,  35,  -8, -20,
+            -36, -26, -12,  -1,   9,  -7,   6, -23,
+            -45, -25, -16, -17,   3,   0,  -5, -33,
+            -44, -16, -20,  -9,  -1,  11,  -6, -71,
+            -19, -13,   1,  17,  16,   7, -37, -26,
+        },
+        {
+            -28,   0,  29,  12,  59,  44,  43,  45,
+            -24, -39,  -5,   1, -16,  57,  28,  54,
+            -13, -17,   7,   8,  29,  56,  47,  57,
+            -27, -27, -16, -16,  -1,  17,  -2,   1,
+             -9, -26,  -9, -10,  -2,  -4,   3,  -3,
+            -14,   2, -11,  -2,  -5,   2,  14,   5,
+            -35,  -8,  11,   2,   8,  15,  -3,   1,
+             -1, -18,  -9,  10, -15, -25, -31, -50,
+        },
+        {
+            -65,  23,  16, -15, -56, -34,   2,  13,
+             29,  -1, -20,  -7,  -8,  -4, -38, -29,
+             -9,  24,   2, -16, -20,   6,  22, -22,
+            -17, -20, -12, -27, -30, -25, -14, -36,
+            -49,  -1, -27, -39, -46, -44, -33, -51,
+            -14, -14, -22, -46, -44, -30, -15, -27,
+              1,   7,  -8, -64, -43, -16,   9,   8,
+            -15,  36,  12, -54,   8, -28,  24,  14,
+        },
+    };
+
+    private static final int[][] EG_PST = {
+        {
+              0,   0,   0,   0,   0,   0,   0,   0,
+            178, 173, 158, 134, 147, 132, 165, 187,
+             94, 100,  85,  67,  56,  53,  82,  84,
+             32,  24,  13,   5,  -2,   4,  17,  17,
+             13,   9,  -3,  -7,  -7,  -8,   3,  -1,
+              4,   7,  -6,   1,   0,  -5,  -1,  -8,
+             13,   8,   8,  10,  13,   0,   2,  -7,
+              0,   0,   0,   0,   0,   0,   0,   0,
+        },
+        {
+            -58, -38, -13, -28, -31, -27, -63, -99,
+            -25,  -8, -25,  -2,  -9, -25, -24, -52,
+            -24, -20,  10,   9,  -1,  -9, -19, -41,
+            -17,   3,  22,  22,  22,  11,   8, -18,
+            -18,  -6,  16,  25,  16,  17,   4, -18,
+            -23,  -3,  -1,  15,  10,  -3, -20, -22,
+            -42, -20, -10,  -5,  -2, -20, -23, -44,
+            -29, -51, -23, -15, -22, -18, -50, -64,
+        },
+        {
+            -14, -21, -11,  -8,  -7,  -9, -17, -24,
+             -8,  -4,   7, -12,  -3, -13,  -4, -14,
+              2,  -8,   0,  -1,  -2,   6,   0,   4,
+             -3,   9,  12,   9,  14,  10,   3,   2,
+             -6,   3,  13,  19,   7,  10,  -3,  -9,
+            -12,  -3,   8,  10,  13,   3,  -7, -15,
+            -14, -18,  -7,  -1,   4,  -9, -15, -27,
+            -23,  -9, -23,  -5,  -9, -16,  -5, -17,
+        },
+        {
+             13,  10,  18,  15,  12,  12,   8,   5,
+             11,  13,  13,  11,  -3,   3,   8,   3,
+              7,   7,   7,   5,   4,  -3,  -5,  -3,
+              4,   3,  13,   1,   2,   1,  -1,   2,
+              3,   5,   8,   4,  -5,  -6,  -8, -11,
+             -4,   0,  -5,  -1,  -7, -12,  -8, -16,
+             -6,  -6,   0,   2,  -9,  -9, -11,  -3,
+             -9,   2,   3,  -1,  -5, -13,   4, -20,
+        },
+        {
+             -9,  22,  22,  27,  27,  19,  10,  20,
+            -17,  20,  32,  41,  58,  25,  30,   0,
+            -20,   6,   9,  49,  47,  35,  19,   9,
+              3,  22,  24,  45,  57,  40,  57,  36,
+            -18,  28,  19,  47,  31,  34,  39,  23,
+            -16, -27,  15,   6,   9,  17,  10,   5,
+            -22, -23, -30, -16, -16, -23, -36, -32,
+            -33, -28, -22, -43,  -5, -32, -20, -41,
+        },
+        {
+            -74, -35, -18, -18, -11,  15,   4, -17,
+            -12,  17,  14,  17,  17,  38,  23,  11,
+             10,  17,  23,  15,  20,  45,  44,  13,
+             -8,  22,  24,  27,  26,  33,  26,   3,
+            -18,  -4,  21,  24,  27,  23,   9, -11,
+            -19,  -3,  11,  21,  23,  16,   7,  -9,
+            -27, -11,   4,  13,  14,   4,  -5, -17,
+            -53, -34, -21, -11, -28, -14, -24, -43,
+        },
+    };
+
+    // Per attacked square, for knight, bishop, rook and queen, relative to a typical count.
+    private static final int[] MG_MOBILITY = {0, 4, 5, 2, 1, 0};
+    private static final int[] EG_MOBILITY = {0, 4, 5, 4, 2, 0};
+    private static final int[] TYPICAL_MOBILITY = {0, 4, 6, 7, 13, 0};
+
+    private static final int[] KING_ATTACK_WEIGHT = {0, 2, 2, 3, 5, 0};
+    private static final int[] KING_DANGER = {0, 0, 2, 6, 12, 22, 34, 48, 64, 82, 100, 120, 140, 160, 180, 200};
+    private static final int PAWN_SHIELD_BONUS = 12;
+
+    // Feature layout used by TexelTuner. Every term of evaluate() is a per-position coefficient times a
+    // midgame and an endgame weight, so trace() can reduce a position to a coefficient vector over
+    // these features. King danger and the pawn shield only have midgame weights.
+    static final int FEATURE_MATERIAL = 0;
+    static final int FEATURE_PST = FEATURE_MATERIAL + 6;
+    static final int FEATURE_MOBILITY = FEATURE_PST + 6 * 64;
+    static final int FEATURE_KING_DANGER = FEATURE_MOBILITY + 6;
+    static final int FEATURE_PAWN_SHIELD = FEATURE_KING_DANGER + KING_DANGER.length;
+    static final int FEATURE_COUNT = FEATURE_PAWN_SHIELD + 1;
+
+    // Combined material + piece-square values per piece index and square, negated for Black.
+    static final int[][] MG_TABLE = new int[12][64];
+    static final int[][] EG_TABLE = new int[12][64];
+
+    static {
+        for (int type = 0; type < 6; type++) {
+            for (int square = 0; square < 64; square++) {
+                MG_TABLE[type][square] = MG_MATERIAL[type] + MG_PST[type][square];
+                EG_TABLE[type][square] = EG_MATERIAL[type] + EG_PST[type][square];
+                // Black uses the vertically mirrored square.
+                MG_TABLE[type + 6][square] = -(MG_MATERIAL[type] + MG_PST[type][square ^ 56]);
+                EG_TABLE[type + 6][square] = -(EG_MATERIAL[type] + EG_PST[type][square ^ 56]);
+            }
+        }
+    }
+
+    private Evaluator() {
+    }
+
+    // Score in centipawns from the side to move's point of view.
+    public static int evaluate(EngineBoard board) {
+        int mg = board.getMidgameScore();
+        int eg = board.getEndgameScore();
+
+        long occupied = board.getOccupied();
+        for (int color = 0; color < 2; color++) {
+            int sign = color == 0 ? 1 : -1;
+            long own = board.getOccupancy(color);
+            int enemy = color ^ 1;
+            long enemyPawnAttacks = pawnAttacks(board.getPieces(enemy * 6), enemy);
+            long enemyKingZone = kingZone(board.getKingSquare(enemy), enemy);
+            int attackers = 0;
+            int attackWeight = 0;
+
+            for (int type = 1; type <= 4; type++) {
+                long pieces = board.getPieces(color * 6 + type);
+                while (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    long attacks = attacksOf(type, square, occupied);
+                    int mobility = Long.bitCount(attacks & ~own & ~enemyPawnAttacks) - TYPICAL_MOBILITY[type];
+                    mg += sign * MG_MOBILITY[type] * mobility;
+                    eg += sign * EG_MOBILITY[type] * mobility;
+                    if ((attacks & enemyKingZone) != 0) {
+                        attackers++;
+                        attackWeight += KING_ATTACK_WEIGHT[type] * Long.bitCount(attacks & enemyKingZone);
+                    }
+                }
+            }
+            // A lone attacker rarely matters; danger grows quickly once several pieces join in.
+            if (attackers >= 2) {
+                mg += sign * KING_DANGER[Math.min(attackWeight, KING_DANGER.length - 1)];
+            }
+            mg += sign * PAWN_SHIELD_BONUS * Long.bitCount(pawnShield(board.getKingSquare(color), color)
+                    & board.getPieces(color * 6));
+        }
+
+        int phase = Math.min(board.getPhase(), MAX_PHASE);
+        int score = (mg * phase + eg * (MAX_PHASE - phase)) / MAX_PHASE;
+        return board.getSideToMove() == 0 ? score : -score;
+    }
+
+    // Current weights by feature: [0] midgame, [1] endgame.
+    static int[][] weights() {
+        int[][] weights = new int[2][FEATURE_COUNT];
+        for (int type = 0; type < 6; type++) {
+            weights[0][FEATURE_MATERIAL + type] = MG_MATERIAL[type];
+            weights[1][FEATURE_MATERIAL + type] = EG_MATERIAL[type];
+            System.arraycopy(MG_PST[type], 0, weights[0], FEATURE_PST + type * 64, 64);
+            System.arraycopy(EG_PST[type], 0, weights[1], FEATURE_PST + type * 64, 64);
+            weights[0][FEATURE_MOBILITY + type] = MG_MOBILITY[type];
+            weights[1][FEATURE_MOBILITY + type] = EG_MOBILITY[type];
+        }
+        System.arraycopy(KING_DANGER, 0, weights[0], FEATURE_KING_DANGER, KING_DANGER.length);
+        weights[0][FEATURE_PAWN_SHIELD] = PAWN_SHIELD_BONUS;
+        return weights;
+    }
+
+    // Fills coefficients (length FEATURE_COUNT) so that, from White's side, the midgame score is the
+    // dot product with weights()[0] and the endgame score with weights()[1]. Must mirror evaluate();
+    // TexelTuner checks the two agree on every position it loads.
+    static void trace(EngineBoard board, int[] coefficients) {
+        Arrays.fill(coefficients, 0);
+        for (int piece = 0; piece < 12; piece++) {
+            int type = piece % 6;
+            int sign = piece < 6 ? 1 : -1;
+            long pieces = board.getPieces(piece);
+            while (pieces != 0) {
+                int square = Long.numberOfTrailingZeros(pieces);
+                pieces &= pieces - 1;
+                coefficients[FEATURE_MATERIAL + type] += sign;
+                coefficients[FEATURE_PST + type * 64 + (piece < 6 ? square : square ^ 56)] += sign;
+            }
+        }
+
+        long occupied = board.getOccupied();
+        for (int color = 0; color < 2; color++) {
+            int sign = color == 0 ? 1 : -1;
+            long own = board.getOccupancy(color);
+            int enemy = color ^ 1;
+            long enemyPawnAttacks = pawnAttacks(board.getPieces(enemy * 6), enemy);
+            long enemyKingZone = kingZone(board.getKingSquare(enemy), enemy);
+            int attackers = 0;
+            int attackWeight = 0;
+
+            for (int type = 1; type <= 4; type++) {
+                long pieces = board.getPieces(color * 6 + type);
+                while (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    long attacks = attacksOf(type, square, occupied);
+                    coefficients[FEATURE_MOBILITY + type] += sign
+                            * (Long.bitCount(attacks & ~own & ~enemyPawnAttacks) - TYPICAL_MOBILITY[type]);
+                    if ((attacks & enemyKingZone) != 0) {
+                        attackers++;
+                        attackWeight += KING_ATTACK_WEIGHT[type] * Long.bitCount(attacks & enemyKingZone);
+                    }
+                }
+            }
+            if (attackers >= 2) {
+                coefficients[FEATURE_KING_DANGER + Math.min(attackWeight, KING_DANGER.length - 1)] += sign;
+            }
+            coefficients[FEATURE_PAWN_SHIELD] += sign * Long.bitCount(pawnShield(board.getKingSquare(color), color)
+                    & board.getPieces(color * 6));
+        }
+    }
+
+    static long attacksOf(int type, int square, long occupied) {
+        switch (type) {
+            case 1:
+                return Attacks.KNIGHT[square];
+            case 2:
+                return Attacks.bishop(square, occupied);
+            case 3:
+                return Attacks.rook(square, occupied);
+            case 4:
+                return Attacks.queen(square, occupied);
+            default:
+                return Attacks.KING[square];
+        }
+    }
+
+    static long pawnAttacks(long pawns, int color) {
+        long notFileA = 0xfefefefefefefefeL;
+        long notFileH = 0x7f7f7f7f7f7f7f7fL;
+        if (color == 0) {
+            return ((pawns & notFileA) >>> 9) | ((pawns & notFileH) >>> 7);
+        }
+        return ((pawns & notFileA) << 7) | ((pawns & notFileH) << 9);
+    }
+
+    private static long kingZone(int kingSquare, int color) {
+        long zone = Attacks.KING[kingSquare] | (1L << kingSquare);
+        return zone | (color == 0 ? zone >>> 8 : zone << 8);
+    }
+
+    // The king's file and its neighbours, one and two ranks in front of the king.
+    private static long pawnShield(int kingSquare, int color) {
+        long files = (Attacks.KING[kingSquare] | (1L << kingSquare)) & (0xFFL << (kingSquare & 56));
+        long oneAhead = color == 0 ? files >>> 8 : files << 8;
+        return oneAhead | (color == 0 ? oneAhead >>> 8 : oneAhead << 8);
+    }
+}
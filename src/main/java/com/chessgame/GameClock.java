@@ -0,0 +1,93 @@
+package com.chessgame;
+
+// Chess clock for both sides. Only the side to move's clock runs; completeMove() charges the time
+// used (less any delay), adds the increment and hands the clock to the opponent. A side whose time
+// reaches zero has flagged. Thread-safe, so a GUI timer can read it while a move is being made.
+public class GameClock {
+    private final TimeControl timeControl;
+    private final long[] remainingMillis = new long[2];
+    private PieceColor running;
+    private long turnStartNanos;
+
+    public GameClock(TimeControl timeControl) {
+        this.timeControl = timeControl;
+        remainingMillis[0] = timeControl.getInitialMillis();
+        remainingMillis[1] = timeControl.getInitialMillis();
+    }
+
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    public synchronized void start(PieceColor side) {
+        running = side;
+        turnStartNanos = System.nanoTime();
+    }
+
+    public synchronized void stop() {
+        if (running != null) {
+            remainingMillis[index(running)] = liveRemaining(running);
+            running = null;
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return running != null;
+    }
+
+    // Returns false, leaving the clock stopped at zero, if the mover's flag fell before the move was made.
+    public synchronized boolean completeMove(PieceColor mover) {
+        if (running == null) {
+            // Stopped clocks charge nothing, but a side that has already flagged stays flagged.
+            start(mover);
+        } else if (running != mover) {
+            throw new IllegalStateException(mover + " moved while " + running + "'s clock was running");
+        }
+        long remaining = liveRemaining(mover);
+        if (remaining <= 0) {
+            remainingMillis[index(mover)] = 0;
+            running = null;
+            return false;
+        }
+        remainingMillis[index(mover)] = remaining + timeControl.getIncrementMillis();
+        start(mover == PieceColor.WHITE ? PieceColor.BLACK : PieceColor.WHITE);
+        return true;
+    }
+
+    public synchronized long getRemainingMillis(PieceColor side) {
+        return Math.max(0, liveRemaining(side));
+    }
+
+    public synchronized boolean isFlagged(PieceColor side) {
+        return liveRemaining(side) <= 0;
+    }
+
+    public synchronized void setRemainingMillis(long white, long black) {
+        remainingMillis[0] = white;
+        remainingMillis[1] = black;
+        if (running != null) {
+            turnStartNanos = System.nanoTime();
+        }
+    }
+
+    private long liveRemaining(PieceColor side) {
+        long remaining = remainingMillis[index(side)];
+        if (side == running) {
+            long elapsed = (System.nanoTime() - turnStartNanos) / 1_000_000;
+            remaining -= Math.max(0, elapsed - timeControl.getDelayMillis());
+        }
+        return remaining;
+    }
+
+    private static int index(PieceColor side) {
+        return side == PieceColor.WHITE ? 0 : 1;
+    }
+
+    public static String format(long millis) {
+        long seconds = millis / 1000;
+        if (millis < 10_000) {
+            return String.format("%d.%d", seconds, millis % 1000 / 100);
+        }
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
@@ -0,0 +1,78 @@
+package com.chessgame;
+
+// One state change of a hosted game as spectators see it: the move that led to it (Move.NONE after a
+// reset or a jump through the history), the resulting position, both clocks and the game status.
+// Immutable, so the game hands the same instance to every spectator without copying.
+public final class GameEvent {
+    private final long sequence;
+    private final int ply;
+    private final int move;
+    private final PositionSnapshot position;
+    private final long whiteMillis;
+    private final long blackMillis;
+    private final GameStatus status;
+
+    GameEvent(long sequence, int ply, int move, PositionSnapshot position, long whiteMillis, long blackMillis,
+              GameStatus status) {
+        this.sequence = sequence;
+        this.ply = ply;
+        this.move = move;
+        this.position = position;
+        this.whiteMillis = whiteMillis;
+        this.blackMillis = blackMillis;
+        this.status = status;
+    }
+
+    // Numbers events of a channel consecutively from 0; a gap means the reader skipped events.
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public PositionSnapshot getPosition() {
+        return position;
+    }
+
+    public long getHash() {
+        return position.getHash();
+    }
+
+    // Remaining clock times, or -1 for an untimed game.
+    public long getWhiteMillis() {
+        return whiteMillis;
+    }
+
+    public long getBlackMillis() {
+        return blackMillis;
+    }
+
+    public GameStatus getStatus() {
+        return status;
+    }
+
+    // Wire form used by SpectatorServer:
+    // event <sequence> <ply> <uci move or -> <hash in hex> <white ms> <black ms> <status> <fen>
+    public String toLine() {
+        StringBuilder line = new StringBuilder(128).append("event ").append(sequence).append(' ').append(ply).append(' ');
+        if (move == Move.NONE) {
+            line.append('-');
+        } else {
+            Move.appendUci(move, line);
+        }
+        return line.append(' ').append(Long.toHexString(position.getHash()))
+                .append(' ').append(whiteMillis).append(' ').append(blackMillis)
+                .append(' ').append(status).append(' ').append(position.toFen()).toString();
+    }
+
+    @Override
+    public String toString() {
+        return toLine();
+    }
+}
@@ -0,0 +1,696 @@
+package com.chessgame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Crash-safe record of the games being played. Every start, move and result is appended as a small
+// checksummed binary record to the log of the game's shard (game id modulo the shard count). Appending
+// only copies the record into memory: each shard's writer thread writes whatever has built up and
+// forces it to disk in one go, so one fsync covers every record made while the previous one was in
+// flight (group commit) and no move waits for the disk. sync() waits for durability when that matters.
+//
+// Each shard also keeps its games' state in memory. Every SNAPSHOT_INTERVAL records the writer saves
+// that state to a snapshot, starts a new log generation and deletes the old one, so recovery reads one
+// snapshot and a short log. Finished games leave the snapshot by being appended to the shard's archive
+// (shard-<n>.games, in GameRecord's text format); the snapshot records the archive's length, so a crash
+// between the two cannot archive a game twice.
+//
+// open() replays the snapshot and logs, stopping at the first torn or corrupt record of a log, and
+// compacts the result into a fresh generation. The shard count has to stay the same between runs.
+public final class GameJournal implements AutoCloseable {
+    public static final int SNAPSHOT_INTERVAL = 4096;
+
+    private static final long SNAPSHOT_MAGIC = 0x4348474A524E4C53L; // "CHGJRNLS"
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final String[] RESULTS = {GameRecord.UNKNOWN, GameRecord.WHITE_WINS, GameRecord.BLACK_WINS, GameRecord.DRAW};
+    // Frame: payload length, CRC-32 of the payload, payload.
+    private static final int FRAME_HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD_BYTES = 64;
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final int SNAPSHOT_HEADER_BYTES = 40;
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final Shard[] shards;
+    private final AtomicLong nextGameId = new AtomicLong(1);
+    private final List<GameState> recovered = new ArrayList<>();
+
+    private GameJournal(Path directory, FileChannel lockChannel, int shardCount) {
+        this.directory = directory;
+        this.lockChannel = lockChannel;
+        this.shards = new Shard[shardCount];
+    }
+
+    public static GameJournal open(Path directory, int shardCount) throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be positive");
+        }
+        Files.createDirectories(directory);
+        // Two processes appending to the same logs would corrupt them.
+        FileChannel lockChannel = FileChannel.open(directory.resolve("journal.lock"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        if (lockChannel.tryLock() == null) {
+            lockChannel.close();
+            throw new IOException("Journal is in use by another process: " + directory);
+        }
+        GameJournal journal = new GameJournal(directory, lockChannel, shardCount);
+        long maxGameId = 0;
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = journal.new Shard(i);
+            journal.shards[i] = shard;
+            try {
+                shard.recover(journal.recovered);
+            } catch (IOException | RuntimeException e) {
+                for (int j = 0; j <= i; j++) {
+                    if (journal.shards[j].log != null) {
+                        journal.shards[j].log.close();
+                    }
+                }
+                lockChannel.close();
+                throw e;
+            }
+            maxGameId = Math.max(maxGameId, shard.maxGameId);
+        }
+        journal.nextGameId.set(maxGameId + 1);
+        for (Shard shard : journal.shards) {
+            shard.writer.start();
+        }
+        return journal;
+    }
+
+    // Games that were still in progress when the journal was last closed or the process died.
+    public List<GameState> getRecoveredGames() {
+        return List.copyOf(recovered);
+    }
+
+    public long nextGameId() {
+        return nextGameId.getAndIncrement();
+    }
+
+    // A null time control is an untimed game. Starting an id that is already in progress replaces it.
+    public void startGame(long gameId, TimeControl timeControl) {
+        Shard shard = shard(gameId);
+        synchronized (shard) {
+            ByteBuffer record = shard.beginRecord();
+            if (record != null) {
+                record.put(START).putLong(gameId)
+                        .putLong(timeControl != null ? timeControl.getInitialMillis() : -1)
+                        .putLong(timeControl != null ? timeControl.getIncrementMillis() : 0)
+                        .putLong(timeControl != null ? timeControl.getDelayMillis() : 0);
+                shard.endRecord();
+            }
+        }
+    }
+
+    // The move played at the given ply, which drops any moves the game had from that ply on. Clock
+    // times are what remains after the move, or -1 for an untimed game.
+    public void recordMove(long gameId, int ply, int move, long whiteMillis, long blackMillis) {
+        Shard shard = shard(gameId);
+        synchronized (shard) {
+            ByteBuffer record = shard.beginRecord();
+            if (record != null) {
+                record.put(MOVE).putLong(gameId).putInt(ply).putInt(move)
+                        .putInt((int) whiteMillis).putInt((int) blackMillis);
+                shard.endRecord();
+            }
+        }
+    }
+
+    // Result is one of GameRecord's result tokens. The game is archived at the shard's next snapshot.
+    public void endGame(long gameId, String result) {
+        int code = Arrays.asList(RESULTS).indexOf(result);
+        if (code < 0) {
+            throw new IllegalArgumentException("Unknown result: " + result);
+        }
+        Shard shard = shard(gameId);
+        synchronized (shard) {
+            ByteBuffer record = shard.beginRecord();
+            if (record != null) {
+                record.put(END).putLong(gameId).put((byte) code);
+                shard.endRecord();
+            }
+        }
+    }
+
+    // Waits until everything recorded before the call is on disk.
+    public void sync() throws IOException, InterruptedException {
+        for (Shard shard : shards) {
+            shard.sync();
+        }
+    }
+
+    public Path getArchive(int shard) {
+        return directory.resolve("shard-" + shard + ".games");
+    }
+
+    // Writes out and forces what is still buffered, then stops the writers.
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Shard shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        lockChannel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Shard shard(long gameId) {
+        return shards[(int) Math.floorMod(gameId, (long) shards.length)];
+    }
+
+    private final class Shard implements Runnable {
+        private final int index;
+        private final Thread writer;
+        private final CRC32 crc = new CRC32();
+        // Everything below is guarded by the shard's monitor, except that the writer owns draining,
+        // log and generation.
+        private final Map<Long, GameState> games = new LinkedHashMap<>();
+        private ByteBuffer filling = ByteBuffer.allocate(BUFFER_BYTES);
+        private ByteBuffer draining = ByteBuffer.allocate(BUFFER_BYTES);
+        private int recordStart;
+        private long appended;
+        private long durable;
+        private int sinceSnapshot;
+        private long maxGameId;
+        private boolean writerIdle;
+        private int syncWaiters;
+        private boolean closing;
+        private IOException failure;
+        private FileChannel log;
+        private long generation;
+
+        Shard(int index) {
+            this.index = index;
+            this.writer = new Thread(this, "journal-writer-" + index);
+            writer.setDaemon(true);
+        }
+
+        // Null once the shard has failed; records are then dropped rather than buffered forever.
+        private ByteBuffer beginRecord() {
+            if (failure != null || closing) {
+                return null;
+            }
+            if (filling.remaining() < FRAME_HEADER_BYTES + MAX_PAYLOAD_BYTES) {
+                ByteBuffer larger = ByteBuffer.allocate(filling.capacity() * 2);
+                filling.flip();
+                filling = larger.put(filling);
+            }
+            recordStart = filling.position();
+            return filling.position(recordStart + FRAME_HEADER_BYTES);
+        }
+
+        private void endRecord() {
+            int payloadStart = recordStart + FRAME_HEADER_BYTES;
+            int length = filling.position() - payloadStart;
+            crc.reset();
+            crc.update(filling.array(), payloadStart, length);
+            filling.putInt(recordStart, length).putInt(recordStart + 4, (int) crc.getValue());
+            apply(ByteBuffer.wrap(filling.array(), payloadStart, length));
+            appended++;
+            sinceSnapshot++;
+            if (writerIdle) {
+                notifyAll();
+            }
+        }
+
+        // Updates the in-memory games from one record payload, for new records and replayed ones alike.
+        private void apply(ByteBuffer payload) {
+            byte type = payload.get();
+            long gameId = payload.getLong();
+            maxGameId = Math.max(maxGameId, gameId);
+            GameState game = games.get(gameId);
+            if (type == START) {
+                games.put(gameId, new GameState(gameId, payload.getLong(), payload.getLong(), payload.getLong()));
+            } else if (type == MOVE) {
+                int ply = payload.getInt();
+                int move = payload.getInt();
+                int whiteMillis = payload.getInt();
+                int blackMillis = payload.getInt();
+                if (game != null) {
+                    game.play(ply, move, whiteMillis, blackMillis);
+                }
+            } else if (type == END) {
+                int code = payload.get();
+                if (game != null && code >= 0 && code < RESULTS.length) {
+                    game.result = RESULTS[code];
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown journal record type " + type);
+            }
+        }
+
+        @Override
+        public void run() {
+            long written = durable;
+            while (true) {
+                ByteBuffer batch;
+                List<GameState> image = null;
+                long imageMaxGameId = 0;
+                synchronized (this) {
+                    durable = written;
+                    if (syncWaiters > 0) {
+                        notifyAll();
+                    }
+                    while (filling.position() == 0 && !closing) {
+                        writerIdle = true;
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            closing = true;
+                        }
+                        writerIdle = false;
+                    }
+                    if (filling.position() == 0) {
+                        return;
+                    }
+                    batch = filling;
+                    filling = draining;
+                    draining = batch;
+                    written = appended;
+                    if (sinceSnapshot >= SNAPSHOT_INTERVAL) {
+                        image = takeImage();
+                        imageMaxGameId = maxGameId;
+                        sinceSnapshot = 0;
+                    }
+                }
+                try {
+                    batch.flip();
+                    while (batch.hasRemaining()) {
+                        log.write(batch);
+                    }
+                    log.force(false);
+                    batch.clear();
+                    if (image != null) {
+                        checkpoint(image, imageMaxGameId);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Game journal shard " + index + " stopped: " + e.getMessage());
+                    synchronized (this) {
+                        failure = e;
+                        notifyAll();
+                    }
+                    return;
+                }
+            }
+        }
+
+        // Copies of every game for a snapshot. Finished games go into it one last time to be archived
+        // and are dropped from memory.
+        private List<GameState> takeImage() {
+            List<GameState> image = new ArrayList<>(games.size());
+            for (Iterator<GameState> it = games.values().iterator(); it.hasNext(); ) {
+                GameState game = it.next();
+                image.add(game.copy());
+                if (game.isFinished()) {
+                    it.remove();
+                }
+            }
+            return image;
+        }
+
+        // Archives the image's finished games, saves the rest as the snapshot of the next generation,
+        // and switches the log to that generation. Everything in the image is already on disk.
+        private void checkpoint(List<GameState> image, long imageMaxGameId) throws IOException {
+            long next = generation + 1;
+            long archiveLength = archive(image);
+            writeSnapshot(next, archiveLength, imageMaxGameId, image);
+            FileChannel previous = log;
+            log = FileChannel.open(logPath(next), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            generation = next;
+            if (previous != null) {
+                previous.close();
+            }
+            for (long old : logGenerations()) {
+                if (old < next) {
+                    Files.deleteIfExists(logPath(old));
+                }
+            }
+        }
+
+        private long archive(List<GameState> image) throws IOException {
+            StringBuilder text = new StringBuilder();
+            for (GameState game : image) {
+                if (game.isFinished()) {
+                    text.append(game.toRecord().toLine()).append('\n');
+                }
+            }
+            try (FileChannel channel = FileChannel.open(getArchive(index), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (text.length() > 0) {
+                    ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+                    channel.position(channel.size());
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    channel.force(false);
+                }
+                return channel.size();
+            }
+        }
+
+        // Written to a temporary file, forced and renamed, so a crash leaves the old snapshot or the new.
+        private void writeSnapshot(long snapshotGeneration, long archiveLength, long imageMaxGameId,
+                                   List<GameState> image) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeInt(shards.length);
+            out.writeLong(snapshotGeneration);
+            out.writeLong(archiveLength);
+            out.writeLong(imageMaxGameId);
+            int unfinished = 0;
+            for (GameState game : image) {
+                unfinished += game.isFinished() ? 0 : 1;
+            }
+            out.writeInt(unfinished);
+            for (GameState game : image) {
+                if (!game.isFinished()) {
+                    game.write(out);
+                }
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes.toByteArray());
+            out.writeInt((int) checksum.getValue());
+
+            Path snapshot = snapshotPath();
+            Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+        }
+
+        // Loads the snapshot and replays the logs after it, then compacts into a fresh generation.
+        void recover(List<GameState> inProgress) throws IOException {
+            long first = 0;
+            if (Files.exists(snapshotPath())) {
+                first = readSnapshot();
+            }
+            generation = first;
+            for (long logGeneration : logGenerations()) {
+                if (logGeneration >= first) {
+                    replay(logPath(logGeneration));
+                    generation = Math.max(generation, logGeneration);
+                }
+            }
+            List<GameState> image = takeImage();
+            for (GameState game : image) {
+                if (!game.isFinished()) {
+                    inProgress.add(game.copy());
+                }
+            }
+            checkpoint(image, maxGameId);
+        }
+
+        private long readSnapshot() throws IOException {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshotPath()));
+            CRC32 checksum = new CRC32();
+            checksum.update(in.array(), 0, Math.max(0, in.limit() - 4));
+            if (in.limit() < SNAPSHOT_HEADER_BYTES + 4 || in.getLong() != SNAPSHOT_MAGIC || in.getInt(in.limit() - 4) != (int) checksum.getValue()) {
+                throw new IOException("Corrupt journal snapshot: " + snapshotPath());
+            }
+            int shardCount = in.getInt();
+            if (shardCount != shards.length) {
+                throw new IOException("Journal has " + shardCount + " shards, not " + shards.length + ": " + directory);
+            }
+            long snapshotGeneration = in.getLong();
+            long archiveLength = in.getLong();
+            maxGameId = in.getLong();
+            for (int i = in.getInt(); i > 0; i--) {
+                GameState game = GameState.read(in);
+                games.put(game.id, game);
+            }
+            // Games archived after this snapshot was written are still in the logs and get archived again.
+            Path archive = getArchive(index);
+            if (Files.exists(archive) && Files.size(archive) > archiveLength) {
+                try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+                    channel.truncate(archiveLength);
+                }
+            }
+            return snapshotGeneration;
+        }
+
+        private void replay(Path path) throws IOException {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+            CRC32 checksum = new CRC32();
+            while (in.remaining() >= FRAME_HEADER_BYTES) {
+                int length = in.getInt(in.position());
+                int expected = in.getInt(in.position() + 4);
+                int payloadStart = in.position() + FRAME_HEADER_BYTES;
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES || length > in.limit() - payloadStart) {
+                    break;
+                }
+                checksum.reset();
+                checksum.update(in.array(), payloadStart, length);
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+                try {
+                    apply(ByteBuffer.wrap(in.array(), payloadStart, length));
+                } catch (IllegalArgumentException | java.nio.BufferUnderflowException e) {
+                    throw new IOException("Bad record in " + path + " at byte " + in.position(), e);
+                }
+                in.position(payloadStart + length);
+            }
+            if (in.hasRemaining()) {
+                // Only the last batch can be torn; everything before it was forced.
+                System.err.println("Ignoring " + in.remaining() + " unfinished bytes at the end of " + path);
+            }
+        }
+
+        synchronized void sync() throws IOException, InterruptedException {
+            long target = appended;
+            syncWaiters++;
+            try {
+                while (durable < target && failure == null && writer.isAlive()) {
+                    wait();
+                }
+            } finally {
+                syncWaiters--;
+            }
+            if (failure != null) {
+                throw new IOException("Game journal shard " + index + " failed", failure);
+            }
+        }
+
+        void close() throws IOException {
+            synchronized (this) {
+                closing = true;
+                notifyAll();
+            }
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.close();
+            if (failure != null) {
+                throw new IOException("Game journal shard " + index + " failed", failure);
+            }
+        }
+
+        private Path snapshotPath() {
+            return directory.resolve("shard-" + index + ".snapshot");
+        }
+
+        private Path logPath(long logGeneration) {
+            return directory.resolve("shard-" + index + "-" + logGeneration + ".log");
+        }
+
+        private List<Long> logGenerations() throws IOException {
+            List<Long> found = new ArrayList<>();
+            String prefix = "shard-" + index + "-";
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.log")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    try {
+                        found.add(Long.parseLong(name.substring(prefix.length(), name.length() - 4)));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours.
+                    }
+                }
+            }
+            found.sort(null);
+            return found;
+        }
+    }
+
+    // Makes the snapshot rename durable. Not every platform can sync a directory; the rename is atomic
+    // either way.
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort.
+        }
+    }
+
+    // A journaled game: its time control, the moves of its current line and the clocks after the last one.
+    public static final class GameState {
+        private final long id;
+        private final long initialMillis;
+        private final long incrementMillis;
+        private final long delayMillis;
+        private int[] moves = new int[32];
+        // White's and black's remaining times after each ply, side by side.
+        private int[] clocks = new int[64];
+        private int plies;
+        private String result;
+
+        GameState(long id, long initialMillis, long incrementMillis, long delayMillis) {
+            this.id = id;
+            this.initialMillis = initialMillis;
+            this.incrementMillis = incrementMillis;
+            this.delayMillis = delayMillis;
+        }
+
+        void play(int ply, int move, int white, int black) {
+            if (ply > plies) {
+                return;
+            }
+            if (ply == moves.length) {
+                moves = Arrays.copyOf(moves, ply * 2);
+                clocks = Arrays.copyOf(clocks, ply * 4);
+            }
+            moves[ply] = move;
+            clocks[2 * ply] = white;
+            clocks[2 * ply + 1] = black;
+            plies = ply + 1;
+            result = null;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        // Null for an untimed game.
+        public TimeControl getTimeControl() {
+            return initialMillis < 0 ? null : new TimeControl(initialMillis, incrementMillis, delayMillis);
+        }
+
+        public int[] getMoves() {
+            return Arrays.copyOf(moves, plies);
+        }
+
+        // Remaining times after the last move, or -1 when untimed or before the first move.
+        public long getWhiteMillis() {
+            return plies > 0 ? getWhiteMillis(plies - 1) : -1;
+        }
+
+        public long getBlackMillis() {
+            return plies > 0 ? getBlackMillis(plies - 1) : -1;
+        }
+
+        // Remaining times after the given ply was played, or -1 when untimed.
+        public long getWhiteMillis(int ply) {
+            return clocks[2 * ply];
+        }
+
+        public long getBlackMillis(int ply) {
+            return clocks[2 * ply + 1];
+        }
+
+        public boolean isFinished() {
+            return result != null;
+        }
+
+        public GameRecord toRecord() {
+            List<String> uci = new ArrayList<>(plies);
+            StringBuilder text = new StringBuilder(5);
+            for (int i = 0; i < plies; i++) {
+                text.setLength(0);
+                Move.appendUci(moves[i], text);
+                uci.add(text.toString());
+            }
+            return new GameRecord(result != null ? result : GameRecord.UNKNOWN, uci);
+        }
+
+        GameState copy() {
+            GameState copy = new GameState(id, initialMillis, incrementMillis, delayMillis);
+            copy.moves = Arrays.copyOf(moves, Math.max(plies, 1));
+            copy.clocks = Arrays.copyOf(clocks, Math.max(plies, 1) * 2);
+            copy.plies = plies;
+            copy.result = result;
+            return copy;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            out.writeLong(initialMillis);
+            out.writeLong(incrementMillis);
+            out.writeLong(delayMillis);
+            out.writeInt(plies);
+            for (int i = 0; i < plies; i++) {
+                out.writeInt(moves[i]);
+                out.writeInt(clocks[2 * i]);
+                out.writeInt(clocks[2 * i + 1]);
+            }
+        }
+
+        static GameState read(ByteBuffer in) {
+            GameState game = new GameState(in.getLong(), in.getLong(), in.getLong(), in.getLong());
+            game.plies = in.getInt();
+            game.moves = new int[Math.max(game.plies, 32)];
+            game.clocks = new int[game.moves.length * 2];
+            for (int i = 0; i < game.plies; i++) {
+                game.moves[i] = in.getInt();
+                game.clocks[2 * i] = in.getInt();
+                game.clocks[2 * i + 1] = in.getInt();
+            }
+            return game;
+        }
+
+        @Override
+        public String toString() {
+            return "game " + id + " (" + (getTimeControl() != null ? getTimeControl() : "untimed") + "): " + toRecord().toLine();
+        }
+    }
+
+    // Usage: GameJournal <directory> [shards]
+    // Recovers the journal, which also compacts it, and lists the games still in progress.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: GameJournal <directory> [shards]");
+            return;
+        }
+        int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        try (GameJournal journal = open(Paths.get(args[0]), shardCount)) {
+            for (GameState game : journal.getRecoveredGames()) {
+                System.out.println(game);
+            }
+            System.out.println(journal.getRecoveredGames().size() + " games in progress");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+// One archived game. The archive format is one game per line: the result token ("1-0", "0-1",
+// "1/2-1/2" or "*") followed by the moves in UCI notation, all separated by single spaces.
+// Blank lines and lines starting with '#' are ignored. Archives written by CompactGameWriter are
+// read as well.
+public final class GameRecord {
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN = "*";
+
+    private final String result;
+    private final List<String> moves;
+
+    public GameRecord(String result, List<String> moves) {
+        this.result = result;
+        this.moves = List.copyOf(moves);
+    }
+
+    public static GameRecord parse(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        if (tokens.length == 0 || tokens[0].isEmpty()) {
+            throw new IllegalArgumentException("Empty game record");
+        }
+        return new GameRecord(tokens[0], Arrays.asList(tokens).subList(1, tokens.length));
+    }
+
+    // Lazily streams the archive; close the stream to release the file.
+    public static Stream<GameRecord> readArchive(Path archive) throws IOException {
+        if (CompactGameReader.isCompactArchive(archive)) {
+            return CompactGameReader.open(archive).stream();
+        }
+        return Files.lines(archive)
+                .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                .map(GameRecord::parse);
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public List<String> getMoves() {
+        return moves;
+    }
+
+    public String toLine() {
+        StringBuilder line = new StringBuilder(result);
+        for (String move : moves) {
+            line.append(' ').append(move);
+        }
+        return line.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toLine();
+    }
+}
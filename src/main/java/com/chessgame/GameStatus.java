@@ -0,0 +1,21 @@
+package com.chessgame;
+
+public enum GameStatus {
+    IN_PROGRESS,
+    CHECK,
+    CHECKMATE,
+    STALEMATE,
+    DRAW_BY_REPETITION,
+    DRAW_BY_FIFTY_MOVE_RULE,
+    DRAW_BY_INSUFFICIENT_MATERIAL,
+    // The side to move ran out of time.
+    TIME_FORFEIT;
+
+    public boolean isGameOver() {
+        return this != IN_PROGRESS && this != CHECK;
+    }
+
+    public boolean isDraw() {
+        return isGameOver() && this != CHECKMATE && this != TIME_FORFEIT;
+    }
+}
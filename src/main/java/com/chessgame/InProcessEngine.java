@@ -0,0 +1,85 @@
+package com.chessgame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// AnalysisEngine backed by Searcher, for when no external engine is available. Multi-PV runs one
+// search per line with the moves already ranked excluded at the root, and a move-time limit is
+// shared evenly between the lines. Not thread-safe; use one instance per thread.
+public class InProcessEngine implements AnalysisEngine {
+    private final Searcher searcher;
+    private boolean closed;
+
+    public InProcessEngine() {
+        this(16);
+    }
+
+    public InProcessEngine(int hashSizeInMegabytes) {
+        this.searcher = new Searcher(hashSizeInMegabytes);
+    }
+
+    public void setNetwork(NnueNetwork network) {
+        searcher.setNetwork(network);
+    }
+
+    @Override
+    public AnalysisResult analyze(String fen, SearchLimits limits) {
+        return analyze(fen, limits, 1).get(0);
+    }
+
+    @Override
+    public List<AnalysisResult> analyze(String fen, SearchLimits limits, int lineCount) {
+        EngineBoard board = EngineBoard.fromFen(fen);
+        SearchLimits perLine = limits.getMoveTimeMillis() > 0 && lineCount > 1
+                ? SearchLimits.moveTime(Math.max(1, limits.getMoveTimeMillis() / lineCount)) : limits;
+
+        List<AnalysisResult> results = new ArrayList<>(lineCount);
+        int[] excluded = new int[0];
+        for (int line = 0; line < lineCount; line++) {
+            SearchResult result = searcher.search(board, perLine, excluded);
+            if (result.getBestMove() == Move.NONE) {
+                if (line == 0) {
+                    // Checkmate or stalemate: report it the way UCI engines do, with no move.
+                    results.add(new AnalysisResult(fen, null, 0, result.getScore() < 0, 0));
+                }
+                break;
+            }
+            results.add(toAnalysisResult(fen, result));
+            excluded = Arrays.copyOf(excluded, excluded.length + 1);
+            excluded[excluded.length - 1] = result.getBestMove();
+        }
+        // Each line had its own search, so a later one can finish deeper and outscore an earlier one.
+        results.sort(Comparator.comparingInt(AnalysisResult::getComparableScore).reversed());
+        return results;
+    }
+
+    private static AnalysisResult toAnalysisResult(String fen, SearchResult result) {
+        List<String> pv = new ArrayList<>();
+        for (int move : result.getPrincipalVariation()) {
+            pv.add(Move.toUci(move));
+        }
+        if (pv.isEmpty()) {
+            pv.add(Move.toUci(result.getBestMove()));
+        }
+        if (result.isMateScore()) {
+            return new AnalysisResult(fen, result.getMateIn(), true, result.getDepth(), pv);
+        }
+        return new AnalysisResult(fen, result.getScore(), false, result.getDepth(), pv);
+    }
+
+    public void stop() {
+        searcher.stop();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return !closed;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
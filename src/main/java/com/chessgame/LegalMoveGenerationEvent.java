@@ -0,0 +1,17 @@
+package com.chessgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.chessgame.LegalMoveGeneration")
+@Label("Legal Move Generation")
+@Category({"Chess", "Rules"})
+public class LegalMoveGenerationEvent extends Event {
+    @Label("Square")
+    String square;
+
+    @Label("Move Count")
+    int moveCount;
+}
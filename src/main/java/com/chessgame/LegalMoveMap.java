@@ -0,0 +1,125 @@
+package com.chessgame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Every legal move for the side to move, grouped by origin square. Built once per position from the
+// bitboard generator so that selection, highlighting and validation are all table lookups.
+public final class LegalMoveMap {
+    private final EngineBoard board;
+    private final int[] moves;
+    private final int[] offsets = new int[65];
+    private final long[] targets = new long[64];
+
+    LegalMoveMap(EngineBoard board) {
+        this.board = board;
+        int[] generated = new int[EngineBoard.MAX_MOVES];
+        int count = board.generateLegalMoves(generated);
+
+        // Counting sort by origin square keeps each piece's moves contiguous.
+        for (int i = 0; i < count; i++) {
+            offsets[Move.from(generated[i]) + 1]++;
+            targets[Move.from(generated[i])] |= 1L << Move.to(generated[i]);
+        }
+        for (int square = 0; square < 64; square++) {
+            offsets[square + 1] += offsets[square];
+        }
+        int[] next = offsets.clone();
+        this.moves = new int[count];
+        for (int i = 0; i < count; i++) {
+            moves[next[Move.from(generated[i])]++] = generated[i];
+        }
+    }
+
+    public static LegalMoveMap of(PositionSnapshot snapshot) {
+        return new LegalMoveMap(EngineBoard.fromSnapshot(snapshot));
+    }
+
+    public int size() {
+        return moves.length;
+    }
+
+    public boolean hasMovesFrom(Position from) {
+        return targets[from.getSquare()] != 0;
+    }
+
+    public long getTargetSquares(Position from) {
+        return targets[from.getSquare()];
+    }
+
+    public List<Position> getTargets(Position from) {
+        long remaining = targets[from.getSquare()];
+        List<Position> result = new ArrayList<>(Long.bitCount(remaining));
+        while (remaining != 0) {
+            result.add(Position.of(Long.numberOfTrailingZeros(remaining)));
+            remaining &= remaining - 1;
+        }
+        return result;
+    }
+
+    public boolean isLegal(Position from, Position to) {
+        return (targets[from.getSquare()] & (1L << to.getSquare())) != 0;
+    }
+
+    // A pawn reaching the last rank has four entries; the queen promotion stands in for all of them.
+    public int find(Position from, Position to) {
+        if (!isLegal(from, to)) {
+            return Move.NONE;
+        }
+        int square = from.getSquare();
+        for (int i = offsets[square]; i < offsets[square + 1]; i++) {
+            int move = moves[i];
+            if (Move.to(move) == to.getSquare() && (Move.promotion(move) == 0 || Move.promotion(move) == Move.QUEEN)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    public int find(Position from, Position to, int promotion) {
+        int square = from.getSquare();
+        for (int i = offsets[square]; i < offsets[square + 1]; i++) {
+            if (Move.to(moves[i]) == to.getSquare() && Move.promotion(moves[i]) == promotion) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Resolves a move known only by from, to and promotion (any flags are ignored) to the legal move
+    // with its flags filled in; Move.NONE if it is not legal here.
+    public int find(int move) {
+        int square = Move.from(move);
+        int key = Move.withoutFlags(move);
+        for (int i = offsets[square]; i < offsets[square + 1]; i++) {
+            if (Move.withoutFlags(moves[i]) == key) {
+                return moves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    public boolean isPromotion(Position from, Position to) {
+        return Move.promotion(find(from, to)) != 0;
+    }
+
+    public boolean isEnPassant(Position from, Position to) {
+        return Move.isEnPassant(find(from, to));
+    }
+
+    public boolean isCastling(Position from, Position to) {
+        return Move.isCastling(find(from, to));
+    }
+
+    public boolean isCapture(Position from, Position to) {
+        return Move.isCapture(find(from, to));
+    }
+
+    public int[] toArray() {
+        return moves.clone();
+    }
+
+    EngineBoard getBoard() {
+        return board;
+    }
+}
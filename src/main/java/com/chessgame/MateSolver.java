@@ -0,0 +1,328 @@
+package com.chessgame;
+
+// Proves or refutes forced mates with depth-first proof-number search (df-pn). Unlike alpha-beta, it
+// grows the tree where the fewest positions remain to be settled: an attacker node needs one mating
+// move, a defender node needs every reply refuted, and proof/disproof numbers count how many leaves
+// that still takes. Results live in the solver's own table, keyed by position and remaining plies,
+// so transpositions are shared and the remaining-plies bound keeps the search graph acyclic.
+//
+// The side to move is the attacker. solve() tries mate in 1, 2, ... up to the limit, so the first
+// proof is the shortest mate; a disproof at the limit proves there is none within it. Draws by
+// repetition and the fifty-move rule are not considered. Not thread-safe; use one per thread.
+public class MateSolver {
+    public static final int MAX_MATE_MOVES = 32;
+    public static final long DEFAULT_NODE_LIMIT = 5_000_000;
+
+    private static final int INFINITE = 1 << 28;
+    private static final long PLIES_KEY = 0x9E3779B97F4A7C15L;
+    private static final int MAX_PLIES = 2 * MAX_MATE_MOVES - 1;
+
+    private final long[] keys;
+    private final int[] proofs;
+    private final int[] disproofs;
+    private final int mask;
+    private final int[][] moveBuffers = new int[MAX_PLIES + 1][EngineBoard.MAX_MOVES];
+    // Proof and disproof numbers of each child of the node being expanded at every ply count. Seeded
+    // from the table and then updated from each child search, so table evictions cannot undo progress.
+    private final int[][] childProofs = new int[MAX_PLIES + 1][EngineBoard.MAX_MOVES];
+    private final int[][] childDisproofs = new int[MAX_PLIES + 1][EngineBoard.MAX_MOVES];
+
+    private EngineBoard board;
+    private long nodes;
+    private long nodeLimit;
+    private volatile boolean stopRequested;
+    private boolean aborted;
+    // Numbers of the node search() last finished with.
+    private int lastProof;
+    private int lastDisproof;
+
+    public MateSolver(int hashSizeInMegabytes) {
+        int entries = TranspositionTable.entriesFor(hashSizeInMegabytes, 16);
+        this.keys = new long[entries];
+        this.proofs = new int[entries];
+        this.disproofs = new int[entries];
+        this.mask = entries - 1;
+    }
+
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, 0L);
+    }
+
+    // Searches for a mate by the side to move in at most maxMoves of its own moves. The board is used
+    // as scratch space and restored before returning.
+    public Solution solve(EngineBoard position, int maxMoves, long nodeLimit) {
+        if (maxMoves < 1 || maxMoves > MAX_MATE_MOVES) {
+            throw new IllegalArgumentException("maxMoves must be between 1 and " + MAX_MATE_MOVES);
+        }
+        board = position;
+        nodes = 0;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        stopRequested = false;
+        aborted = false;
+
+        for (int moves = 1; moves <= maxMoves; moves++) {
+            int plies = 2 * moves - 1;
+            int outcome = prove(plies);
+            if (outcome < 0) {
+                return new Solution(0, new int[0], false, nodes);
+            }
+            if (outcome > 0) {
+                int[] line = mainLine(plies);
+                return new Solution(aborted ? 0 : moves, line, !aborted, nodes);
+            }
+        }
+        return new Solution(0, new int[0], true, nodes);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    // 1 if the current position is a forced mate within the given plies, 0 if not, -1 if the search
+    // ran out of nodes first.
+    private int prove(int plies) {
+        long key = key(board.getHash(), plies);
+        int index = (int) key & mask;
+        if (keys[index] == key && (proofs[index] == 0 || disproofs[index] == 0)) {
+            return proofs[index] == 0 ? 1 : 0;
+        }
+        search(plies, INFINITE, INFINITE);
+        if (aborted) {
+            return -1;
+        }
+        return lastProof == 0 ? 1 : 0;
+    }
+
+    // Expands the current node until its proof number reaches proofLimit or its disproof number
+    // reaches disproofLimit, then records both. Attacker nodes have an odd number of plies left.
+    private void search(int plies, int proofLimit, int disproofLimit) {
+        if (++nodes > nodeLimit || stopRequested) {
+            aborted = true;
+            return;
+        }
+        long key = key(board.getHash(), plies);
+        boolean attacker = (plies & 1) == 1;
+        int[] moves = moveBuffers[plies];
+        int[] proofNumbers = childProofs[plies];
+        int[] disproofNumbers = childDisproofs[plies];
+        int count = expand(plies, moves, proofNumbers, disproofNumbers);
+        if (count == 0) {
+            // Attacker without a (mating) move: no mate here. Defender without a move: mate if in check.
+            boolean mated = !attacker && board.isInCheck();
+            store(key, mated ? 0 : INFINITE, mated ? INFINITE : 0);
+            return;
+        }
+        if (plies == 0) {
+            // The defender still has a move and the attacker is out of moves.
+            store(key, INFINITE, 0);
+            return;
+        }
+
+        while (true) {
+            // For an attacker node the best child has the smallest proof number and the node's numbers
+            // are (min proof, sum disproof); a defender node is the mirror image.
+            int[] selected = attacker ? proofNumbers : disproofNumbers;
+            int[] summed = attacker ? disproofNumbers : proofNumbers;
+            int best = 0;
+            int secondValue = INFINITE;
+            int sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum = Math.min(INFINITE, sum + summed[i]);
+                if (i > 0 && selected[i] < selected[best]) {
+                    secondValue = selected[best];
+                    best = i;
+                } else if (i > 0 && selected[i] < secondValue) {
+                    secondValue = selected[i];
+                }
+            }
+            int proof = attacker ? selected[best] : sum;
+            int disproof = attacker ? sum : selected[best];
+            if (proof >= proofLimit || disproof >= disproofLimit) {
+                store(key, proof, disproof);
+                return;
+            }
+
+            int childProofLimit;
+            int childDisproofLimit;
+            if (attacker) {
+                childProofLimit = Math.min(proofLimit, secondValue + 1);
+                childDisproofLimit = disproofLimit - disproof + disproofNumbers[best];
+            } else {
+                childProofLimit = proofLimit - proof + proofNumbers[best];
+                childDisproofLimit = Math.min(disproofLimit, secondValue + 1);
+            }
+            int move = moves[best];
+            board.makeMove(move);
+            search(plies - 1, childProofLimit, childDisproofLimit);
+            board.unmakeMove(move);
+            if (aborted) {
+                return;
+            }
+            proofNumbers[best] = lastProof;
+            disproofNumbers[best] = lastDisproof;
+        }
+    }
+
+    // Legal moves from the current position, with each child's numbers taken from the table (1 and 1
+    // when it is not there). On the attacker's last move only checks can mate, so the rest are left out.
+    private int expand(int plies, int[] moves, int[] proofNumbers, int[] disproofNumbers) {
+        int mover = board.getSideToMove();
+        int pseudoLegal = board.generateMoves(moves, false);
+        int count = 0;
+        for (int i = 0; i < pseudoLegal; i++) {
+            int move = moves[i];
+            board.makeMove(move);
+            boolean legal = !board.isSquareAttacked(board.getKingSquare(mover), mover ^ 1);
+            if (legal && (plies != 1 || board.isInCheck())) {
+                long key = key(board.getHash(), plies - 1);
+                int index = (int) key & mask;
+                boolean known = keys[index] == key;
+                moves[count] = move;
+                proofNumbers[count] = known ? proofs[index] : 1;
+                disproofNumbers[count] = known ? disproofs[index] : 1;
+                count++;
+            }
+            board.unmakeMove(move);
+        }
+        return count;
+    }
+
+    // The proven line from the current position: any mating attacker move (the budget is already the
+    // shortest mate), and the defence that holds out longest.
+    private int[] mainLine(int plies) {
+        int[] line = new int[plies];
+        int length = 0;
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        int remaining = plies;
+        while (remaining > 0 && !aborted) {
+            int count = board.generateLegalMoves(moves);
+            int chosen = Move.NONE;
+            int chosenPlies = -1;
+            for (int i = 0; i < count && !aborted; i++) {
+                board.makeMove(moves[i]);
+                if ((remaining & 1) == 1) {
+                    if (prove(remaining - 1) > 0) {
+                        chosen = moves[i];
+                        chosenPlies = remaining - 1;
+                    }
+                } else {
+                    int shortest = shortestMate(remaining - 1);
+                    if (shortest > chosenPlies) {
+                        chosen = moves[i];
+                        chosenPlies = shortest;
+                    }
+                }
+                board.unmakeMove(moves[i]);
+                if ((remaining & 1) == 1 && chosen != Move.NONE) {
+                    break;
+                }
+            }
+            if (chosen == Move.NONE) {
+                break;
+            }
+            line[length++] = chosen;
+            board.makeMove(chosen);
+            remaining = chosenPlies;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            board.unmakeMove(line[i]);
+        }
+        return java.util.Arrays.copyOf(line, length);
+    }
+
+    // Fewest plies within which the attacker to move mates, or -1.
+    private int shortestMate(int maxPlies) {
+        for (int plies = 1; plies <= maxPlies; plies += 2) {
+            int outcome = prove(plies);
+            if (outcome != 0) {
+                return outcome > 0 ? plies : -1;
+            }
+        }
+        return -1;
+    }
+
+    private void store(long key, int proof, int disproof) {
+        lastProof = proof;
+        lastDisproof = disproof;
+        int index = (int) key & mask;
+        keys[index] = key;
+        proofs[index] = proof;
+        disproofs[index] = disproof;
+    }
+
+    private static long key(long hash, int plies) {
+        return hash ^ (plies + 1) * PLIES_KEY;
+    }
+
+    public static final class Solution {
+        private final int mateIn;
+        private final int[] line;
+        private final boolean complete;
+        private final long nodes;
+
+        Solution(int mateIn, int[] line, boolean complete, long nodes) {
+            this.mateIn = mateIn;
+            this.line = line;
+            this.complete = complete;
+            this.nodes = nodes;
+        }
+
+        public boolean isMate() {
+            return mateIn > 0;
+        }
+
+        // True when the search finished without a mate, which proves there is none within the limit.
+        public boolean isProvenNoMate() {
+            return complete && mateIn == 0;
+        }
+
+        // False when the node limit or stop() cut the search short.
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public int getMateIn() {
+            return mateIn;
+        }
+
+        // Attacker and defender moves alternately, ending with the mating move.
+        public int[] getLine() {
+            return line.clone();
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        @Override
+        public String toString() {
+            if (!complete) {
+                return "unknown (" + nodes + " nodes)";
+            }
+            if (mateIn == 0) {
+                return "no mate (" + nodes + " nodes)";
+            }
+            StringBuilder text = new StringBuilder("mate in ").append(mateIn).append(':');
+            for (int move : line) {
+                Move.appendUci(move, text.append(' '));
+            }
+            return text.append(" (").append(nodes).append(" nodes)").toString();
+        }
+    }
+
+    // Usage: MateSolver <fen> <max moves> [node limit]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: MateSolver <fen> <max moves> [node limit]");
+            return;
+        }
+        long nodeLimit = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_NODE_LIMIT;
+        long start = System.nanoTime();
+        Solution solution = new MateSolver(64).solve(EngineBoard.fromFen(args[0]), Integer.parseInt(args[1]), nodeLimit);
+        System.out.println(solution + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,77 @@
+package com.chessgame;
+
+// Moves are packed into an int: from (6 bits), to (6 bits), promotion piece type (3 bits), flags.
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 15;
+    public static final int EN_PASSANT = 1 << 16;
+    public static final int CASTLING = 1 << 17;
+    public static final int DOUBLE_PUSH = 1 << 18;
+
+    // Promotion piece types match the piece type order used by Zobrist and EngineBoard.
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+
+    private static final char[] PROMOTION_CHARS = {' ', 'n', 'b', 'r', 'q'};
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return (move & CASTLING) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    // The same move without its flags: what UCI text, a click on two squares or a stored game can say about it.
+    public static int withoutFlags(int move) {
+        return move & 0x7FFF;
+    }
+
+    public static String toUci(int move) {
+        return appendUci(move, new StringBuilder(5)).toString();
+    }
+
+    public static StringBuilder appendUci(int move, StringBuilder out) {
+        appendSquare(from(move), out);
+        appendSquare(to(move), out);
+        if (promotion(move) != 0) {
+            out.append(PROMOTION_CHARS[promotion(move)]);
+        }
+        return out;
+    }
+
+    // Squares count from a8 = 0, so the rank digit runs backwards from the row.
+    static void appendSquare(int square, StringBuilder out) {
+        out.append((char) ('a' + (square & 7))).append((char) ('8' - (square >>> 3)));
+    }
+}
@@ -0,0 +1,17 @@
+package com.chessgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.chessgame.MoveValidation")
+@Label("Move Validation")
+@Category({"Chess", "Rules"})
+public class MoveValidationEvent extends Event {
+    @Label("Move")
+    String move;
+
+    @Label("Legal")
+    boolean legal;
+}
@@ -0,0 +1,45 @@
+package com.chessgame;
+
+// First-layer outputs of an NnueNetwork for both perspectives. EngineBoard adds or subtracts one
+// weight row per piece placed or removed, so a move costs a few row updates instead of a full pass.
+final class NnueAccumulator {
+    private final NnueNetwork network;
+    private final int[][] values;
+
+    NnueAccumulator(NnueNetwork network, EngineBoard board) {
+        this.network = network;
+        this.values = new int[2][network.getHiddenSize()];
+        refresh(board);
+    }
+
+    void refresh(EngineBoard board) {
+        for (int[] perspective : values) {
+            System.arraycopy(network.featureBiases, 0, perspective, 0, perspective.length);
+        }
+        for (int piece = 0; piece < 12; piece++) {
+            long bits = board.getPieces(piece);
+            while (bits != 0) {
+                add(piece, Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    void add(int piece, int square) {
+        NnueKernels.add(values[EngineBoard.WHITE], network.featureWeights, network.featureOffset(EngineBoard.WHITE, piece, square));
+        NnueKernels.add(values[EngineBoard.BLACK], network.featureWeights, network.featureOffset(EngineBoard.BLACK, piece, square));
+    }
+
+    void remove(int piece, int square) {
+        NnueKernels.subtract(values[EngineBoard.WHITE], network.featureWeights, network.featureOffset(EngineBoard.WHITE, piece, square));
+        NnueKernels.subtract(values[EngineBoard.BLACK], network.featureWeights, network.featureOffset(EngineBoard.BLACK, piece, square));
+    }
+
+    int[] perspective(int color) {
+        return values[color];
+    }
+
+    NnueNetwork getNetwork() {
+        return network;
+    }
+}
@@ -0,0 +1,45 @@
+package com.chessgame;
+
+// Inner loops of the NNUE evaluator. They use NnueVectorKernels when the jdk.incubator.vector module
+// has been added to the JVM (--add-modules jdk.incubator.vector) and plain loops otherwise. Either
+// way the results are identical. -Dchessgame.nnue.scalar=true forces the plain loops.
+final class NnueKernels {
+    static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !Boolean.getBoolean("chessgame.nnue.scalar");
+
+    private NnueKernels() {
+    }
+
+    static void add(int[] values, int[] weights, int offset) {
+        if (VECTORIZED) {
+            NnueVectorKernels.add(values, weights, offset);
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] += weights[offset + i];
+        }
+    }
+
+    static void subtract(int[] values, int[] weights, int offset) {
+        if (VECTORIZED) {
+            NnueVectorKernels.subtract(values, weights, offset);
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] -= weights[offset + i];
+        }
+    }
+
+    // Sum of clamp(value, 0, QA)^2 * weight over the layer.
+    static long screluDot(int[] values, int[] weights, int offset) {
+        if (VECTORIZED) {
+            return NnueVectorKernels.screluDot(values, weights, offset);
+        }
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            int clipped = Math.min(Math.max(values[i], 0), NnueNetwork.QA);
+            sum += clipped * clipped * weights[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,108 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// NNUE-style evaluation network: 768 piece-square inputs per perspective -> hidden layer (the
+// accumulator, kept up to date incrementally by EngineBoard) -> one output, with squared clipped
+// ReLU activation. Each perspective sees the board from its own side, so the same first-layer
+// weights serve both colours.
+//
+// Weights file, little-endian:
+//   int32 magic "NNUE" | int32 version (1) | int32 hidden size H
+//   int16 feature weights [768][H] | int16 feature biases [H]
+//   int16 output weights [2H] (side to move first, each within +-255) | int32 output bias
+//
+// Quantisation follows the usual scheme: the first layer is scaled by QA, the output weights by QB,
+// and the raw output is scaled to centipawns by SCALE / (QA * QB).
+public final class NnueNetwork {
+    static final int MAGIC = 0x45554E4E; // "NNUE" read little-endian
+    static final int VERSION = 1;
+    static final int INPUTS = 768;
+    static final int QA = 255;
+    static final int QB = 64;
+    static final int SCALE = 400;
+    static final int MAX_OUTPUT_WEIGHT = 255;
+
+    private final int hiddenSize;
+    final int[] featureWeights;
+    final int[] featureBiases;
+    final int[] outputWeights;
+    private final int outputBias;
+
+    NnueNetwork(int hiddenSize, int[] featureWeights, int[] featureBiases, int[] outputWeights, int outputBias) {
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public static NnueNetwork load(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an NNUE weights file: " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported NNUE weights version " + version + ": " + path);
+        }
+        int hiddenSize = buffer.getInt();
+        long expected = 12 + 2L * (INPUTS * (long) hiddenSize + hiddenSize + 2L * hiddenSize) + 4;
+        if (hiddenSize <= 0 || hiddenSize > 4096 || buffer.capacity() != expected) {
+            throw new IOException("NNUE weights file has the wrong size for hidden size " + hiddenSize + ": " + path);
+        }
+        int[] featureWeights = readShorts(buffer, INPUTS * hiddenSize);
+        int[] featureBiases = readShorts(buffer, hiddenSize);
+        int[] outputWeights = readShorts(buffer, 2 * hiddenSize);
+        for (int weight : outputWeights) {
+            // Keeps every vector lane's running sum inside an int between flushes.
+            if (Math.abs(weight) > MAX_OUTPUT_WEIGHT) {
+                throw new IOException("NNUE output weight " + weight + " is outside +-" + MAX_OUTPUT_WEIGHT + ": " + path);
+            }
+        }
+        return new NnueNetwork(hiddenSize, featureWeights, featureBiases, outputWeights, buffer.getInt());
+    }
+
+    private static int[] readShorts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getShort();
+        }
+        return values;
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    // Centipawns from the side to move's point of view, like Evaluator.evaluate. Uses the board's
+    // accumulator when it is attached to this network, and builds one from scratch otherwise.
+    public int evaluate(EngineBoard board) {
+        NnueAccumulator accumulator = board.getAccumulator();
+        if (accumulator == null || accumulator.getNetwork() != this) {
+            accumulator = new NnueAccumulator(this, board);
+        }
+        int us = board.getSideToMove();
+        long sum = NnueKernels.screluDot(accumulator.perspective(us), outputWeights, 0)
+                + NnueKernels.screluDot(accumulator.perspective(us ^ 1), outputWeights, hiddenSize);
+        return (int) ((sum / QA + outputBias) * SCALE / (QA * QB));
+    }
+
+    // Row of the first-layer weight matrix for a piece on a square, seen from one side.
+    int featureOffset(int perspective, int piece, int square) {
+        int color = piece / 6;
+        int type = piece % 6;
+        // White sees a1 as square 0; black sees the board flipped, with its own pieces first.
+        int relativeSquare = perspective == EngineBoard.WHITE ? square ^ 56 : square;
+        int relativeColor = color == perspective ? 0 : 1;
+        return (relativeColor * 384 + type * 64 + relativeSquare) * hiddenSize;
+    }
+
+    public static boolean isVectorized() {
+        return NnueKernels.VECTORIZED;
+    }
+}
@@ -0,0 +1,62 @@
+package com.chessgame;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// SIMD versions of NnueKernels' loops. Only NnueKernels calls in here, and only once it has checked
+// that the incubator module is present, so the class never loads on a JVM without it.
+final class NnueVectorKernels {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    // A lane gains at most QA^2 * MAX_OUTPUT_WEIGHT per step, so 64 steps stay well inside an int.
+    private static final int FLUSH_INTERVAL = 64;
+
+    private NnueVectorKernels() {
+    }
+
+    static void add(int[] values, int[] weights, int offset) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(values.length); i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, values, i)
+                    .add(IntVector.fromArray(SPECIES, weights, offset + i))
+                    .intoArray(values, i);
+        }
+        for (; i < values.length; i++) {
+            values[i] += weights[offset + i];
+        }
+    }
+
+    static void subtract(int[] values, int[] weights, int offset) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(values.length); i < bound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, values, i)
+                    .sub(IntVector.fromArray(SPECIES, weights, offset + i))
+                    .intoArray(values, i);
+        }
+        for (; i < values.length; i++) {
+            values[i] -= weights[offset + i];
+        }
+    }
+
+    static long screluDot(int[] values, int[] weights, int offset) {
+        IntVector lanes = IntVector.zero(SPECIES);
+        long sum = 0;
+        int steps = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(values.length); i < bound; i += SPECIES.length()) {
+            IntVector clipped = IntVector.fromArray(SPECIES, values, i).max(0).min(NnueNetwork.QA);
+            lanes = lanes.add(clipped.mul(clipped).mul(IntVector.fromArray(SPECIES, weights, offset + i)));
+            if (++steps == FLUSH_INTERVAL) {
+                sum += lanes.reduceLanesToLong(VectorOperators.ADD);
+                lanes = IntVector.zero(SPECIES);
+                steps = 0;
+            }
+        }
+        sum += lanes.reduceLanesToLong(VectorOperators.ADD);
+        for (; i < values.length; i++) {
+            int clipped = Math.min(Math.max(values[i], 0), NnueNetwork.QA);
+            sum += clipped * clipped * weights[offset + i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,178 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read side of the opening explorer table written by OpeningTreeBuilder. Same layout idea as
+// PositionIndex: a fan-out table on the top 16 hash bits, then fixed-size entries sorted by
+// (hash as unsigned, move):
+//
+//   magic (8 bytes) | entry count (8) | fan-out table (65536 x 8) | entries (24 bytes each)
+//   entry: hash (8) | move (4) | white wins (4) | draws (4) | black wins (4)
+//
+// Entries are memory-mapped, so a lookup from the GUI touches a handful of pages at most.
+public final class OpeningTree implements AutoCloseable {
+    static final long MAGIC = 0x43484F50454E5452L; // "CHOPENTR"
+    static final int ENTRY_BYTES = 24;
+    static final int FAN_OUT_BITS = 16;
+    static final int FAN_OUT_SIZE = 1 << FAN_OUT_BITS;
+    static final int HEADER_BYTES = 16 + FAN_OUT_SIZE * 8;
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_ENTRIES = 1L << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final long entryCount;
+    private final long[] fanOut = new long[FAN_OUT_SIZE];
+    private final MappedByteBuffer[] segments;
+
+    private OpeningTree(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Opening tree is truncated");
+            }
+        }
+        header.flip();
+        if (header.getLong() != MAGIC) {
+            throw new IOException("Not an opening tree");
+        }
+        entryCount = header.getLong();
+        for (int i = 0; i < FAN_OUT_SIZE; i++) {
+            fanOut[i] = header.getLong();
+        }
+        if (fanOut[FAN_OUT_SIZE - 1] != entryCount || channel.size() != HEADER_BYTES + entryCount * ENTRY_BYTES) {
+            throw new IOException("Opening tree is corrupt or truncated");
+        }
+        segments = new MappedByteBuffer[(int) ((entryCount + SEGMENT_ENTRIES - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long first = i * SEGMENT_ENTRIES;
+            long entries = Math.min(SEGMENT_ENTRIES, entryCount - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * ENTRY_BYTES,
+                    entries * ENTRY_BYTES);
+        }
+    }
+
+    public static OpeningTree open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new OpeningTree(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return entryCount;
+    }
+
+    // Every archived move from the position, most played first.
+    public List<OpeningMove> lookup(long hash) {
+        int bucket = (int) (hash >>> (64 - FAN_OUT_BITS));
+        long low = bucket == 0 ? 0 : fanOut[bucket - 1];
+        long high = fanOut[bucket];
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(hashAt(middle), hash) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        List<OpeningMove> moves = new ArrayList<>();
+        for (long entry = low; entry < entryCount && hashAt(entry) == hash; entry++) {
+            ByteBuffer segment = segments[(int) (entry >>> SEGMENT_SHIFT)];
+            int offset = (int) (entry & (SEGMENT_ENTRIES - 1)) * ENTRY_BYTES;
+            moves.add(new OpeningMove(Move.toUci(segment.getInt(offset + 8)), segment.getInt(offset + 12),
+                    segment.getInt(offset + 16), segment.getInt(offset + 20)));
+        }
+        moves.sort((a, b) -> Long.compare(b.getGames(), a.getGames()));
+        return moves;
+    }
+
+    public List<OpeningMove> lookup(PositionSnapshot position) {
+        return lookup(position.getHash());
+    }
+
+    private long hashAt(long entry) {
+        return segments[(int) (entry >>> SEGMENT_SHIFT)].getLong((int) (entry & (SEGMENT_ENTRIES - 1)) * ENTRY_BYTES);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static final class OpeningMove {
+        private final String move;
+        private final int whiteWins;
+        private final int draws;
+        private final int blackWins;
+
+        OpeningMove(String move, int whiteWins, int draws, int blackWins) {
+            this.move = move;
+            this.whiteWins = whiteWins;
+            this.draws = draws;
+            this.blackWins = blackWins;
+        }
+
+        public String getMove() {
+            return move;
+        }
+
+        public int getWhiteWins() {
+            return whiteWins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getBlackWins() {
+            return blackWins;
+        }
+
+        public long getGames() {
+            return (long) whiteWins + draws + blackWins;
+        }
+
+        public double getWhiteWinRate() {
+            return (double) whiteWins / getGames();
+        }
+
+        public double getDrawRate() {
+            return (double) draws / getGames();
+        }
+
+        public double getBlackWinRate() {
+            return (double) blackWins / getGames();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %d games: %.0f%% / %.0f%% / %.0f%%", move, getGames(),
+                    getWhiteWinRate() * 100, getDrawRate() * 100, getBlackWinRate() * 100);
+        }
+    }
+
+    // Usage: OpeningTree <table> <fen>
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningTree <table> <fen>");
+            return;
+        }
+        try (OpeningTree tree = open(Paths.get(args[0]))) {
+            for (OpeningMove move : tree.lookup(PositionSnapshot.fromFen(args[1]).getHash())) {
+                System.out.println(move);
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.chessgame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+// Streams a game archive (see GameRecord) into an OpeningTree. Every game is replayed up to the ply
+// cap and each (position hash, move) pair bumps the counter for the game's result. The counters live
+// in an open-addressing table of parallel primitive arrays, so no object is allocated per position.
+// When the table reaches maxEntries it is sorted and spilled to a run file; the runs are then merged,
+// summing equal keys, into the final table.
+public final class OpeningTreeBuilder {
+    private static final int MERGE_FAN_IN = 64;
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+
+    private final int plyCap;
+    private final int maxEntries;
+    private final int mask;
+    private final long[] hashes;
+    private final int[] moves;
+    // Three counters per slot: white wins, draws, black wins.
+    private final int[] counts;
+    private int size;
+    private long gamesAdded;
+    private long gamesSkipped;
+
+    public OpeningTreeBuilder(int plyCap, int maxEntries) {
+        if (plyCap < 1 || maxEntries < 1 || (long) maxEntries + plyCap > 1 << 27) {
+            throw new IllegalArgumentException("plyCap and maxEntries must be positive with a sum of at most 2^27");
+        }
+        this.plyCap = plyCap;
+        this.maxEntries = maxEntries;
+        // The table is only spilled between games, so it must also hold one more game's worth of new
+        // entries past maxEntries. Keep the load factor at or below one half so probe sequences stay short.
+        int capacity = Integer.highestOneBit(maxEntries + plyCap) << 2;
+        this.mask = capacity - 1;
+        this.hashes = new long[capacity];
+        this.moves = new int[capacity];
+        this.counts = new int[capacity * 3];
+    }
+
+    public void build(Path archive, Path table) throws IOException {
+        Path tempDirectory = Files.createTempDirectory(table.toAbsolutePath().getParent(), "opening-tree");
+        List<Path> runs = new ArrayList<>();
+        try {
+            try (Stream<GameRecord> games = GameRecord.readArchive(archive)) {
+                Iterator<GameRecord> source = games.iterator();
+                while (source.hasNext()) {
+                    addGame(source.next());
+                    if (size >= maxEntries) {
+                        runs.add(spill(tempDirectory.resolve("run-" + runs.size())));
+                    }
+                }
+            }
+            if (size > 0 || runs.isEmpty()) {
+                runs.add(spill(tempDirectory.resolve("run-" + runs.size())));
+            }
+            int pass = 0;
+            while (runs.size() > MERGE_FAN_IN) {
+                List<Path> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += MERGE_FAN_IN) {
+                    List<Path> group = runs.subList(from, Math.min(from + MERGE_FAN_IN, runs.size()));
+                    Path output = tempDirectory.resolve("merge-" + pass + "-" + merged.size());
+                    try (DataOutputStream out = openStream(output)) {
+                        merge(group, out, null);
+                    }
+                    deleteAll(group);
+                    merged.add(output);
+                }
+                runs = merged;
+                pass++;
+            }
+            writeTable(runs, table);
+        } finally {
+            deleteAll(runs);
+            Files.deleteIfExists(tempDirectory);
+        }
+    }
+
+    // Unfinished games ("*") say nothing about how a move scores, so they are left out.
+    public void addGame(GameRecord game) {
+        int result = resultIndex(game.getResult());
+        if (result < 0) {
+            gamesSkipped++;
+            return;
+        }
+        EngineBoard board = EngineBoard.startingPosition();
+        List<String> gameMoves = game.getMoves();
+        int plies = Math.min(plyCap, gameMoves.size());
+        for (int ply = 0; ply < plies; ply++) {
+            int move = board.parseUciMove(gameMoves.get(ply));
+            if (move == Move.NONE) {
+                System.err.println("Illegal move " + gameMoves.get(ply) + " at ply " + ply + " in: " + game);
+                break;
+            }
+            increment(board.getHash(), Move.of(Move.from(move), Move.to(move), Move.promotion(move), 0), result);
+            board.makeMove(move);
+        }
+        gamesAdded++;
+    }
+
+    private static int resultIndex(String result) {
+        switch (result) {
+            case GameRecord.WHITE_WINS:
+                return 0;
+            case GameRecord.DRAW:
+                return 1;
+            case GameRecord.BLACK_WINS:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+    private void increment(long hash, int move, int result) {
+        int slot = (int) mix(hash ^ move) & mask;
+        // Move.NONE never occurs as a played move, so a zero move marks an empty slot.
+        while (moves[slot] != Move.NONE && (moves[slot] != move || hashes[slot] != hash)) {
+            slot = (slot + 1) & mask;
+        }
+        if (moves[slot] == Move.NONE) {
+            hashes[slot] = hash;
+            moves[slot] = move;
+            size++;
+        }
+        counts[slot * 3 + result]++;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    // Writes the table's entries sorted by (hash as unsigned, move) and empties it.
+    private Path spill(Path run) throws IOException {
+        int[] order = new int[size];
+        int used = 0;
+        for (int slot = 0; slot <= mask; slot++) {
+            if (moves[slot] != Move.NONE) {
+                order[used++] = slot;
+            }
+        }
+        sort(order, 0, used - 1);
+        try (DataOutputStream out = openStream(run)) {
+            for (int i = 0; i < used; i++) {
+                int slot = order[i];
+                writeEntry(out, hashes[slot], moves[slot], counts[slot * 3], counts[slot * 3 + 1], counts[slot * 3 + 2]);
+            }
+        }
+        Arrays.fill(moves, Move.NONE);
+        Arrays.fill(counts, 0);
+        size = 0;
+        return run;
+    }
+
+    private void sort(int[] order, int low, int high) {
+        while (high - low > 16) {
+            int pivot = order[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compareSlots(order[i], pivot) < 0) {
+                    i++;
+                }
+                while (compareSlots(order[j], pivot) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            // Recurse into the smaller side so the stack stays logarithmic.
+            if (j - low < high - i) {
+                sort(order, low, j);
+                low = i;
+            } else {
+                sort(order, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            int slot = order[i];
+            int j = i;
+            for (; j > low && compareSlots(slot, order[j - 1]) < 0; j--) {
+                order[j] = order[j - 1];
+            }
+            order[j] = slot;
+        }
+    }
+
+    private int compareSlots(int a, int b) {
+        int order = Long.compareUnsigned(hashes[a], hashes[b]);
+        return order != 0 ? order : Integer.compare(moves[a], moves[b]);
+    }
+
+    private static void writeTable(List<Path> runs, Path table) throws IOException {
+        long[] fanOut = new long[OpeningTree.FAN_OUT_SIZE];
+        long count;
+        try (DataOutputStream out = openStream(table)) {
+            out.write(new byte[OpeningTree.HEADER_BYTES]);
+            count = merge(runs, out, fanOut);
+        }
+        for (int i = 1; i < fanOut.length; i++) {
+            fanOut[i] += fanOut[i - 1];
+        }
+        ByteBuffer header = ByteBuffer.allocate(OpeningTree.HEADER_BYTES);
+        header.putLong(OpeningTree.MAGIC).putLong(count);
+        for (long end : fanOut) {
+            header.putLong(end);
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(table, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    // k-way merge of sorted runs that sums the counters of equal keys. Counts entries per fan-out
+    // bucket when bucketCounts is given.
+    private static long merge(List<Path> runs, DataOutputStream out, long[] bucketCounts) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+            int order = Long.compareUnsigned(a.hash, b.hash);
+            return order != 0 ? order : Integer.compare(a.move, b.move);
+        });
+        List<RunReader> readers = new ArrayList<>();
+        long count = 0;
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader first = queue.poll();
+                long hash = first.hash;
+                int move = first.move;
+                long white = first.white;
+                long draws = first.draws;
+                long black = first.black;
+                if (first.advance()) {
+                    queue.add(first);
+                }
+                while (!queue.isEmpty() && queue.peek().hash == hash && queue.peek().move == move) {
+                    RunReader next = queue.poll();
+                    white += next.white;
+                    draws += next.draws;
+                    black += next.black;
+                    if (next.advance()) {
+                        queue.add(next);
+                    }
+                }
+                writeEntry(out, hash, move, saturate(white), saturate(draws), saturate(black));
+                if (bucketCounts != null) {
+                    bucketCounts[(int) (hash >>> (64 - OpeningTree.FAN_OUT_BITS))]++;
+                }
+                count++;
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+        return count;
+    }
+
+    private static int saturate(long count) {
+        return (int) Math.min(Integer.MAX_VALUE, count);
+    }
+
+    private static void writeEntry(DataOutputStream out, long hash, int move, int white, int draws, int black)
+            throws IOException {
+        out.writeLong(hash);
+        out.writeInt(move);
+        out.writeInt(white);
+        out.writeInt(draws);
+        out.writeInt(black);
+    }
+
+    private static DataOutputStream openStream(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_BYTES));
+    }
+
+    private static void deleteAll(List<Path> paths) throws IOException {
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public long getGamesAdded() {
+        return gamesAdded;
+    }
+
+    public long getGamesSkipped() {
+        return gamesSkipped;
+    }
+
+    private static final class RunReader implements AutoCloseable {
+        private final DataInputStream in;
+        long hash;
+        int move;
+        int white;
+        int draws;
+        int black;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_BYTES));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                hash = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            move = in.readInt();
+            white = in.readInt();
+            draws = in.readInt();
+            black = in.readInt();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Usage: OpeningTreeBuilder <archive> <table> [plyCap] [maxEntries]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningTreeBuilder <archive> <table> [plyCap] [maxEntries]");
+            return;
+        }
+        int plyCap = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int maxEntries = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 22;
+        long start = System.currentTimeMillis();
+        OpeningTreeBuilder builder = new OpeningTreeBuilder(plyCap, maxEntries);
+        builder.build(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Games: " + builder.getGamesAdded() + ", skipped: " + builder.getGamesSkipped()
+                + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,15 @@
+package com.chessgame;
+
+public interface OperationMetricsMBean {
+    long getCount();
+
+    long getErrorCount();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
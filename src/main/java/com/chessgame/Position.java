@@ -1,13 +1,40 @@
 package com.chessgame;
 
-public class Position {
-    private int row;
-    private int column;
-  
-    public Position(int row, int column) {
+public final class Position {
+    private static final Position[] SQUARES = new Position[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new Position(square / 8, square % 8);
+        }
+    }
+
+    private final int row;
+    private final int column;
+
+    private Position(int row, int column) {
         this.row = row;
         this.column = column;
     }
+
+    public static Position of(int row, int column) {
+        if (!isOnBoard(row, column)) {
+            throw new IllegalArgumentException("Square off the board: " + row + "," + column);
+        }
+        return SQUARES[row * 8 + column];
+    }
+
+    public static Position of(int square) {
+        return SQUARES[square];
+    }
+
+    public static Position fromChessNotation(CharSequence notation, int offset) {
+        return of(8 - (notation.charAt(offset + 1) - '0'), notation.charAt(offset) - 'a');
+    }
+
+    public static boolean isOnBoard(int row, int column) {
+        return row >= 0 && row < 8 && column >= 0 && column < 8;
+    }
   
     public int getRow() {
         return row;
@@ -17,6 +44,20 @@ public class Position {
         return column;
     }
 
+    public int getSquare() {
+        return row * 8 + column;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Position && ((Position) other).getSquare() == getSquare();
+    }
+
+    @Override
+    public int hashCode() {
+        return getSquare();
+    }
+
     @Override
     public String toString() {
     return toChessNotation();
@@ -0,0 +1,174 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Read side of the on-disk position index written by PositionIndexBuilder. The file is a header
+// followed by fixed-size records sorted by (Zobrist hash as unsigned, game, ply):
+//
+//   magic (8 bytes) | record count (8) | fan-out table (65536 x 8) | records (16 bytes each)
+//
+// fanOut[b] is the number of records whose hash has a top 16 bits of at most b, so a lookup
+// jumps straight to one bucket and binary-searches only that. The records are memory-mapped in
+// 1 GiB segments, which keeps indexes larger than a single MappedByteBuffer usable and leaves
+// caching to the operating system. Lookups are thread-safe.
+public final class PositionIndex implements AutoCloseable {
+    static final long MAGIC = 0x4348504F53494458L; // "CHPOSIDX"
+    static final int RECORD_BYTES = 16;
+    static final int FAN_OUT_BITS = 16;
+    static final int FAN_OUT_SIZE = 1 << FAN_OUT_BITS;
+    static final int HEADER_BYTES = 16 + FAN_OUT_SIZE * 8;
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_RECORDS = 1L << SEGMENT_SHIFT;
+
+    private final FileChannel channel;
+    private final long recordCount;
+    private final long[] fanOut = new long[FAN_OUT_SIZE];
+    private final MappedByteBuffer[] segments;
+
+    private PositionIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.BIG_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Position index is truncated");
+            }
+        }
+        header.flip();
+        if (header.getLong() != MAGIC) {
+            throw new IOException("Not a position index");
+        }
+        recordCount = header.getLong();
+        for (int i = 0; i < FAN_OUT_SIZE; i++) {
+            fanOut[i] = header.getLong();
+        }
+        if (fanOut[FAN_OUT_SIZE - 1] != recordCount
+                || channel.size() != HEADER_BYTES + recordCount * RECORD_BYTES) {
+            throw new IOException("Position index is corrupt or truncated");
+        }
+        segments = new MappedByteBuffer[(int) ((recordCount + SEGMENT_RECORDS - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long first = i * SEGMENT_RECORDS;
+            long records = Math.min(SEGMENT_RECORDS, recordCount - first);
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES,
+                    records * RECORD_BYTES);
+        }
+    }
+
+    public static PositionIndex open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new PositionIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return recordCount;
+    }
+
+    // Every time a game reached the position, ordered by game then ply. Game numbers are 1-based
+    // line positions in the archive (comments and blank lines excluded); ply 0 is the start position.
+    public List<Occurrence> lookup(long hash) {
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (long record = firstRecord(hash); record < recordCount && hashAt(record) == hash; record++) {
+            long payload = payloadAt(record);
+            occurrences.add(new Occurrence((int) (payload >>> 32), (int) payload));
+        }
+        return occurrences;
+    }
+
+    public long count(long hash) {
+        long first = firstRecord(hash);
+        long record = first;
+        while (record < recordCount && hashAt(record) == hash) {
+            record++;
+        }
+        return record - first;
+    }
+
+    public List<Occurrence> lookup(PositionSnapshot position) {
+        return lookup(position.getHash());
+    }
+
+    // Lower bound of the hash within its fan-out bucket.
+    private long firstRecord(long hash) {
+        int bucket = (int) (hash >>> (64 - FAN_OUT_BITS));
+        long low = bucket == 0 ? 0 : fanOut[bucket - 1];
+        long high = fanOut[bucket];
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(hashAt(middle), hash) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long hashAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) (record & (SEGMENT_RECORDS - 1)) * RECORD_BYTES);
+    }
+
+    private long payloadAt(long record) {
+        return segments[(int) (record >>> SEGMENT_SHIFT)].getLong((int) (record & (SEGMENT_RECORDS - 1)) * RECORD_BYTES + 8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static final class Occurrence {
+        private final int game;
+        private final int ply;
+
+        Occurrence(int game, int ply) {
+            this.game = game;
+            this.ply = ply;
+        }
+
+        public int getGame() {
+            return game;
+        }
+
+        public int getPly() {
+            return ply;
+        }
+
+        @Override
+        public String toString() {
+            return "game " + game + " ply " + ply;
+        }
+    }
+
+    // Usage: PositionIndex <index> <fen>
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PositionIndex <index> <fen>");
+            return;
+        }
+        try (PositionIndex index = open(Paths.get(args[0]))) {
+            long hash = PositionSnapshot.fromFen(args[1]).getHash();
+            long start = System.nanoTime();
+            List<Occurrence> occurrences = index.lookup(hash);
+            long micros = (System.nanoTime() - start) / 1000;
+            for (Occurrence occurrence : occurrences) {
+                System.out.println(occurrence);
+            }
+            System.out.println(occurrences.size() + " occurrences among " + index.size() + " positions in "
+                    + micros + " us");
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.chessgame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+// Builds a PositionIndex from a game archive (see GameRecord) with an external sort. A reader thread
+// feeds games through a bounded queue to replay workers. Each worker fills its own fixed buffer of
+// (hash, game, ply) tuples, sorts it and spills it to a run file. The runs are then merged in passes
+// of at most MERGE_FAN_IN files, and the last pass writes the index. Memory use is workers x
+// runRecords x 16 bytes however large the archive is. The index is written next to its final name and
+// renamed into place, so a build that fails leaves any previous index as it was.
+public final class PositionIndexBuilder {
+    private static final int MERGE_FAN_IN = 64;
+    private static final int IO_BUFFER_BYTES = 1 << 16;
+    private static final Object END_OF_INPUT = new Object();
+
+    private final int workers;
+    private final int runRecords;
+    private final AtomicLong gamesIndexed = new AtomicLong();
+    private final AtomicLong positionsIndexed = new AtomicLong();
+
+    public PositionIndexBuilder(int workers, int runRecords) {
+        if (workers < 1 || runRecords < 1) {
+            throw new IllegalArgumentException("workers and runRecords must be positive");
+        }
+        this.workers = workers;
+        this.runRecords = runRecords;
+    }
+
+    public void build(Path archive, Path index) throws IOException {
+        Path tempDirectory = Files.createTempDirectory(index.toAbsolutePath().getParent(), "position-index");
+        Path partialIndex = tempDirectory.resolve("index");
+        List<Path> runs = new ArrayList<>();
+        try {
+            runs.addAll(writeSortedRuns(archive, tempDirectory));
+            int pass = 0;
+            while (runs.size() > MERGE_FAN_IN) {
+                List<Path> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += MERGE_FAN_IN) {
+                    List<Path> group = runs.subList(from, Math.min(from + MERGE_FAN_IN, runs.size()));
+                    Path output = tempDirectory.resolve("merge-" + pass + "-" + merged.size());
+                    try (DataOutputStream out = openRun(output)) {
+                        merge(group, out, null);
+                    }
+                    deleteAll(group);
+                    merged.add(output);
+                }
+                runs = merged;
+                pass++;
+            }
+            writeIndex(runs, partialIndex);
+            Files.move(partialIndex, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // Whatever is left, including the runs of workers that finished before a failure.
+            try (Stream<Path> leftovers = Files.list(tempDirectory)) {
+                deleteAll(leftovers.toList());
+            }
+            Files.deleteIfExists(tempDirectory);
+        }
+    }
+
+    private List<Path> writeSortedRuns(Path archive, Path tempDirectory) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1, runnable -> {
+            Thread thread = new Thread(runnable, "position-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        BlockingQueue<Object> pending = new ArrayBlockingQueue<>(workers * 64);
+        AtomicReference<RuntimeException> inputFailure = new AtomicReference<>();
+        try (Stream<GameRecord> games = GameRecord.readArchive(archive)) {
+            executor.execute(() -> {
+                try {
+                    Iterator<GameRecord> source = games.iterator();
+                    int gameNumber = 0;
+                    while (source.hasNext()) {
+                        pending.put(new NumberedGame(++gameNumber, source.next()));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // Thrown from build() once the workers have stopped, so no index covers part of the archive.
+                    inputFailure.set(e);
+                } finally {
+                    for (int i = 0; i < workers; i++) {
+                        try {
+                            pending.put(END_OF_INPUT);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            });
+            List<Future<List<Path>>> results = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                int worker = i;
+                results.add(executor.submit(() -> runWorker(worker, pending, tempDirectory)));
+            }
+            List<Path> runs = new ArrayList<>();
+            for (Future<List<Path>> result : results) {
+                try {
+                    runs.addAll(result.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while indexing", e);
+                } catch (ExecutionException e) {
+                    throw new IOException("Indexing failed", e.getCause());
+                }
+            }
+            RuntimeException failure = inputFailure.get();
+            if (failure instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            } else if (failure != null) {
+                throw new IOException("Error reading game archive " + archive + ": " + failure.getMessage(), failure);
+            }
+            return runs;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Path> runWorker(int worker, BlockingQueue<Object> pending, Path tempDirectory)
+            throws IOException, InterruptedException {
+        long[] hashes = new long[runRecords];
+        long[] payloads = new long[runRecords];
+        int size = 0;
+        List<Path> runs = new ArrayList<>();
+        Object item;
+        while ((item = pending.take()) != END_OF_INPUT) {
+            NumberedGame numbered = (NumberedGame) item;
+            EngineBoard board = EngineBoard.startingPosition();
+            List<String> moves = numbered.game.getMoves();
+            int ply = 0;
+            for (; ; ply++) {
+                if (size == runRecords) {
+                    runs.add(spill(hashes, payloads, size, tempDirectory.resolve("run-" + worker + "-" + runs.size())));
+                    size = 0;
+                }
+                hashes[size] = board.getHash();
+                payloads[size] = (long) numbered.number << 32 | ply;
+                size++;
+                if (ply == moves.size()) {
+                    break;
+                }
+                int move = board.parseUciMove(moves.get(ply));
+                if (move == Move.NONE) {
+                    System.err.println("Game " + numbered.number + ": illegal move " + moves.get(ply) + " at ply " + ply);
+                    break;
+                }
+                board.makeMove(move);
+            }
+            positionsIndexed.addAndGet(ply + 1L);
+            gamesIndexed.incrementAndGet();
+        }
+        if (size > 0) {
+            runs.add(spill(hashes, payloads, size, tempDirectory.resolve("run-" + worker + "-" + runs.size())));
+        }
+        return runs;
+    }
+
+    private static Path spill(long[] hashes, long[] payloads, int size, Path run) throws IOException {
+        sort(hashes, payloads, 0, size - 1);
+        try (DataOutputStream out = openRun(run)) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(hashes[i]);
+                out.writeLong(payloads[i]);
+            }
+        }
+        return run;
+    }
+
+    private static void writeIndex(List<Path> runs, Path index) throws IOException {
+        long[] fanOut = new long[PositionIndex.FAN_OUT_SIZE];
+        long count;
+        try (DataOutputStream out = openRun(index)) {
+            out.write(new byte[PositionIndex.HEADER_BYTES]);
+            count = merge(runs, out, fanOut);
+        }
+        // Turn per-bucket counts into cumulative ends.
+        for (int i = 1; i < fanOut.length; i++) {
+            fanOut[i] += fanOut[i - 1];
+        }
+        ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES);
+        header.putLong(PositionIndex.MAGIC).putLong(count);
+        for (long end : fanOut) {
+            header.putLong(end);
+        }
+        header.flip();
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    // k-way merge of sorted runs; counts records per fan-out bucket when bucketCounts is given.
+    private static long merge(List<Path> runs, DataOutputStream out, long[] bucketCounts) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+            int order = Long.compareUnsigned(a.hash, b.hash);
+            return order != 0 ? order : Long.compare(a.payload, b.payload);
+        });
+        List<RunReader> readers = new ArrayList<>();
+        long count = 0;
+        try {
+            for (Path run : runs) {
+                RunReader reader = new RunReader(run);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                out.writeLong(reader.hash);
+                out.writeLong(reader.payload);
+                if (bucketCounts != null) {
+                    bucketCounts[(int) (reader.hash >>> (64 - PositionIndex.FAN_OUT_BITS))]++;
+                }
+                count++;
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+        return count;
+    }
+
+    private static DataOutputStream openRun(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), IO_BUFFER_BYTES));
+    }
+
+    private static void deleteAll(List<Path> paths) throws IOException {
+        for (Path path : paths) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // Quicksort of parallel arrays by (hash as unsigned, payload).
+    private static void sort(long[] hashes, long[] payloads, int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            long pivotHash = hashes[middle];
+            long pivotPayload = payloads[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(hashes[i], payloads[i], pivotHash, pivotPayload) < 0) {
+                    i++;
+                }
+                while (compare(hashes[j], payloads[j], pivotHash, pivotPayload) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(hashes, payloads, i++, j--);
+                }
+            }
+            // Recurse into the smaller side so the stack stays logarithmic.
+            if (j - low < high - i) {
+                sort(hashes, payloads, low, j);
+                low = i;
+            } else {
+                sort(hashes, payloads, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(hashes[j], payloads[j], hashes[j - 1], payloads[j - 1]) < 0; j--) {
+                swap(hashes, payloads, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long hash, long payload, long otherHash, long otherPayload) {
+        int order = Long.compareUnsigned(hash, otherHash);
+        return order != 0 ? order : Long.compare(payload, otherPayload);
+    }
+
+    private static void swap(long[] hashes, long[] payloads, int i, int j) {
+        long hash = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = hash;
+        long payload = payloads[i];
+        payloads[i] = payloads[j];
+        payloads[j] = payload;
+    }
+
+    public long getGamesIndexed() {
+        return gamesIndexed.get();
+    }
+
+    public long getPositionsIndexed() {
+        return positionsIndexed.get();
+    }
+
+    private static final class RunReader implements AutoCloseable {
+        private final DataInputStream in;
+        long hash;
+        long payload;
+
+        RunReader(Path run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_BYTES));
+        }
+
+        boolean advance() throws IOException {
+            try {
+                hash = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            payload = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class NumberedGame {
+        final int number;
+        final GameRecord game;
+
+        NumberedGame(int number, GameRecord game) {
+            this.number = number;
+            this.game = game;
+        }
+    }
+
+    // Usage: PositionIndexBuilder <archive> <index> [workers] [runRecords]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PositionIndexBuilder <archive> <index> [workers] [runRecords]");
+            return;
+        }
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int runRecords = args.length > 3 ? Integer.parseInt(args[3]) : 1 << 22;
+        long start = System.currentTimeMillis();
+        PositionIndexBuilder builder = new PositionIndexBuilder(workers, runRecords);
+        builder.build(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.println("Games: " + builder.getGamesIndexed() + ", positions: " + builder.getPositionsIndexed()
+                + " in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,248 @@
+package com.chessgame;
+
+// Immutable copy of a position: eight occupancy bitboards plus the non-board state.
+// Squares are numbered row * 8 + column, so square 0 is a8 and square 63 is h1.
+public final class PositionSnapshot {
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final String STARTING_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    private final long white;
+    private final long black;
+    private final long pawns;
+    private final long knights;
+    private final long bishops;
+    private final long rooks;
+    private final long queens;
+    private final long kings;
+    private final PieceColor sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final long hash;
+
+    PositionSnapshot(long[] pieceBitboards, PieceColor sideToMove, int castlingRights, int enPassantSquare,
+                     int halfmoveClock, int fullmoveNumber, long hash) {
+        long whitePieces = 0L;
+        long blackPieces = 0L;
+        for (int type = 0; type < 6; type++) {
+            whitePieces |= pieceBitboards[type];
+            blackPieces |= pieceBitboards[type + 6];
+        }
+        this.white = whitePieces;
+        this.black = blackPieces;
+        this.pawns = pieceBitboards[0] | pieceBitboards[6];
+        this.knights = pieceBitboards[1] | pieceBitboards[7];
+        this.bishops = pieceBitboards[2] | pieceBitboards[8];
+        this.rooks = pieceBitboards[3] | pieceBitboards[9];
+        this.queens = pieceBitboards[4] | pieceBitboards[10];
+        this.kings = pieceBitboards[5] | pieceBitboards[11];
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.hash = hash;
+    }
+
+    public static PositionSnapshot fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        long[] pieceBitboards = new long[12];
+        long hash = 0L;
+        int row = 0;
+        int col = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                row++;
+                col = 0;
+            } else if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int index = PIECE_CHARS.indexOf(c);
+                if (index < 0 || !Position.isOnBoard(row, col)) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                pieceBitboards[index] |= 1L << (row * 8 + col);
+                hash ^= Zobrist.PIECE_SQUARE[index][row * 8 + col];
+                col++;
+            }
+        }
+
+        PieceColor sideToMove = fields[1].equals("b") ? PieceColor.BLACK : PieceColor.WHITE;
+        int castlingRights = 0;
+        String castling = fields.length > 2 ? fields[2] : "-";
+        if (castling.indexOf('K') >= 0) castlingRights |= WHITE_KINGSIDE;
+        if (castling.indexOf('Q') >= 0) castlingRights |= WHITE_QUEENSIDE;
+        if (castling.indexOf('k') >= 0) castlingRights |= BLACK_KINGSIDE;
+        if (castling.indexOf('q') >= 0) castlingRights |= BLACK_QUEENSIDE;
+
+        int enPassantSquare = -1;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            int target = Position.fromChessNotation(fields[3], 0).getSquare();
+            // Keep the square only when a pawn can take there, matching how ChessBoard hashes positions.
+            int pawnRow = target / 8 + (sideToMove == PieceColor.WHITE ? 1 : -1);
+            long capturers = pieceBitboards[sideToMove == PieceColor.WHITE ? 0 : 6];
+            for (int pawnCol = target % 8 - 1; pawnCol <= target % 8 + 1; pawnCol += 2) {
+                if (Position.isOnBoard(pawnRow, pawnCol) && (capturers & (1L << (pawnRow * 8 + pawnCol))) != 0) {
+                    enPassantSquare = target;
+                }
+            }
+        }
+        int halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+        int fullmoveNumber = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & (1 << i)) != 0) {
+                hash ^= Zobrist.CASTLING[i];
+            }
+        }
+        if (enPassantSquare >= 0) {
+            hash ^= Zobrist.EN_PASSANT_FILE[enPassantSquare % 8];
+        }
+        if (sideToMove == PieceColor.BLACK) {
+            hash ^= Zobrist.SIDE_TO_MOVE;
+        }
+        return new PositionSnapshot(pieceBitboards, sideToMove, castlingRights, enPassantSquare,
+                halfmoveClock, fullmoveNumber, hash);
+    }
+
+    // Returns the piece index used by Zobrist (0-5 white pawn..king, 6-11 black), or -1 for an empty square.
+    public int pieceIndexAt(int square) {
+        long bit = 1L << square;
+        if (((white | black) & bit) == 0) {
+            return -1;
+        }
+        int offset = (white & bit) != 0 ? 0 : 6;
+        if ((pawns & bit) != 0) return offset;
+        if ((knights & bit) != 0) return offset + 1;
+        if ((bishops & bit) != 0) return offset + 2;
+        if ((rooks & bit) != 0) return offset + 3;
+        if ((queens & bit) != 0) return offset + 4;
+        return offset + 5;
+    }
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int index = pieceIndexAt(row * 8 + col);
+                if (index < 0) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                fen.append(PIECE_CHARS.charAt(index));
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row < 7) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == PieceColor.WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+            if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+        }
+        fen.append(' ').append(enPassantSquare < 0 ? "-" : Position.of(enPassantSquare).toChessNotation());
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    public long getWhite() {
+        return white;
+    }
+
+    public long getBlack() {
+        return black;
+    }
+
+    public long getPawns() {
+        return pawns;
+    }
+
+    public long getKnights() {
+        return knights;
+    }
+
+    public long getBishops() {
+        return bishops;
+    }
+
+    public long getRooks() {
+        return rooks;
+    }
+
+    public long getQueens() {
+        return queens;
+    }
+
+    public long getKings() {
+        return kings;
+    }
+
+    public PieceColor getSideToMove() {
+        return sideToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof PositionSnapshot)) {
+            return false;
+        }
+        PositionSnapshot that = (PositionSnapshot) other;
+        return hash == that.hash && white == that.white && black == that.black && pawns == that.pawns
+                && knights == that.knights && bishops == that.bishops && rooks == that.rooks
+                && queens == that.queens && kings == that.kings && sideToMove == that.sideToMove
+                && castlingRights == that.castlingRights && enPassantSquare == that.enPassantSquare;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        return toFen();
+    }
+}
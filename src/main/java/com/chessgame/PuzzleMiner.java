@@ -0,0 +1,309 @@
+package com.chessgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Mines tactics puzzles from a game archive (see GameRecord for the format) in two stages.
+// Replay workers step through every game with EngineBoard and run a node-capped in-process search
+// on each position. They keep positions where the previous move swung the evaluation towards the
+// side to move and the refutation is forcing. Only those survivors reach the external engines, which
+// run a two-line multi-PV search: a puzzle needs a winning best move and a second-best move that
+// does not win. Every queue is bounded, so memory stays flat however large the archive is.
+// Each mine() runs its own reader and replay workers, and they are cancelled when it returns, so a
+// run that fails part way does not hold up the next one.
+public class PuzzleMiner implements AutoCloseable {
+    private static final int MIN_PLY = 10;
+    private static final int SWING = 200;
+    private static final int MIN_ADVANTAGE = 150;
+    private static final int ALREADY_DECIDED = 400;
+    private static final long FILTER_NODES = 2000;
+    private static final int WINNING = 250;
+    private static final int SECOND_BEST_LIMIT = 80;
+    private static final Object END_OF_INPUT = new Object();
+
+    private final BatchAnalyzer verifier;
+    private final SearchLimits verifyLimits;
+    private final int replayWorkers;
+    private final int queueCapacity;
+    private final ExecutorService executor;
+    private final Set<Long> seenPositions = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> origins = new ConcurrentHashMap<>();
+    private final AtomicLong gamesScanned = new AtomicLong();
+    private final AtomicLong positionsScanned = new AtomicLong();
+    private final AtomicLong candidatesFound = new AtomicLong();
+    private final AtomicLong puzzlesFound = new AtomicLong();
+
+    public PuzzleMiner(BatchAnalyzer verifier, SearchLimits verifyLimits, int replayWorkers, int queueCapacity) {
+        if (replayWorkers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("replayWorkers and queueCapacity must be positive");
+        }
+        this.verifier = verifier;
+        this.verifyLimits = verifyLimits;
+        this.replayWorkers = replayWorkers;
+        this.queueCapacity = queueCapacity;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "puzzle-miner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Writes one puzzle per line: FEN, solution move, engine score ("+312" or "#3"), game number and ply.
+    // Throws if the archive cannot be read to the end, after the positions read before that are verified.
+    public long mine(Path archive, Path output) throws IOException {
+        AtomicReference<RuntimeException> inputFailure = new AtomicReference<>();
+        try (Stream<GameRecord> games = GameRecord.readArchive(archive);
+             BufferedWriter writer = Files.newBufferedWriter(output);
+             Stream<List<AnalysisResult>> results = verifier.analyze(candidates(games, inputFailure), verifyLimits, 2)) {
+            writer.write("# fen,move,score,game,ply");
+            writer.newLine();
+            Iterator<List<AnalysisResult>> verified = results.iterator();
+            while (verified.hasNext()) {
+                List<AnalysisResult> lines = verified.next();
+                AnalysisResult best = lines.get(0);
+                String origin = origins.remove(best.getFen());
+                if (best.isFailed()) {
+                    System.err.println("Puzzle verification failed: " + best);
+                } else if (isPuzzle(lines)) {
+                    writer.write(best.getFen() + "," + best.getBestMove() + "," + formatScore(best) + "," + origin);
+                    writer.newLine();
+                    puzzlesFound.incrementAndGet();
+                }
+            }
+        } catch (RuntimeException e) {
+            RuntimeException failure = inputFailure.get();
+            if (failure == null) {
+                throw e;
+            }
+            if (failure instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            throw new IOException("Error reading game archive " + archive + ": " + failure.getMessage(), failure);
+        }
+        return puzzlesFound.get();
+    }
+
+    // The failure that ended reading early, if any, goes into inputFailure and is thrown to the consumer
+    // once the workers have scanned everything read before it. Closing the stream cancels the run.
+    private Stream<String> candidates(Stream<GameRecord> games, AtomicReference<RuntimeException> inputFailure) {
+        BlockingQueue<Object> pending = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Object> candidates = new ArrayBlockingQueue<>(queueCapacity);
+        List<Future<?>> tasks = new ArrayList<>();
+
+        tasks.add(executor.submit(() -> {
+            try {
+                Iterator<GameRecord> source = games.iterator();
+                long gameNumber = 0;
+                while (source.hasNext()) {
+                    pending.put(new NumberedGame(++gameNumber, source.next()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                inputFailure.set(e);
+            } finally {
+                for (int i = 0; i < replayWorkers; i++) {
+                    putQuietly(pending, END_OF_INPUT);
+                }
+            }
+        }));
+        for (int i = 0; i < replayWorkers; i++) {
+            tasks.add(executor.submit(() -> runReplayWorker(pending, candidates)));
+        }
+
+        Iterator<String> iterator = new Iterator<>() {
+            private int finishedWorkers;
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && finishedWorkers < replayWorkers) {
+                    try {
+                        Object candidate = candidates.take();
+                        if (candidate == END_OF_INPUT) {
+                            finishedWorkers++;
+                        } else {
+                            next = (String) candidate;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                if (next == null && inputFailure.get() != null) {
+                    throw inputFailure.get();
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String candidate = next;
+                next = null;
+                return candidate;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    for (Future<?> task : tasks) {
+                        task.cancel(true);
+                    }
+                });
+    }
+
+    private void runReplayWorker(BlockingQueue<Object> pending, BlockingQueue<Object> candidates) {
+        Searcher searcher = new Searcher(4);
+        try {
+            Object item;
+            while ((item = pending.take()) != END_OF_INPUT) {
+                NumberedGame numbered = (NumberedGame) item;
+                scanGame(numbered.number, numbered.game, searcher, candidates);
+                gamesScanned.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            putQuietly(candidates, END_OF_INPUT);
+        }
+    }
+
+    private void scanGame(long gameNumber, GameRecord game, Searcher searcher, BlockingQueue<Object> candidates)
+            throws InterruptedException {
+        EngineBoard board = EngineBoard.startingPosition();
+        List<String> moves = game.getMoves();
+        int previousEval = 0;
+        for (int ply = 0; ply <= moves.size(); ply++) {
+            if (ply >= MIN_PLY - 1) {
+                positionsScanned.incrementAndGet();
+                SearchResult result = searcher.search(board, SearchLimits.nodes(FILTER_NODES));
+                int eval = result.getScore();
+                // previousEval is the opponent's view one ply ago, so the swing in our favour is eval + previousEval.
+                if (ply >= MIN_PLY && Math.abs(previousEval) <= ALREADY_DECIDED && eval >= MIN_ADVANTAGE
+                        && eval + previousEval >= SWING && isForcing(board, result.getBestMove())
+                        && seenPositions.add(board.getHash())) {
+                    String fen = board.toFen();
+                    origins.put(fen, gameNumber + "," + ply);
+                    candidatesFound.incrementAndGet();
+                    candidates.put(fen);
+                }
+                previousEval = eval;
+            }
+            if (ply == moves.size()) {
+                break;
+            }
+            int move = board.parseUciMove(moves.get(ply));
+            if (move == Move.NONE) {
+                System.err.println("Game " + gameNumber + ": illegal move " + moves.get(ply) + " at ply " + ply);
+                return;
+            }
+            board.makeMove(move);
+        }
+    }
+
+    private static boolean isForcing(EngineBoard board, int move) {
+        if (move == Move.NONE) {
+            return false;
+        }
+        if (Move.isCapture(move) || Move.promotion(move) != 0) {
+            return true;
+        }
+        board.makeMove(move);
+        boolean check = board.isInCheck();
+        board.unmakeMove(move);
+        return check;
+    }
+
+    private static boolean isPuzzle(List<AnalysisResult> lines) {
+        // A position with a single legal move has nothing to solve.
+        if (lines.size() < 2 || lines.get(1).isFailed()) {
+            return false;
+        }
+        return lines.get(0).getComparableScore() >= WINNING && lines.get(1).getComparableScore() <= SECOND_BEST_LIMIT;
+    }
+
+    private static String formatScore(AnalysisResult result) {
+        return result.isMateScore() ? "#" + result.getScore() : String.format("%+d", result.getScore());
+    }
+
+    private static void putQuietly(BlockingQueue<Object> queue, Object item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getGamesScanned() {
+        return gamesScanned.get();
+    }
+
+    public long getPositionsScanned() {
+        return positionsScanned.get();
+    }
+
+    public long getCandidatesFound() {
+        return candidatesFound.get();
+    }
+
+    public long getPuzzlesFound() {
+        return puzzlesFound.get();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        verifier.close();
+    }
+
+    private static final class NumberedGame {
+        final long number;
+        final GameRecord game;
+
+        NumberedGame(long number, GameRecord game) {
+            this.number = number;
+            this.game = game;
+        }
+    }
+
+    // Usage: PuzzleMiner <archive> <output> [workers]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PuzzleMiner <archive> <output> [workers]");
+            return;
+        }
+        int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long start = System.currentTimeMillis();
+        try (PuzzleMiner miner = new PuzzleMiner(BatchAnalyzer.withBundledStockfish(workers),
+                SearchLimits.depth(18), workers, workers * 16)) {
+            long puzzles = miner.mine(Paths.get(args[0]), Paths.get(args[1]));
+            System.out.println("Games: " + miner.getGamesScanned() + ", positions: " + miner.getPositionsScanned()
+                    + ", candidates: " + miner.getCandidatesFound() + ", puzzles: " + puzzles
+                    + " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+}
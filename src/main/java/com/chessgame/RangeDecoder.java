@@ -0,0 +1,58 @@
+package com.chessgame;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Mirror of RangeEncoder. It reads exactly the bytes the encoder wrote, so running out of input
+// means the stream was truncated.
+final class RangeDecoder {
+    private final InputStream in;
+    private int range = 0xFFFFFFFF;
+    private int code;
+
+    RangeDecoder(InputStream in) throws IOException {
+        this.in = in;
+        for (int i = 0; i < 5; i++) {
+            code = (code << 8) | nextByte();
+        }
+    }
+
+    int decodeBit(short[] probabilities, int index) throws IOException {
+        int probability = probabilities[index];
+        int bound = (range >>> RangeEncoder.PROBABILITY_BITS) * probability;
+        int bit;
+        if (Integer.compareUnsigned(code, bound) < 0) {
+            range = bound;
+            probabilities[index] = (short) (probability
+                    + (((1 << RangeEncoder.PROBABILITY_BITS) - probability) >>> RangeEncoder.ADAPT_SHIFT));
+            bit = 0;
+        } else {
+            code -= bound;
+            range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> RangeEncoder.ADAPT_SHIFT));
+            bit = 1;
+        }
+        while (Integer.compareUnsigned(range, RangeEncoder.TOP) < 0) {
+            range <<= 8;
+            code = (code << 8) | nextByte();
+        }
+        return bit;
+    }
+
+    int decodeTree(short[] probabilities, int bits) throws IOException {
+        int node = 1;
+        for (int i = 0; i < bits; i++) {
+            node = (node << 1) | decodeBit(probabilities, node);
+        }
+        return node - (1 << bits);
+    }
+
+    private int nextByte() throws IOException {
+        int value = in.read();
+        if (value < 0) {
+            throw new EOFException("Range-coded stream is truncated");
+        }
+        return value;
+    }
+}
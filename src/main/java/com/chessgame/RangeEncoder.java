@@ -0,0 +1,80 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// Binary adaptive range coder (the LZMA scheme): every bit is coded against an 11-bit probability
+// that drifts toward the bits actually seen, so skewed symbols cost well under a bit each.
+final class RangeEncoder {
+    static final int PROBABILITY_BITS = 11;
+    static final short INITIAL_PROBABILITY = 1 << (PROBABILITY_BITS - 1);
+    static final int ADAPT_SHIFT = 5;
+    static final int TOP = 1 << 24;
+
+    private final OutputStream out;
+    private long low;
+    private int range = 0xFFFFFFFF;
+    private int cache;
+    private long cacheSize = 1;
+
+    RangeEncoder(OutputStream out) {
+        this.out = out;
+    }
+
+    static short[] newModel(int bits) {
+        short[] probabilities = new short[1 << bits];
+        Arrays.fill(probabilities, INITIAL_PROBABILITY);
+        return probabilities;
+    }
+
+    void encodeBit(short[] probabilities, int index, int bit) throws IOException {
+        int probability = probabilities[index];
+        int bound = (range >>> PROBABILITY_BITS) * probability;
+        if (bit == 0) {
+            range = bound;
+            probabilities[index] = (short) (probability + (((1 << PROBABILITY_BITS) - probability) >>> ADAPT_SHIFT));
+        } else {
+            low += bound & 0xFFFFFFFFL;
+            range -= bound;
+            probabilities[index] = (short) (probability - (probability >>> ADAPT_SHIFT));
+        }
+        while (Integer.compareUnsigned(range, TOP) < 0) {
+            range <<= 8;
+            shiftLow();
+        }
+    }
+
+    // Codes the low `bits` bits of value, most significant first, through a binary tree of
+    // probabilities so every prefix gets its own context.
+    void encodeTree(short[] probabilities, int bits, int value) throws IOException {
+        int node = 1;
+        for (int i = bits - 1; i >= 0; i--) {
+            int bit = (value >>> i) & 1;
+            encodeBit(probabilities, node, bit);
+            node = (node << 1) | bit;
+        }
+    }
+
+    void flush() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            shiftLow();
+        }
+    }
+
+    // Emits the top byte of low once no later carry can change it, holding back a run of 0xFF bytes
+    // that a carry would still ripple through.
+    private void shiftLow() throws IOException {
+        if (low < 0xFF000000L || low > 0xFFFFFFFFL) {
+            int carry = (int) (low >>> 32);
+            int pending = cache;
+            do {
+                out.write(pending + carry);
+                pending = 0xFF;
+            } while (--cacheSize != 0);
+            cache = (int) (low >>> 24) & 0xFF;
+        }
+        cacheSize++;
+        low = (low & 0x00FFFFFFL) << 8;
+    }
+}
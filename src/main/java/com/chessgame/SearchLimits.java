@@ -0,0 +1,84 @@
+package com.chessgame;
+
+public final class SearchLimits {
+    private final int depth;
+    private final long moveTimeMillis;
+    private final long nodes;
+    private final long[] remainingMillis;
+    private final long[] incrementMillis;
+
+    private SearchLimits(int depth, long moveTimeMillis, long nodes, long[] remainingMillis, long[] incrementMillis) {
+        this.depth = depth;
+        this.moveTimeMillis = moveTimeMillis;
+        this.nodes = nodes;
+        this.remainingMillis = remainingMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0, null, null);
+    }
+
+    public static SearchLimits moveTime(long millis) {
+        return new SearchLimits(0, millis, 0, null, null);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, 0, nodes, null, null);
+    }
+
+    // Game-clock limits: the engine decides how much of its remaining time to spend on this move.
+    public static SearchLimits clock(long whiteMillis, long blackMillis, long whiteIncrementMillis,
+                                     long blackIncrementMillis) {
+        return new SearchLimits(0, 0, 0, new long[]{whiteMillis, blackMillis},
+                new long[]{whiteIncrementMillis, blackIncrementMillis});
+    }
+
+    public static SearchLimits clock(GameClock clock) {
+        TimeControl control = clock.getTimeControl();
+        // UCI has no notion of delay; a delay is at least as good as an equal increment for the move at hand.
+        long bonus = control.getIncrementMillis() + control.getDelayMillis();
+        return clock(clock.getRemainingMillis(PieceColor.WHITE), clock.getRemainingMillis(PieceColor.BLACK), bonus, bonus);
+    }
+
+    public boolean hasClock() {
+        return remainingMillis != null;
+    }
+
+    public long getRemainingMillis(PieceColor side) {
+        return remainingMillis == null ? 0 : remainingMillis[side == PieceColor.WHITE ? 0 : 1];
+    }
+
+    public long getIncrementMillis(PieceColor side) {
+        return incrementMillis == null ? 0 : incrementMillis[side == PieceColor.WHITE ? 0 : 1];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public String toGoCommand() {
+        StringBuilder command = new StringBuilder("go");
+        if (depth > 0) command.append(" depth ").append(depth);
+        if (moveTimeMillis > 0) command.append(" movetime ").append(moveTimeMillis);
+        if (nodes > 0) command.append(" nodes ").append(nodes);
+        if (remainingMillis != null) {
+            command.append(" wtime ").append(remainingMillis[0]).append(" btime ").append(remainingMillis[1]);
+            command.append(" winc ").append(incrementMillis[0]).append(" binc ").append(incrementMillis[1]);
+        }
+        return command.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toGoCommand();
+    }
+}
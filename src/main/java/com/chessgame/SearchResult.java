@@ -0,0 +1,47 @@
+package com.chessgame;
+
+public final class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, int[] principalVariation) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.principalVariation = principalVariation;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // Centipawns from the side to move's point of view; mates are reported near Searcher.MATE.
+    public int getScore() {
+        return score;
+    }
+
+    public boolean isMateScore() {
+        return Math.abs(score) >= Searcher.MATE - Searcher.MAX_PLY;
+    }
+
+    // Signed number of moves to mate, positive when the side to move mates.
+    public int getMateIn() {
+        return score > 0 ? (Searcher.MATE - score + 1) / 2 : -(Searcher.MATE + score) / 2;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+}
@@ -0,0 +1,391 @@
+package com.chessgame;
+
+// Iterative-deepening alpha-beta over EngineBoard: principal variation search with a transposition
+// table, null-move pruning and late-move reductions, and a quiescence search that skips captures
+// Static Exchange Evaluation says lose material. One Searcher per thread.
+public class Searcher {
+    public static final int MAX_PLY = 128;
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+
+    private static final int TT_MOVE_SCORE = 2_000_000;
+    private static final int GOOD_CAPTURE_SCORE = 1_000_000;
+    private static final int KILLER_SCORE = 900_000;
+    private static final int BAD_CAPTURE_SCORE = -1_000_000;
+    private static final int CHECK_INTERVAL = 2047;
+
+    private final TranspositionTable table;
+    private final int[][] moveBuffers = new int[MAX_PLY + 1][EngineBoard.MAX_MOVES];
+    private final int[][] scoreBuffers = new int[MAX_PLY + 1][EngineBoard.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private EngineBoard board;
+    private NnueNetwork network;
+    private int[] excludedRootMoves = new int[0];
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private volatile boolean stopRequested;
+    private boolean aborted;
+
+    public Searcher() {
+        this(16);
+    }
+
+    public Searcher(int hashSizeInMegabytes) {
+        this.table = new TranspositionTable(hashSizeInMegabytes);
+    }
+
+    // Evaluates with the network instead of Evaluator; null goes back to the hand-written evaluation.
+    public void setNetwork(NnueNetwork network) {
+        this.network = network;
+    }
+
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public void clear() {
+        table.clear();
+        for (int[] row : history) {
+            java.util.Arrays.fill(row, 0);
+        }
+    }
+
+    public SearchResult search(EngineBoard position, SearchLimits limits) {
+        return search(position, limits, new int[0]);
+    }
+
+    // Searches as if the excluded root moves did not exist; multi-PV analysis finds line N this way.
+    // Returns a result with Move.NONE when no other legal move remains.
+    public SearchResult search(EngineBoard position, SearchLimits limits, int[] excludedRootMoves) {
+        board = position;
+        if (network != null && (board.getAccumulator() == null || board.getAccumulator().getNetwork() != network)) {
+            board.attachNetwork(network);
+        }
+        this.excludedRootMoves = excludedRootMoves;
+        nodes = 0;
+        nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        long startMillis = System.currentTimeMillis();
+        deadline = limits.getMoveTimeMillis() > 0 ? startMillis + limits.getMoveTimeMillis() : Long.MAX_VALUE;
+        TimeManager timeManager = null;
+        if (limits.hasClock()) {
+            timeManager = TimeManager.forMove(limits, board);
+            deadline = startMillis + timeManager.getHardMillis();
+        }
+        stopRequested = false;
+        aborted = false;
+        for (int[] pair : killers) {
+            pair[0] = 0;
+            pair[1] = 0;
+        }
+
+        int maxDepth = limits.getDepth() > 0 ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        int[] rootMoves = new int[EngineBoard.MAX_MOVES];
+        int rootCount = 0;
+        int legalCount = board.generateLegalMoves(rootMoves);
+        for (int i = 0; i < legalCount; i++) {
+            if (!isExcludedAtRoot(rootMoves[i])) {
+                rootMoves[rootCount++] = rootMoves[i];
+            }
+        }
+        if (rootCount == 0) {
+            int score = legalCount == 0 && board.isInCheck() ? -MATE : 0;
+            return new SearchResult(Move.NONE, score, 0, 0, new int[0]);
+        }
+
+        SearchResult result = new SearchResult(rootMoves[0], 0, 0, 0, new int[]{rootMoves[0]});
+        int stableIterations = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY, true);
+            if (aborted && depth > 1) {
+                break;
+            }
+            int[] pv = java.util.Arrays.copyOf(pvTable[0], pvLength[0]);
+            int previousScore = result.getScore();
+            if (pv.length > 0) {
+                stableIterations = pv[0] == result.getBestMove() ? stableIterations + 1 : 0;
+                result = new SearchResult(pv[0], score, depth, nodes, pv);
+            }
+            if (aborted || Math.abs(score) >= MATE - depth) {
+                break;
+            }
+            if (timeManager != null) {
+                // With one legal reply there is nothing to think about.
+                if (rootCount == 1) {
+                    break;
+                }
+                double scale = stableIterations >= 4 ? 0.6 : stableIterations == 0 ? 1.6 : 1.0;
+                if (depth > 1 && score < previousScore - 40) {
+                    scale *= 1.4;
+                }
+                // The next iteration costs more than everything so far, so only start it with time to spare.
+                long elapsed = System.currentTimeMillis() - startMillis;
+                if (elapsed >= timeManager.getSoftMillis() * scale * 0.6) {
+                    break;
+                }
+            }
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                result.getPrincipalVariation());
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    private boolean isExcludedAtRoot(int move) {
+        for (int excluded : excludedRootMoves) {
+            if (excluded == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean shouldStop() {
+        if ((nodes & CHECK_INTERVAL) == 0 && (stopRequested || System.currentTimeMillis() >= deadline)) {
+            aborted = true;
+        }
+        if (nodes >= nodeLimit) {
+            aborted = true;
+        }
+        return aborted;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta, boolean allowNull) {
+        pvLength[ply] = 0;
+        if (ply > 0 && (board.isRepetition() || board.getHalfmoveClock() >= 100)) {
+            return 0;
+        }
+        boolean inCheck = board.isInCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiescence(ply, alpha, beta);
+        }
+        nodes++;
+        if (shouldStop()) {
+            return 0;
+        }
+
+        boolean pvNode = beta - alpha > 1;
+        long entry = table.probe(board.getHash());
+        int ttMove = Move.NONE;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int ttScore = fromTableScore(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && ttScore >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && ttScore <= alpha)) {
+                    return ttScore;
+                }
+            }
+        }
+
+        int us = board.getSideToMove();
+        if (allowNull && !pvNode && !inCheck && depth >= 3 && hasNonPawnMaterial(us)
+                && evaluate() >= beta) {
+            board.makeNullMove();
+            int score = -negamax(depth - 3, ply + 1, -beta, -beta + 1, false);
+            board.unmakeNullMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score >= MATE - MAX_PLY ? beta : score;
+            }
+        }
+
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = board.generateMoves(moves, false);
+        scoreMoves(moves, scores, count, ttMove, ply);
+
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        int originalAlpha = alpha;
+        int legalMoves = 0;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            if (ply == 0 && isExcludedAtRoot(move)) {
+                continue;
+            }
+            board.makeMove(move);
+            if (board.isSquareAttacked(board.getKingSquare(us), us ^ 1)) {
+                board.unmakeMove(move);
+                continue;
+            }
+            legalMoves++;
+            boolean quiet = !Move.isCapture(move) && Move.promotion(move) == 0;
+
+            int score;
+            if (legalMoves == 1) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+            } else {
+                int reduction = quiet && !inCheck && depth >= 3 && legalMoves > 4 ? 1 + (legalMoves > 12 ? 1 : 0) : 0;
+                score = -negamax(depth - 1 - reduction, ply + 1, -alpha - 1, -alpha, true);
+                if (score > alpha && (reduction > 0 || score < beta)) {
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+                }
+            }
+            board.unmakeMove(move);
+            if (aborted) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            storeKiller(ply, move);
+                            history[board.pieceAt(Move.from(move))][Move.to(move)] += depth * depth;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (legalMoves == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        if (ply == 0 && excludedRootMoves.length > 0) {
+            // A root score that ignores some moves is not the position's value; keep it out of the table.
+            return bestScore;
+        }
+        int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(board.getHash(), bestMove, toTableScore(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+        nodes++;
+        if (shouldStop()) {
+            return 0;
+        }
+        int standPat = evaluate();
+        if (ply >= MAX_PLY || standPat >= beta) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+
+        int us = board.getSideToMove();
+        int[] moves = moveBuffers[ply];
+        int[] scores = scoreBuffers[ply];
+        int count = board.generateMoves(moves, true);
+        for (int i = 0; i < count; i++) {
+            scores[i] = mvvLva(moves[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(moves, scores, i, count);
+            // Captures that lose material cannot raise the score above stand pat; skip them.
+            if (Move.promotion(move) == 0 && StaticExchange.isLosingCapture(board, move)) {
+                continue;
+            }
+            board.makeMove(move);
+            if (board.isSquareAttacked(board.getKingSquare(us), us ^ 1)) {
+                board.unmakeMove(move);
+                continue;
+            }
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            board.unmakeMove(move);
+            if (aborted) {
+                return 0;
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    private void scoreMoves(int[] moves, int[] scores, int count, int ttMove, int ply) {
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == ttMove) {
+                scores[i] = TT_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.promotion(move) != 0) {
+                int see = StaticExchange.evaluate(board, move);
+                scores[i] = (see >= 0 ? GOOD_CAPTURE_SCORE : BAD_CAPTURE_SCORE) + mvvLva(move);
+            } else if (move == killers[ply][0]) {
+                scores[i] = KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                scores[i] = KILLER_SCORE - 1;
+            } else {
+                scores[i] = Math.min(history[board.pieceAt(Move.from(move))][Move.to(move)], KILLER_SCORE - 2);
+            }
+        }
+    }
+
+    private int mvvLva(int move) {
+        int victim = Move.isEnPassant(move) ? EngineBoard.PAWN
+                : board.pieceAt(Move.to(move)) == EngineBoard.EMPTY ? EngineBoard.PAWN : board.pieceAt(Move.to(move)) % 6;
+        return StaticExchange.VALUE[victim] * 8 - board.pieceAt(Move.from(move)) % 6 + Move.promotion(move) * 100;
+    }
+
+    private static int pickNext(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void storeKiller(int ply, int move) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        pvTable[ply][0] = move;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+
+    private int evaluate() {
+        return network != null ? network.evaluate(board) : Evaluator.evaluate(board);
+    }
+
+    private boolean hasNonPawnMaterial(int color) {
+        long pawnsAndKing = board.getPieces(color * 6 + EngineBoard.PAWN) | board.getPieces(color * 6 + EngineBoard.KING);
+        return (board.getOccupancy(color) & ~pawnsAndKing) != 0;
+    }
+
+    // Mate scores are stored relative to the node so they stay correct when reached from another ply.
+    private static int toTableScore(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score + ply : score <= -MATE + MAX_PLY ? score - ply : score;
+    }
+
+    private static int fromTableScore(int score, int ply) {
+        return score >= MATE - MAX_PLY ? score - ply : score <= -MATE + MAX_PLY ? score + ply : score;
+    }
+}
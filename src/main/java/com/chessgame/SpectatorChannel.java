@@ -0,0 +1,146 @@
+package com.chessgame;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Fans a game's events out to any number of spectators. Events go into a fixed ring and each subscriber
+// keeps its own read position, so publishing is one array store and one volatile write no matter how
+// many spectators there are or how far behind they are. Waking blocked readers is left to a notifier
+// thread, so the game thread never takes a lock a reader holds.
+//
+// A subscriber that falls a whole ring behind has lost events it never read; it then skips straight to
+// the newest event, which carries the complete position, instead of holding the game up. The sequence
+// gap tells it that happened.
+public final class SpectatorChannel implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final GameEvent[] ring;
+    private final int mask;
+    private final Object monitor = new Object();
+    private final Thread notifier;
+    // Sequence of the newest event; its write orders the ring store before it for readers.
+    private volatile long published = -1;
+    // Readers blocked in take(); only changed under the monitor. Publishing skips the wake-up when it is 0.
+    private volatile int waiting;
+    private volatile boolean closed;
+
+    public SpectatorChannel(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.ring = new GameEvent[size];
+        this.mask = size - 1;
+        this.notifier = new Thread(this::notifyReaders, "spectator-notifier");
+        notifier.setDaemon(true);
+        notifier.start();
+    }
+
+    // Called by the game. Never blocks on spectators.
+    public synchronized GameEvent publish(int ply, int move, PositionSnapshot position, long whiteMillis,
+                                          long blackMillis, GameStatus status) {
+        GameEvent event = new GameEvent(published + 1, ply, move, position, whiteMillis, blackMillis, status);
+        ring[(int) event.getSequence() & mask] = event;
+        published = event.getSequence();
+        if (waiting > 0) {
+            LockSupport.unpark(notifier);
+        }
+        return event;
+    }
+
+    // The newest event, or null before the first one.
+    public GameEvent latest() {
+        long newest = published;
+        return newest < 0 ? null : ring[(int) newest & mask];
+    }
+
+    // A new reader whose first event is the current state, so it needs no separate snapshot.
+    public Subscription subscribe() {
+        return new Subscription(Math.max(0, published));
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Ends the channel. Readers still get what is already published and then see the end.
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(notifier);
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+
+    private void notifyReaders() {
+        long notified = -1;
+        while (!closed) {
+            long newest = published;
+            if (newest == notified) {
+                LockSupport.park(this);
+                continue;
+            }
+            notified = newest;
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    // One reader's position in the channel. Not thread-safe; each consumer uses its own.
+    public final class Subscription {
+        private long next;
+        private long skipped;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        // The next unread event, or null if the reader is up to date.
+        public GameEvent poll() {
+            long newest = published;
+            if (newest < next) {
+                return null;
+            }
+            long wanted = newest - next >= ring.length ? newest : next;
+            // The slot can be overwritten after the check above; whatever is there now is newer still.
+            GameEvent event = ring[(int) wanted & mask];
+            skipped += event.getSequence() - next;
+            next = event.getSequence() + 1;
+            return event;
+        }
+
+        // Waits up to timeoutMillis for the next event. Returns null on timeout or once the channel is
+        // closed and drained.
+        public GameEvent take(long timeoutMillis) throws InterruptedException {
+            long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+            GameEvent event = poll();
+            while (event == null && !closed) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remaining <= 0) {
+                    return null;
+                }
+                synchronized (monitor) {
+                    // Registered before the check, and checked under the monitor, so a publish between
+                    // poll() and wait() either is seen here or wakes this reader.
+                    waiting++;
+                    try {
+                        if (published < next && !closed) {
+                            monitor.wait(remaining);
+                        }
+                    } finally {
+                        waiting--;
+                    }
+                }
+                event = poll();
+            }
+            return event;
+        }
+
+        // Events this reader never saw because it fell a full ring behind.
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+}
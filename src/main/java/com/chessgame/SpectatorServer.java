@@ -0,0 +1,113 @@
+package com.chessgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves a SpectatorChannel on a loopback port. A client connects and receives the current state and
+// then one GameEvent.toLine() per event until the channel or the connection closes. Every connection
+// reads through its own subscription on its own virtual thread, so a client that stops reading only
+// blocks its own socket write; meanwhile the game keeps publishing and that client skips ahead once it
+// drains.
+public final class SpectatorServer implements AutoCloseable {
+    private static final long WAIT_MILLIS = 1000;
+
+    private final SpectatorChannel channel;
+    private final ServerSocket server;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    // Port 0 picks a free port; see getPort().
+    public SpectatorServer(SpectatorChannel channel, int port) throws IOException {
+        this.channel = channel;
+        this.server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "spectator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = server.accept();
+                clients.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Spectator server stopped accepting: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        SpectatorChannel.Subscription subscription = channel.subscribe();
+        try (socket; Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.shutdownInput();
+            while (!closed) {
+                GameEvent event = subscription.take(WAIT_MILLIS);
+                if (event == null) {
+                    if (channel.isClosed()) {
+                        break;
+                    }
+                    continue;
+                }
+                out.write(event.toLine());
+                out.write('\n');
+                // Batch whatever else is already waiting into the same flush.
+                for (event = subscription.poll(); event != null; event = subscription.poll()) {
+                    out.write(event.toLine());
+                    out.write('\n');
+                }
+                out.flush();
+            }
+        } catch (SocketException e) {
+            // The spectator went away.
+        } catch (IOException e) {
+            System.err.println("Error writing to spectator: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(socket);
+        }
+    }
+
+    // Stops accepting and drops every connection. The channel itself stays open.
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            server.close();
+        } catch (IOException e) {
+            System.err.println("Error closing spectator server: " + e.getMessage());
+        }
+        for (Socket socket : clients) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.err.println("Error closing spectator connection: " + e.getMessage());
+            }
+        }
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+package com.chessgame;
+
+import javax.swing.JPanel;
+import javax.swing.UIManager;
+import java.awt.GridBagLayout;
+
+// Training run for the class-data-sharing archive built by the "cds" Maven profile. It loads what a
+// launch loads (the game model, move generation, evaluation, a short search and the Swing board
+// components) without opening a window, so it also works on a headless build machine.
+public final class StartupTraining {
+    private static final String[] OPENING = {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6"};
+
+    private StartupTraining() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        ChessGame game = new ChessGame(false);
+        for (String move : OPENING) {
+            int parsed = game.parseMove(move);
+            game.getLegalMovesForPieceAt(Position.of(Move.from(parsed)));
+            game.toSan(parsed);
+            game.makeMove(parsed);
+            game.evaluateStatus();
+        }
+        game.getStaticEvaluation();
+        game.getHangingPieces(game.getCurrentPlayerColor());
+        game.setTimeControl(TimeControl.parse("5+3"));
+        new InProcessEngine().analyze(game.getSnapshot().toFen(), SearchLimits.depth(4));
+
+        UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName());
+        JPanel board = new JPanel(new GridBagLayout());
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                board.add(new ChessSquareComponent(row, col));
+            }
+        }
+        System.out.println("Startup training loaded " + board.getComponentCount() + " squares");
+    }
+}
@@ -0,0 +1,114 @@
+package com.chessgame;
+
+// Static Exchange Evaluation: plays out every capture on one square, least valuable attacker first,
+// re-deriving attackers after each capture so x-rayed sliders behind the front piece join in.
+public final class StaticExchange {
+    static final int[] VALUE = {100, 320, 330, 500, 900, 20000};
+
+    private StaticExchange() {
+    }
+
+    // Material the side making this capture can expect to win (negative when it loses material).
+    public static int evaluate(EngineBoard board, int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int mover = board.pieceAt(from);
+        long occupied = board.getOccupied() & ~(1L << from);
+        int gain = 0;
+        if (Move.isEnPassant(move)) {
+            gain = VALUE[EngineBoard.PAWN];
+            occupied &= ~(1L << (to + (mover < 6 ? 8 : -8)));
+        } else if (board.pieceAt(to) != EngineBoard.EMPTY) {
+            gain = VALUE[board.pieceAt(to) % 6];
+        }
+        int onSquare = VALUE[mover % 6];
+        if (Move.promotion(move) != 0) {
+            gain += VALUE[Move.promotion(move)] - VALUE[EngineBoard.PAWN];
+            onSquare = VALUE[Move.promotion(move)];
+        }
+        return exchange(board, to, mover / 6, gain, onSquare, occupied);
+    }
+
+    public static boolean isLosingCapture(EngineBoard board, int move) {
+        return evaluate(board, move) < 0;
+    }
+
+    // Best the given color can get by starting a capture sequence on the square, or 0 if it cannot capture.
+    public static int evaluateSquare(EngineBoard board, int square, int attackerColor) {
+        int target = board.pieceAt(square);
+        if (target == EngineBoard.EMPTY) {
+            return 0;
+        }
+        long occupied = board.getOccupied();
+        long attackers = board.attackersTo(square, occupied) & board.getOccupancy(attackerColor);
+        int from = leastValuableAttacker(board, attackers, attackerColor);
+        if (from < 0) {
+            return 0;
+        }
+        int attacker = board.pieceAt(from);
+        if (attacker % 6 == EngineBoard.KING
+                && (board.attackersTo(square, occupied & ~(1L << from)) & board.getOccupancy(attackerColor ^ 1)) != 0) {
+            return 0;
+        }
+        return exchange(board, square, attackerColor, VALUE[target % 6], VALUE[attacker % 6], occupied & ~(1L << from));
+    }
+
+    // Pieces of the given color that the opponent can win material against right now.
+    public static long hangingPieces(EngineBoard board, int color) {
+        long hanging = 0L;
+        long candidates = board.getOccupancy(color) & ~board.getPieces(color * 6 + EngineBoard.KING);
+        while (candidates != 0) {
+            int square = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            if (evaluateSquare(board, square, color ^ 1) > 0) {
+                hanging |= 1L << square;
+            }
+        }
+        return hanging;
+    }
+
+    private static int exchange(EngineBoard board, int square, int firstColor, int firstGain, int onSquare, long occupied) {
+        int[] gain = new int[32];
+        int depth = 0;
+        gain[0] = firstGain;
+        int side = firstColor;
+        long attackers = board.attackersTo(square, occupied) & occupied;
+        while (true) {
+            side ^= 1;
+            int from = leastValuableAttacker(board, attackers, side);
+            if (from < 0) {
+                break;
+            }
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                break;
+            }
+            int type = board.pieceAt(from) % 6;
+            long remaining = attackers & ~(1L << from);
+            if (type == EngineBoard.KING && (remaining & board.getOccupancy(side ^ 1)) != 0) {
+                // The king cannot recapture into a square the other side still covers.
+                depth--;
+                break;
+            }
+            onSquare = VALUE[type];
+            occupied &= ~(1L << from);
+            attackers = board.attackersTo(square, occupied) & occupied;
+        }
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    private static int leastValuableAttacker(EngineBoard board, long attackers, int color) {
+        for (int type = EngineBoard.PAWN; type <= EngineBoard.KING; type++) {
+            long candidates = attackers & board.getPieces(color * 6 + type);
+            if (candidates != 0) {
+                return Long.numberOfTrailingZeros(candidates);
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,395 @@
+package com.chessgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+// Texel-style tuner for Evaluator's weights. Quiet positions are sampled from a game archive (text
+// or compact, see GameRecord) and labelled with the game's result. Each one is traced once into a
+// sparse list of feature coefficients (see Evaluator.trace) kept in flat primitive arrays, so
+// evaluating a position during tuning is a short dot product instead of a board walk.
+//
+// The error is the mean squared difference between the result and sigmoid(K * eval). K is fitted to
+// the starting weights first, then the weights follow Adam gradient descent. Error and gradient are
+// summed by a fork-join pass over slices of the positions. Weights are checkpointed as text every
+// CHECKPOINT_INTERVAL iterations and a run with an existing checkpoint resumes from it (with fresh
+// Adam moments). The final weights are printed as Java tables to paste into Evaluator.
+public final class TexelTuner implements AutoCloseable {
+    private static final int MIN_PLY = 8;
+    private static final int LEAF_POSITIONS = 8192;
+    private static final int CHECKPOINT_INTERVAL = 50;
+    private static final double LEARNING_RATE = 1.0;
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+    private static final double LN10_OVER_400 = Math.log(10) / 400;
+
+    private final ForkJoinPool pool;
+    // Per position: the result for White in half points (0, 1 or 2), the game phase, and the slice
+    // [featureStarts[p], featureStarts[p + 1]) of features/coefficients.
+    private byte[] results = new byte[1 << 16];
+    private byte[] phases = new byte[1 << 16];
+    private int[] featureStarts = new int[(1 << 16) + 1];
+    private short[] features = new short[1 << 20];
+    private short[] coefficients = new short[1 << 20];
+    private int positionCount;
+    private long traceMismatches;
+    private boolean full;
+
+    // Weights being tuned by feature: [0] midgame, [1] endgame.
+    private final double[][] weights = new double[2][Evaluator.FEATURE_COUNT];
+    private double k = 1.0;
+    private int iteration;
+
+    public TexelTuner(int threads) {
+        this.pool = new ForkJoinPool(threads);
+        int[][] initial = Evaluator.weights();
+        for (int phase = 0; phase < 2; phase++) {
+            for (int feature = 0; feature < Evaluator.FEATURE_COUNT; feature++) {
+                weights[phase][feature] = initial[phase][feature];
+            }
+        }
+    }
+
+    public void load(Path archive) throws IOException {
+        int[] dense = new int[Evaluator.FEATURE_COUNT];
+        int[][] initial = Evaluator.weights();
+        try (Stream<GameRecord> games = GameRecord.readArchive(archive)) {
+            Iterator<GameRecord> source = games.iterator();
+            while (source.hasNext() && !full) {
+                GameRecord game = source.next();
+                int result;
+                switch (game.getResult()) {
+                    case GameRecord.WHITE_WINS:
+                        result = 2;
+                        break;
+                    case GameRecord.DRAW:
+                        result = 1;
+                        break;
+                    case GameRecord.BLACK_WINS:
+                        result = 0;
+                        break;
+                    default:
+                        continue;
+                }
+                EngineBoard board = EngineBoard.startingPosition();
+                List<String> moves = game.getMoves();
+                int previous = Move.NONE;
+                for (int ply = 0; ply < moves.size() && !full; ply++) {
+                    int move = board.parseUciMove(moves.get(ply));
+                    if (move == Move.NONE) {
+                        break;
+                    }
+                    // Keep positions the static evaluation can judge: out of check, not in the middle of
+                    // an exchange, and followed by a quiet move in the game.
+                    if (ply >= MIN_PLY && !board.isInCheck() && !Move.isCapture(previous) && !Move.isCapture(move)
+                            && Move.promotion(move) == 0) {
+                        addPosition(board, result, dense, initial);
+                    }
+                    board.makeMove(move);
+                    previous = move;
+                }
+            }
+        }
+        if (full) {
+            System.err.println("Feature arrays are full; stopped loading at " + positionCount + " positions");
+        }
+        if (traceMismatches > 0) {
+            System.err.println(traceMismatches + " positions where Evaluator.trace disagrees with Evaluator.evaluate");
+        }
+    }
+
+    private void addPosition(EngineBoard board, int result, int[] dense, int[][] initial) {
+        Evaluator.trace(board, dense);
+        int nonZero = 0;
+        long mg = 0;
+        long eg = 0;
+        for (int feature = 0; feature < dense.length; feature++) {
+            if (dense[feature] != 0) {
+                nonZero++;
+                mg += (long) dense[feature] * initial[0][feature];
+                eg += (long) dense[feature] * initial[1][feature];
+            }
+        }
+        int phase = Math.min(board.getPhase(), Evaluator.MAX_PHASE);
+        int traced = (int) ((mg * phase + eg * (Evaluator.MAX_PHASE - phase)) / Evaluator.MAX_PHASE);
+        int evaluated = Evaluator.evaluate(board);
+        if (traced != (board.getSideToMove() == EngineBoard.WHITE ? evaluated : -evaluated)) {
+            traceMismatches++;
+        }
+
+        int start = featureStarts[positionCount];
+        if ((long) start + nonZero > Integer.MAX_VALUE - 8) {
+            full = true;
+            return;
+        }
+        if (positionCount + 1 >= results.length) {
+            int capacity = results.length * 2;
+            results = Arrays.copyOf(results, capacity);
+            phases = Arrays.copyOf(phases, capacity);
+            featureStarts = Arrays.copyOf(featureStarts, capacity + 1);
+        }
+        if (start + nonZero > features.length) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) features.length * 2, start + nonZero));
+            features = Arrays.copyOf(features, capacity);
+            coefficients = Arrays.copyOf(coefficients, capacity);
+        }
+        int entry = start;
+        for (int feature = 0; feature < dense.length; feature++) {
+            if (dense[feature] != 0) {
+                features[entry] = (short) feature;
+                coefficients[entry] = (short) dense[feature];
+                entry++;
+            }
+        }
+        results[positionCount] = (byte) result;
+        phases[positionCount] = (byte) phase;
+        featureStarts[++positionCount] = entry;
+    }
+
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    public double getK() {
+        return k;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public double error() {
+        return pool.invoke(new ErrorTask(0, positionCount, k, false))[0] / positionCount;
+    }
+
+    // Scaling constant for the sigmoid, found by shrinking-step coordinate search on the error.
+    public void fitK() {
+        double best = error();
+        for (double step = 0.1; step >= 0.0005; step /= 10) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (double candidate : new double[]{k - step, k + step}) {
+                    if (candidate <= 0) {
+                        continue;
+                    }
+                    double previous = k;
+                    k = candidate;
+                    double error = error();
+                    if (error < best) {
+                        best = error;
+                        improved = true;
+                        break;
+                    }
+                    k = previous;
+                }
+            }
+        }
+    }
+
+    // Runs Adam steps until `iterations` in total have been done, checkpointing along the way.
+    public void tune(int iterations, Path checkpoint, PrintStream log) throws IOException {
+        int features = Evaluator.FEATURE_COUNT;
+        double[] firstMoment = new double[2 * features];
+        double[] secondMoment = new double[2 * features];
+        int step = 0;
+        long start = System.nanoTime();
+        while (iteration < iterations) {
+            double[] sums = pool.invoke(new ErrorTask(0, positionCount, k, true));
+            step++;
+            iteration++;
+            double scale = -2 * k * LN10_OVER_400 / positionCount;
+            for (int i = 0; i < 2 * features; i++) {
+                int phase = i / features;
+                int feature = i % features;
+                // There are no endgame king-danger or pawn-shield weights in Evaluator to tune.
+                if (phase == 1 && feature >= Evaluator.FEATURE_KING_DANGER) {
+                    continue;
+                }
+                double gradient = sums[1 + i] * scale;
+                firstMoment[i] = BETA1 * firstMoment[i] + (1 - BETA1) * gradient;
+                secondMoment[i] = BETA2 * secondMoment[i] + (1 - BETA2) * gradient * gradient;
+                double corrected = firstMoment[i] / (1 - Math.pow(BETA1, step));
+                double variance = secondMoment[i] / (1 - Math.pow(BETA2, step));
+                weights[phase][feature] -= LEARNING_RATE * corrected / (Math.sqrt(variance) + EPSILON);
+            }
+            if (iteration % CHECKPOINT_INTERVAL == 0 || iteration == iterations) {
+                writeCheckpoint(checkpoint);
+                log.printf("Iteration %d: error %.7f (%.1f s)%n", iteration, sums[0] / positionCount,
+                        (System.nanoTime() - start) / 1e9);
+            }
+        }
+    }
+
+    // Text checkpoint: "k <K>", "iteration <n>", then "<feature> <midgame> <endgame>" per feature.
+    public void writeCheckpoint(Path checkpoint) throws IOException {
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary)) {
+            writer.write("k " + k + "\n");
+            writer.write("iteration " + iteration + "\n");
+            for (int feature = 0; feature < Evaluator.FEATURE_COUNT; feature++) {
+                writer.write(feature + " " + weights[0][feature] + " " + weights[1][feature] + "\n");
+            }
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void readCheckpoint(Path checkpoint) throws IOException {
+        for (String line : Files.readAllLines(checkpoint)) {
+            String[] fields = line.trim().split("\\s+");
+            if (fields[0].equals("k")) {
+                k = Double.parseDouble(fields[1]);
+            } else if (fields[0].equals("iteration")) {
+                iteration = Integer.parseInt(fields[1]);
+            } else if (fields.length == 3) {
+                int feature = Integer.parseInt(fields[0]);
+                weights[0][feature] = Double.parseDouble(fields[1]);
+                weights[1][feature] = Double.parseDouble(fields[2]);
+            }
+        }
+    }
+
+    // The tuned weights in the layout of Evaluator's source.
+    public void printTables(PrintStream out) {
+        printArray(out, "MG_MATERIAL", 0, Evaluator.FEATURE_MATERIAL, 6);
+        printArray(out, "EG_MATERIAL", 1, Evaluator.FEATURE_MATERIAL, 6);
+        printPst(out, "MG_PST", 0);
+        printPst(out, "EG_PST", 1);
+        printArray(out, "MG_MOBILITY", 0, Evaluator.FEATURE_MOBILITY, 6);
+        printArray(out, "EG_MOBILITY", 1, Evaluator.FEATURE_MOBILITY, 6);
+        printArray(out, "KING_DANGER", 0, Evaluator.FEATURE_KING_DANGER,
+                Evaluator.FEATURE_PAWN_SHIELD - Evaluator.FEATURE_KING_DANGER);
+        out.println("    private static final int PAWN_SHIELD_BONUS = "
+                + Math.round(weights[0][Evaluator.FEATURE_PAWN_SHIELD]) + ";");
+    }
+
+    private void printArray(PrintStream out, String name, int phase, int first, int length) {
+        StringBuilder line = new StringBuilder("    private static final int[] " + name + " = {");
+        for (int i = 0; i < length; i++) {
+            line.append(i == 0 ? "" : ", ").append(Math.round(weights[phase][first + i]));
+        }
+        out.println(line.append("};"));
+    }
+
+    private void printPst(PrintStream out, String name, int phase) {
+        out.println("    private static final int[][] " + name + " = {");
+        for (int type = 0; type < 6; type++) {
+            out.println("        {");
+            for (int row = 0; row < 8; row++) {
+                StringBuilder line = new StringBuilder("           ");
+                for (int col = 0; col < 8; col++) {
+                    line.append(String.format(" %3d,", Math.round(weights[phase][Evaluator.FEATURE_PST + type * 64 + row * 8 + col])));
+                }
+                out.println(line);
+            }
+            out.println("        },");
+        }
+        out.println("    };");
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Sums the squared error and, when asked, its gradient (without the constant factor
+    // -2 * K * ln(10) / 400) over a range of positions. Result: [0] error, then midgame and endgame
+    // gradient by feature.
+    private final class ErrorTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final double k;
+        private final boolean withGradient;
+
+        ErrorTask(int from, int to, double k, boolean withGradient) {
+            this.from = from;
+            this.to = to;
+            this.k = k;
+            this.withGradient = withGradient;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from > LEAF_POSITIONS) {
+                int middle = (from + to) >>> 1;
+                ErrorTask left = new ErrorTask(from, middle, k, withGradient);
+                left.fork();
+                double[] sums = new ErrorTask(middle, to, k, withGradient).compute();
+                double[] other = left.join();
+                for (int i = 0; i < sums.length; i++) {
+                    sums[i] += other[i];
+                }
+                return sums;
+            }
+            int featureCount = Evaluator.FEATURE_COUNT;
+            double[] sums = new double[withGradient ? 1 + 2 * featureCount : 1];
+            double[] midgame = weights[0];
+            double[] endgame = weights[1];
+            for (int position = from; position < to; position++) {
+                int start = featureStarts[position];
+                int end = featureStarts[position + 1];
+                double mg = 0;
+                double eg = 0;
+                for (int i = start; i < end; i++) {
+                    mg += coefficients[i] * midgame[features[i]];
+                    eg += coefficients[i] * endgame[features[i]];
+                }
+                double phase = phases[position] / (double) Evaluator.MAX_PHASE;
+                double eval = mg * phase + eg * (1 - phase);
+                double sigmoid = 1 / (1 + Math.exp(-k * eval * LN10_OVER_400));
+                double difference = results[position] * 0.5 - sigmoid;
+                sums[0] += difference * difference;
+                if (withGradient) {
+                    double slope = difference * sigmoid * (1 - sigmoid);
+                    for (int i = start; i < end; i++) {
+                        double weighted = slope * coefficients[i];
+                        sums[1 + features[i]] += weighted * phase;
+                        sums[1 + featureCount + features[i]] += weighted * (1 - phase);
+                    }
+                }
+            }
+            return sums;
+        }
+    }
+
+    // Usage: TexelTuner <archive> <checkpoint> [iterations] [threads]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TexelTuner <archive> <checkpoint> [iterations] [threads]");
+            return;
+        }
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        Path checkpoint = Paths.get(args[1]);
+        try (TexelTuner tuner = new TexelTuner(threads)) {
+            long start = System.nanoTime();
+            tuner.load(Paths.get(args[0]));
+            System.out.printf("Positions: %d in %.1f s%n", tuner.getPositionCount(), (System.nanoTime() - start) / 1e9);
+            if (tuner.getPositionCount() == 0) {
+                return;
+            }
+            if (Files.exists(checkpoint)) {
+                tuner.readCheckpoint(checkpoint);
+                System.out.println("Resuming from iteration " + tuner.getIteration());
+            } else {
+                tuner.fitK();
+            }
+            System.out.printf("K: %.4f, error: %.7f%n", tuner.getK(), tuner.error());
+            tuner.tune(iterations, checkpoint, System.out);
+            tuner.printTables(System.out);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.chessgame;
+
+// Initial time per side plus either a Fischer increment (added after every move) or a simple delay
+// (the first delayMillis of each move are free), or both.
+public final class TimeControl {
+    private final long initialMillis;
+    private final long incrementMillis;
+    private final long delayMillis;
+
+    public TimeControl(long initialMillis, long incrementMillis, long delayMillis) {
+        if (initialMillis <= 0 || incrementMillis < 0 || delayMillis < 0) {
+            throw new IllegalArgumentException("Invalid time control: " + initialMillis + "/" + incrementMillis
+                    + "/" + delayMillis);
+        }
+        this.initialMillis = initialMillis;
+        this.incrementMillis = incrementMillis;
+        this.delayMillis = delayMillis;
+    }
+
+    // "5+3" is five minutes with a three second increment; "5d2" is five minutes with a two second delay.
+    public static TimeControl parse(String text) {
+        try {
+            String trimmed = text.trim();
+            int separator = Math.max(trimmed.indexOf('+'), trimmed.indexOf('d'));
+            double minutes = Double.parseDouble(separator < 0 ? trimmed : trimmed.substring(0, separator));
+            long bonus = separator < 0 ? 0 : (long) (Double.parseDouble(trimmed.substring(separator + 1)) * 1000);
+            long initial = (long) (minutes * 60_000);
+            boolean delay = separator >= 0 && trimmed.charAt(separator) == 'd';
+            return new TimeControl(initial, delay ? 0 : bonus, delay ? bonus : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid time control: " + text, e);
+        }
+    }
+
+    public long getInitialMillis() {
+        return initialMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    @Override
+    public String toString() {
+        String base = initialMillis % 60_000 == 0 ? String.valueOf(initialMillis / 60_000)
+                : String.valueOf(initialMillis / 60_000.0);
+        if (delayMillis > 0) {
+            return base + "d" + delayMillis / 1000;
+        }
+        return base + "+" + incrementMillis / 1000;
+    }
+}
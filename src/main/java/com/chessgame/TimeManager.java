@@ -0,0 +1,38 @@
+package com.chessgame;
+
+// Turns a game clock into a budget for one move. The soft limit is what a typical move should cost;
+// Searcher scales it up when the best move keeps changing or the score is dropping, scales it down
+// when the answer has been stable, and never runs past the hard limit.
+final class TimeManager {
+    private static final long MOVE_OVERHEAD_MILLIS = 30;
+    private static final long MINIMUM_MILLIS = 5;
+
+    private final long softMillis;
+    private final long hardMillis;
+
+    private TimeManager(long softMillis, long hardMillis) {
+        this.softMillis = softMillis;
+        this.hardMillis = hardMillis;
+    }
+
+    static TimeManager forMove(SearchLimits limits, EngineBoard board) {
+        PieceColor side = board.getSideToMove() == EngineBoard.WHITE ? PieceColor.WHITE : PieceColor.BLACK;
+        long remaining = Math.max(0, limits.getRemainingMillis(side) - MOVE_OVERHEAD_MILLIS);
+        long increment = limits.getIncrementMillis(side);
+        // More material left means more moves left to play: 20 in bare endgames, up to 44 from the opening.
+        int movesToGo = 20 + Math.min(board.getPhase(), Evaluator.MAX_PHASE);
+        long soft = remaining / movesToGo + increment * 3 / 4;
+        long hard = Math.min(remaining / 4 + increment, soft * 4);
+        soft = Math.max(MINIMUM_MILLIS, Math.min(soft, remaining));
+        hard = Math.max(soft, Math.min(hard, remaining));
+        return new TimeManager(soft, hard);
+    }
+
+    long getSoftMillis() {
+        return softMillis;
+    }
+
+    long getHardMillis() {
+        return hardMillis;
+    }
+}
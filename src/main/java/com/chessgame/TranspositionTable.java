@@ -0,0 +1,63 @@
+package com.chessgame;
+
+// Single-threaded hash table of search results: one key word and one packed data word per entry,
+// always-replace. Data layout: move (19 bits) | score + 32768 (16) | depth (8) | bound (2).
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+    // Largest power of two a Java array can hold.
+    static final int MAX_ENTRIES = 1 << 30;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    public TranspositionTable(int sizeInMegabytes) {
+        int entries = entriesFor(sizeInMegabytes, 16);
+        this.keys = new long[entries];
+        this.data = new long[entries];
+        this.mask = entries - 1;
+    }
+
+    // Power-of-two entry count that fits the size. Worked out in long, since 2048 MB and more overflow
+    // an int, and capped at MAX_ENTRIES.
+    static int entriesFor(int sizeInMegabytes, int bytesPerEntry) {
+        long entries = Math.max(1L, sizeInMegabytes) * (1L << 20) / bytesPerEntry;
+        return (int) Long.highestOneBit(Math.max(1L, Math.min(entries, MAX_ENTRIES)));
+    }
+
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & mask;
+        keys[index] = key;
+        data[index] = (move & 0x7FFFFL) | ((long) (score + 32768) & 0xFFFF) << 19
+                | ((long) depth & 0xFF) << 35 | ((long) bound << 43);
+    }
+
+    // Returns the packed data word, or 0 when the position is not in the table.
+    public long probe(long key) {
+        int index = (int) key & mask;
+        return keys[index] == key ? data[index] : 0L;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0x7FFFF);
+    }
+
+    public static int score(long entry) {
+        return (int) ((entry >>> 19) & 0xFFFF) - 32768;
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 35) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 43) & 3);
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, 0L);
+        java.util.Arrays.fill(data, 0L);
+    }
+}
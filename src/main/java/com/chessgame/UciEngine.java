@@ -0,0 +1,336 @@
+package com.chessgame;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// A UCI engine process. A reader thread moves engine output onto a queue so every read can have a
+// deadline and a dead process shows up as end of stream instead of a hung thread. restart() brings up
+// a fresh process and replays the handshake, every option set so far and the last position sent.
+public final class UciEngine implements AnalysisEngine {
+    private static final String BUNDLED_STOCKFISH = "/stockfish/stockfish-macos";
+    private static final long HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+    public static final long COMMAND_TIMEOUT_MILLIS = 5_000;
+    private static final long UNBOUNDED_SEARCH_TIMEOUT_MILLIS = 300_000;
+    private static final int MAX_RESTART_ATTEMPTS = 3;
+    private static final String END_OF_STREAM = new String("end-of-stream");
+    private static File extractedStockfish;
+
+    private final String executable;
+    private final Map<String, Object> options = new LinkedHashMap<>();
+    private volatile EngineState state = EngineState.STARTING;
+    private String positionCommand;
+    private int restartCount;
+    private Process process;
+    private PrintWriter output;
+    private BlockingQueue<String> lines;
+
+    public UciEngine(String executable) throws IOException {
+        this.executable = executable;
+        try {
+            launch();
+        } catch (IOException e) {
+            destroy();
+            state = EngineState.FAILED;
+            throw e;
+        }
+        state = EngineState.READY;
+    }
+
+    private void launch() throws IOException {
+        process = new ProcessBuilder(executable).start();
+        output = new PrintWriter(new OutputStreamWriter(process.getOutputStream()), true);
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        lines = queue;
+        BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        Thread reader = new Thread(() -> {
+            try {
+                String line;
+                while ((line = input.readLine()) != null) {
+                    queue.add(line);
+                }
+            } catch (IOException e) {
+                // The stream closing under us is how a killed process looks; treat it as the end.
+            }
+            queue.add(END_OF_STREAM);
+        }, "uci-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        output.println("uci");
+        waitFor("uciok", HANDSHAKE_TIMEOUT_MILLIS);
+        for (Map.Entry<String, Object> option : options.entrySet()) {
+            output.println("setoption name " + option.getKey() + " value " + option.getValue());
+        }
+        syncReady();
+        if (positionCommand != null) {
+            output.println(positionCommand);
+        }
+    }
+
+    // Replaces a dead or hung process. After MAX_RESTART_ATTEMPTS failed launches the engine is FAILED.
+    public synchronized void restart() throws IOException {
+        state = EngineState.RESTARTING;
+        IOException lastFailure = null;
+        for (int attempt = 0; attempt < MAX_RESTART_ATTEMPTS; attempt++) {
+            destroy();
+            try {
+                if (attempt > 0) {
+                    Thread.sleep(100L << attempt);
+                }
+                launch();
+                restartCount++;
+                state = EngineState.READY;
+                return;
+            } catch (IOException e) {
+                lastFailure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lastFailure = new InterruptedIOException("Interrupted while restarting engine");
+                break;
+            }
+        }
+        destroy();
+        state = EngineState.FAILED;
+        throw new IOException("Engine could not be restarted: " + executable, lastFailure);
+    }
+
+    public EngineState getState() {
+        return state;
+    }
+
+    public int getRestartCount() {
+        return restartCount;
+    }
+
+    // Longest a search with these limits may legitimately take before the engine is considered hung.
+    public static long searchTimeoutMillis(SearchLimits limits) {
+        if (limits.getMoveTimeMillis() > 0) {
+            return limits.getMoveTimeMillis() + COMMAND_TIMEOUT_MILLIS;
+        }
+        if (limits.hasClock()) {
+            long remaining = Math.max(limits.getRemainingMillis(PieceColor.WHITE), limits.getRemainingMillis(PieceColor.BLACK));
+            return remaining + COMMAND_TIMEOUT_MILLIS;
+        }
+        return UNBOUNDED_SEARCH_TIMEOUT_MILLIS;
+    }
+
+    public static UciEngine startBundled() throws IOException {
+        return new UciEngine(extractBundledStockfish().getAbsolutePath());
+    }
+
+    // The binary is copied out of the jar once per JVM and shared by every engine process.
+    public static synchronized File extractBundledStockfish() throws IOException {
+        if (extractedStockfish != null && extractedStockfish.canExecute()) {
+            return extractedStockfish;
+        }
+        File tempStockfish = File.createTempFile("stockfish", null);
+        tempStockfish.deleteOnExit();
+
+        try (
+            InputStream is = UciEngine.class.getResourceAsStream(BUNDLED_STOCKFISH);
+            FileOutputStream os = new FileOutputStream(tempStockfish)
+        ) {
+            if (is == null) {
+                throw new FileNotFoundException("Could not find Stockfish binary in resources: " + BUNDLED_STOCKFISH);
+            }
+            byte[] buffer = new byte[8192];
+            int bytesRead;
+            while ((bytesRead = is.read(buffer)) != -1) {
+                os.write(buffer, 0, bytesRead);
+            }
+        }
+
+        if (!tempStockfish.setExecutable(true)) {
+            throw new IOException("Failed to make Stockfish executable");
+        }
+        extractedStockfish = tempStockfish;
+        return tempStockfish;
+    }
+
+    public String getExecutable() {
+        return executable;
+    }
+
+    public void send(String command) {
+        if (command.startsWith("position ")) {
+            positionCommand = command;
+        }
+        output.println(command);
+    }
+
+    // Returns null once the process has exited; throws if no line arrives within the timeout.
+    public String readLine(long timeoutMillis) throws IOException {
+        try {
+            String line = lines.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (line == null) {
+                throw new IOException("Engine did not respond within " + timeoutMillis + " ms");
+            }
+            if (line == END_OF_STREAM) {
+                lines.add(END_OF_STREAM);
+                return null;
+            }
+            return line;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the engine");
+        }
+    }
+
+    public void waitFor(String expected) throws IOException {
+        waitFor(expected, COMMAND_TIMEOUT_MILLIS);
+    }
+
+    public void waitFor(String expected, long timeoutMillis) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        String line;
+        while ((line = readLine(Math.max(1, deadline - System.currentTimeMillis()))) != null) {
+            if (line.trim().equals(expected)) {
+                return;
+            }
+        }
+        throw new IOException("Engine exited while waiting for " + expected);
+    }
+
+    // Options are remembered so a restarted process comes back configured the same way.
+    public void setOption(String name, Object value) {
+        options.put(name, value);
+        send("setoption name " + name + " value " + value);
+    }
+
+    public void syncReady() throws IOException {
+        output.println("isready");
+        waitFor("readyok");
+    }
+
+    @Override
+    public AnalysisResult analyze(String fen, SearchLimits limits) throws IOException {
+        return analyze(fen, limits, 1).get(0);
+    }
+
+    // Ranked best-first, each line with the last score and principal variation the engine reported for it.
+    // MultiPV is restored afterwards, even when the search fails, so a shared engine keeps playing at full
+    // strength. It is sent rather than set, so a restart never brings the extra lines back either.
+    @Override
+    public List<AnalysisResult> analyze(String fen, SearchLimits limits, int lineCount) throws IOException {
+        if (lineCount <= 1) {
+            return search(fen, limits, 1);
+        }
+        send("setoption name MultiPV value " + lineCount);
+        try {
+            return search(fen, limits, lineCount);
+        } finally {
+            send("setoption name MultiPV value " + options.getOrDefault("MultiPV", 1));
+        }
+    }
+
+    private List<AnalysisResult> search(String fen, SearchLimits limits, int lineCount) throws IOException {
+        send("position fen " + fen);
+        send(limits.toGoCommand());
+        long deadline = System.currentTimeMillis() + searchTimeoutMillis(limits);
+        boolean stopSent = false;
+
+        List<List<String>> lines = new ArrayList<>(lineCount);
+        int[] depths = new int[lineCount];
+        int[] scores = new int[lineCount];
+        boolean[] mateScores = new boolean[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            lines.add(List.of());
+        }
+        while (true) {
+            String line;
+            try {
+                line = readLine(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (IOException e) {
+                if (stopSent) {
+                    throw e;
+                }
+                // Overdue: ask for the best move so far and give the engine one more grace period.
+                send("stop");
+                stopSent = true;
+                deadline = System.currentTimeMillis() + COMMAND_TIMEOUT_MILLIS;
+                continue;
+            }
+            if (line == null) {
+                break;
+            }
+            if (line.startsWith("info ") && line.contains(" score ")) {
+                String[] tokens = line.split(" ");
+                int index = 0;
+                int depth = 0;
+                int score = 0;
+                boolean mateScore = false;
+                List<String> pv = null;
+                for (int i = 1; i < tokens.length - 1; i++) {
+                    if (tokens[i].equals("depth")) {
+                        depth = Integer.parseInt(tokens[i + 1]);
+                    } else if (tokens[i].equals("multipv")) {
+                        index = Integer.parseInt(tokens[i + 1]) - 1;
+                    } else if (tokens[i].equals("score") && i + 2 < tokens.length) {
+                        mateScore = tokens[i + 1].equals("mate");
+                        score = Integer.parseInt(tokens[i + 2]);
+                    } else if (tokens[i].equals("pv")) {
+                        pv = List.of(tokens).subList(i + 1, tokens.length);
+                        break;
+                    }
+                }
+                if (index >= 0 && index < lineCount) {
+                    depths[index] = depth;
+                    scores[index] = score;
+                    mateScores[index] = mateScore;
+                    if (pv != null) {
+                        lines.set(index, pv);
+                    }
+                }
+            } else if (line.startsWith("bestmove")) {
+                String[] tokens = line.split(" ");
+                String bestMove = tokens.length > 1 && !tokens[1].equals("(none)") ? tokens[1] : null;
+                List<AnalysisResult> results = new ArrayList<>(lineCount);
+                if (lines.get(0).isEmpty() || !lines.get(0).get(0).equals(bestMove)) {
+                    results.add(new AnalysisResult(fen, bestMove, scores[0], mateScores[0], depths[0]));
+                } else {
+                    results.add(new AnalysisResult(fen, scores[0], mateScores[0], depths[0], lines.get(0)));
+                }
+                for (int i = 1; i < lineCount && !lines.get(i).isEmpty(); i++) {
+                    results.add(new AnalysisResult(fen, scores[i], mateScores[i], depths[i], lines.get(i)));
+                }
+                return results;
+            }
+        }
+        throw new IOException("Engine exited during analysis of " + fen);
+    }
+
+    @Override
+    public boolean isAlive() {
+        // The reader sees the pipe close before Process.isAlive() catches up with the exit.
+        return process != null && process.isAlive() && lines.peek() != END_OF_STREAM && state != EngineState.FAILED;
+    }
+
+    @Override
+    public void close() {
+        if (output != null) {
+            output.println("quit");
+        }
+        destroy();
+    }
+
+    private void destroy() {
+        if (process != null) {
+            process.destroyForcibly();
+        }
+    }
+}
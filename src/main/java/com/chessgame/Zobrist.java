@@ -0,0 +1,42 @@
+package com.chessgame;
+
+import java.util.SplittableRandom;
+
+public final class Zobrist {
+    // Fixed seed so hashes are stable across runs and can be stored on disk.
+    private static final long SEED = 0x5EEDC0DE2024L;
+
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[4];
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long SIDE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] keys : PIECE_SQUARE) {
+            for (int square = 0; square < 64; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < CASTLING.length; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i = 0; i < EN_PASSANT_FILE.length; i++) {
+            EN_PASSANT_FILE[i] = random.nextLong();
+        }
+        SIDE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static int pieceIndex(Piece piece) {
+        int offset = piece.getColor() == PieceColor.WHITE ? 0 : 6;
+        if (piece instanceof Pawn) return offset;
+        if (piece instanceof Knight) return offset + 1;
+        if (piece instanceof Bishop) return offset + 2;
+        if (piece instanceof Rook) return offset + 3;
+        if (piece instanceof Queen) return offset + 4;
+        return offset + 5;
+    }
+}
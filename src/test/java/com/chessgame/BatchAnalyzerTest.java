@@ -0,0 +1,77 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class BatchAnalyzerTest {
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final Duration LIMIT = Duration.ofSeconds(20);
+
+    // Answers instantly with a fixed move.
+    private static final class FakeEngine implements AnalysisEngine {
+        @Override
+        public AnalysisResult analyze(String fen, SearchLimits limits) {
+            return new AnalysisResult(fen, "e2e4", 0, false, 1);
+        }
+
+        @Override
+        public List<AnalysisResult> analyze(String fen, SearchLimits limits, int lineCount) {
+            return Collections.nCopies(lineCount, analyze(fen, limits));
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void analyzesEveryPosition() {
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(FakeEngine::new, 3, 2)) {
+            long count = assertTimeoutPreemptively(LIMIT,
+                    () -> analyzer.analyze(Stream.generate(() -> START).limit(100), SearchLimits.depth(1)).count());
+            assertEquals(100, count);
+        }
+    }
+
+    @Test
+    void inputFailureReachesTheConsumer() {
+        Stream<String> failing = Stream.iterate(0, i -> i + 1).map(i -> {
+            if (i == 5) {
+                throw new UncheckedIOException(new IOException("disk gone"));
+            }
+            return START;
+        });
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(FakeEngine::new, 2, 1)) {
+            assertTimeoutPreemptively(LIMIT, () -> assertThrows(UncheckedIOException.class,
+                    () -> analyzer.analyze(failing, SearchLimits.depth(1)).count()));
+        }
+    }
+
+    @Test
+    void closingAnAbandonedRunFreesTheAnalyzer() {
+        try (BatchAnalyzer analyzer = new BatchAnalyzer(FakeEngine::new, 2, 1)) {
+            assertTimeoutPreemptively(LIMIT, () -> {
+                for (int round = 0; round < 5; round++) {
+                    try (Stream<AnalysisResult> endless = analyzer.analyze(Stream.generate(() -> START), SearchLimits.depth(1))) {
+                        assertEquals(3, endless.limit(3).count());
+                    }
+                }
+                assertEquals(20, analyzer.analyze(Stream.generate(() -> START).limit(20), SearchLimits.depth(1)).count());
+            });
+        }
+    }
+}
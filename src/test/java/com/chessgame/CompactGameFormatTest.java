@@ -0,0 +1,291 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompactGameFormatTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void indexModeRoundTrips() throws IOException {
+        List<GameRecord> games = TestGames.random(1, 200, 160);
+        assertEquals(lines(games), lines(read(write(games, false))));
+    }
+
+    @Test
+    void rangeCodedModeRoundTrips() throws IOException {
+        List<GameRecord> games = TestGames.random(2, 200, 160);
+        games.add(new GameRecord(GameRecord.DRAW, List.of()));
+        assertEquals(lines(games), lines(read(write(games, true))));
+    }
+
+    @Test
+    void filesRoundTripAndAreRecognised() throws IOException {
+        List<GameRecord> games = TestGames.random(3, 20, 80);
+        Path text = TestGames.writeArchive(dir.resolve("games.txt"), games);
+        Path compact = dir.resolve("games.bin");
+        try (CompactGameWriter writer = CompactGameWriter.create(compact, true)) {
+            for (GameRecord game : games) {
+                writer.write(game);
+            }
+        }
+        assertTrue(CompactGameReader.isCompactArchive(compact));
+        assertTrue(!CompactGameReader.isCompactArchive(text));
+        try (CompactGameReader reader = CompactGameReader.open(compact)) {
+            assertEquals(lines(games), lines(reader.stream().toList()));
+        }
+    }
+
+    // The format's claims: a byte per move plus a small header in index mode, and a few bits per move
+    // once the range coder sees games whose moves sit near the front of the ranking, as real games do.
+    @Test
+    void compressesAsDescribed() throws IOException {
+        List<GameRecord> games = new ArrayList<>();
+        Random random = new Random(4);
+        for (int i = 0; i < 300; i++) {
+            games.add(rankSkewedGame(random, 120));
+        }
+        long moves = games.stream().mapToLong(game -> game.getMoves().size()).sum();
+        long text = lines(games).stream().mapToLong(line -> line.length() + 1).sum();
+        long index = write(games, false).length;
+        long rangeCoded = write(games, true).length;
+        assertTrue(index <= 9 + moves + 2L * games.size(), index + " bytes for " + moves + " moves");
+        assertTrue(index * 4 < text, index + " vs " + text + " bytes of text");
+        assertTrue(rangeCoded * 8.0 / moves < 3, rangeCoded + " bytes for " + moves + " moves");
+    }
+
+    @Test
+    void writerRejectsIllegalGamesWithoutWritingThem() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompactGameWriter writer = new CompactGameWriter(out, true)) {
+            writer.write(new GameRecord(GameRecord.WHITE_WINS, List.of("e2e4", "e7e5")));
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.write(new GameRecord(GameRecord.DRAW, List.of("e2e4", "e2e4"))));
+            assertThrows(IllegalArgumentException.class,
+                    () -> writer.write(new GameRecord("2-0", List.of("e2e4"))));
+            writer.write(new GameRecord(GameRecord.BLACK_WINS, List.of("d2d4")));
+            assertEquals(2, writer.getGamesWritten());
+            assertEquals(3, writer.getMovesWritten());
+        }
+        assertEquals(List.of("1-0 e2e4 e7e5", "0-1 d2d4"), lines(read(out.toByteArray())));
+    }
+
+    @Test
+    void rejectsForeignHeaders() throws IOException {
+        assertThrows(IOException.class, () -> new CompactGameReader(new ByteArrayInputStream(new byte[9])));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataOutputStream(out).writeLong(CompactGameFormat.MAGIC);
+        out.write(5);
+        IOException e = assertThrows(IOException.class, () -> new CompactGameReader(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals("Unknown compact game archive mode 5", e.getMessage());
+    }
+
+    @Test
+    void truncatedArchivesFailInBothModes() throws IOException {
+        List<GameRecord> games = TestGames.random(5, 10, 60);
+        for (boolean rangeCoded : new boolean[] {false, true}) {
+            byte[] full = write(games, rangeCoded);
+            // Index mode has no end marker, so only a cut inside a game is detectable there.
+            int first = rangeCoded ? 9 : write(games.subList(0, games.size() - 1), false).length + 1;
+            for (int length = first; length < full.length; length += rangeCoded ? 7 : 1) {
+                byte[] cut = Arrays.copyOf(full, length);
+                assertThrows(EOFException.class, () -> read(cut), (rangeCoded ? "range coded" : "index") + " cut at " + length);
+            }
+        }
+    }
+
+    @Test
+    void corruptIndexArchivesFail() throws IOException {
+        // A varint header that never ends.
+        byte[] endless = new byte[20];
+        Arrays.fill(endless, (byte) 0xFF);
+        assertEquals("Corrupt compact game archive: game header too long",
+                assertThrows(IOException.class, () -> read(indexArchive(endless))).getMessage());
+        // A header cut off in the middle.
+        assertThrows(EOFException.class, () -> read(indexArchive(0x80)));
+        // One ply with a move index past the 20 moves of the starting position.
+        assertEquals("Corrupt compact game archive: no move 20 of 20 at ply 0",
+                assertThrows(IOException.class, () -> read(indexArchive(1 << 2, 20))).getMessage());
+        // 1. e4 d5 2. Bb5+ and then a pseudo-legal black move that ignores the check.
+        EngineBoard board = EngineBoard.startingPosition();
+        int[] stored = new int[4];
+        String[] uci = {"e2e4", "d7d5", "f1b5", "a7a6"};
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        for (int ply = 0; ply < uci.length; ply++) {
+            int count = board.generateMoves(moves, false);
+            int move = ply < 3 ? board.parseUciMove(uci[ply]) : Move.of(8, 16, 0, 0);
+            while (moves[stored[ply]] != move) {
+                stored[ply]++;
+            }
+            assertTrue(stored[ply] < count);
+            board.makeMove(move);
+        }
+        assertEquals("Corrupt compact game archive: illegal move a7a6 at ply 3",
+                assertThrows(IOException.class, () -> read(indexArchive(4 << 2, stored[0], stored[1], stored[2], stored[3]))).getMessage());
+    }
+
+    @Test
+    void rangeCodedRankPastTheMoveListFails() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataOutputStream(out).writeLong(CompactGameFormat.MAGIC);
+        out.write(CompactGameFormat.MODE_RANGE_CODED);
+        RangeEncoder encoder = new RangeEncoder(out);
+        encoder.encodeBit(RangeEncoder.newModel(1), 0, 1);
+        encoder.encodeTree(RangeEncoder.newModel(CompactGameFormat.BYTE_BITS), CompactGameFormat.BYTE_BITS, 1 << 2);
+        encoder.encodeTree(RangeEncoder.newModel(CompactGameFormat.INDEX_BITS), CompactGameFormat.INDEX_BITS, 25);
+        encoder.flush();
+        assertEquals("Corrupt compact game archive: no move -1 of 20 at ply 0",
+                assertThrows(IOException.class, () -> read(out.toByteArray())).getMessage());
+    }
+
+    @Test
+    void ranksAndIndicesAreInverse() {
+        EngineBoard board = EngineBoard.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        int[] keys = new int[EngineBoard.MAX_MOVES];
+        int count = board.generateMoves(moves, false);
+        boolean[] seen = new boolean[count];
+        for (int index = 0; index < count; index++) {
+            CompactGameFormat.rankKeys(board, moves, count, keys);
+            int rank = CompactGameFormat.rankOf(keys, count, index);
+            assertTrue(!seen[rank]);
+            seen[rank] = true;
+            // indexAtRank may sort the keys, so it gets a fresh copy each time.
+            CompactGameFormat.rankKeys(board, moves, count, keys);
+            assertEquals(index, CompactGameFormat.indexAtRank(keys, count, rank));
+        }
+        assertEquals(-1, CompactGameFormat.indexAtRank(keys, count, count));
+        assertEquals(-1, CompactGameFormat.indexAtRank(keys, count, 255));
+    }
+
+    @Test
+    void rangeCoderRoundTripsSkewedAndUniformSymbols() throws IOException {
+        Random random = new Random(6);
+        int[] bits = new int[20_000];
+        int[] values = new int[2_000];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RangeEncoder encoder = new RangeEncoder(out);
+        short[] bitModel = RangeEncoder.newModel(1);
+        short[] treeModel = RangeEncoder.newModel(8);
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] = random.nextInt(20) == 0 ? 1 : 0;
+            encoder.encodeBit(bitModel, 0, bits[i]);
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt(256);
+            encoder.encodeTree(treeModel, 8, values[i]);
+        }
+        encoder.flush();
+        byte[] coded = out.toByteArray();
+        // About 0.29 bits per skewed bit, and no more than a byte per uniform byte.
+        assertTrue(coded.length < bits.length * 0.35 / 8 + values.length * 1.02, coded.length + " bytes");
+
+        RangeDecoder decoder = new RangeDecoder(new ByteArrayInputStream(coded));
+        bitModel = RangeEncoder.newModel(1);
+        treeModel = RangeEncoder.newModel(8);
+        for (int bit : bits) {
+            assertEquals(bit, decoder.decodeBit(bitModel, 0));
+        }
+        for (int value : values) {
+            assertEquals(value, decoder.decodeTree(treeModel, 8));
+        }
+
+        RangeDecoder truncated = new RangeDecoder(new ByteArrayInputStream(Arrays.copyOf(coded, coded.length / 2)));
+        short[] truncatedBitModel = RangeEncoder.newModel(1);
+        short[] truncatedTreeModel = RangeEncoder.newModel(8);
+        assertThrows(EOFException.class, () -> {
+            for (int i = 0; i < bits.length; i++) {
+                truncated.decodeBit(truncatedBitModel, 0);
+            }
+            for (int i = 0; i < values.length; i++) {
+                truncated.decodeTree(truncatedTreeModel, 8);
+            }
+        });
+        assertThrows(EOFException.class, () -> new RangeDecoder(new ByteArrayInputStream(new byte[4])));
+    }
+
+    // Plays the move at a mostly small rank, the way real games mostly play the moves the ranking
+    // puts first.
+    private static GameRecord rankSkewedGame(Random random, int maxPlies) {
+        EngineBoard board = EngineBoard.startingPosition();
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        int[] keys = new int[EngineBoard.MAX_MOVES];
+        List<String> played = new ArrayList<>();
+        for (int ply = 0; ply < maxPlies; ply++) {
+            int count = board.generateMoves(moves, false);
+            int move = Move.NONE;
+            for (int attempt = 0; attempt < 8 && move == Move.NONE; attempt++) {
+                int rank = 0;
+                while (rank < count - 1 && random.nextInt(3) == 0) {
+                    rank++;
+                }
+                CompactGameFormat.rankKeys(board, moves, count, keys);
+                int candidate = moves[CompactGameFormat.indexAtRank(keys, count, rank)];
+                move = board.isLegal(candidate) ? candidate : Move.NONE;
+            }
+            if (move == Move.NONE) {
+                break;
+            }
+            played.add(Move.toUci(move));
+            board.makeMove(move);
+        }
+        return new GameRecord(GameRecord.UNKNOWN, played);
+    }
+
+    private static byte[] write(List<GameRecord> games, boolean rangeCoded) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompactGameWriter writer = new CompactGameWriter(out, rangeCoded)) {
+            for (GameRecord game : games) {
+                writer.write(game);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<GameRecord> read(byte[] archive) throws IOException {
+        List<GameRecord> games = new ArrayList<>();
+        try (CompactGameReader reader = new CompactGameReader(new ByteArrayInputStream(archive))) {
+            for (GameRecord game = reader.next(); game != null; game = reader.next()) {
+                games.add(game);
+            }
+            assertNull(reader.next());
+        }
+        return games;
+    }
+
+    private static byte[] indexArchive(int... body) throws IOException {
+        byte[] bytes = new byte[body.length];
+        for (int i = 0; i < body.length; i++) {
+            bytes[i] = (byte) body[i];
+        }
+        return indexArchive(bytes);
+    }
+
+    private static byte[] indexArchive(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataOutputStream(out).writeLong(CompactGameFormat.MAGIC);
+        out.write(CompactGameFormat.MODE_INDEX);
+        out.write(body);
+        return out.toByteArray();
+    }
+
+    private static List<String> lines(List<GameRecord> games) {
+        return games.stream().map(GameRecord::toLine).toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class EngineBoardTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    // Counts leaf nodes, and checks on the way that every move is undone back to the same hash.
+    private static long perft(EngineBoard board, int depth) {
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        int count = board.generateLegalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+        long hash = board.getHash();
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(moves[i]);
+            nodes += perft(board, depth - 1);
+            board.unmakeMove(moves[i]);
+            assertEquals(hash, board.getHash());
+        }
+        return nodes;
+    }
+
+    @Test
+    void perftMatchesKnownCounts() {
+        assertEquals(197_281, perft(EngineBoard.startingPosition(), 4));
+        assertEquals(97_862, perft(EngineBoard.fromFen(KIWIPETE), 3));
+        assertEquals(674_624, perft(EngineBoard.fromFen(POSITION_3), 5));
+        assertEquals(422_333, perft(EngineBoard.fromFen(POSITION_4), 4));
+        assertEquals(2_103_487, perft(EngineBoard.fromFen(POSITION_5), 4));
+    }
+
+    @Test
+    void uciMovesParseOnlyWhenLegal() {
+        EngineBoard board = EngineBoard.startingPosition();
+        int move = board.parseUciMove("e2e4");
+        assertEquals("e2e4", Move.toUci(move));
+        assertEquals(true, Move.isDoublePush(move));
+        assertEquals(Move.NONE, board.parseUciMove("e2e5"));
+        assertEquals(Move.NONE, board.parseUciMove("e2"));
+        assertEquals(Move.NONE, board.parseUciMove("z9e4"));
+        assertEquals(Move.NONE, board.parseUciMove("e2e4x"));
+
+        EngineBoard promotion = EngineBoard.fromFen("8/4P3/8/8/8/8/k7/4K3 w - - 0 1");
+        int underpromotion = promotion.parseUciMove("e7e8n");
+        assertEquals(Move.KNIGHT, Move.promotion(underpromotion));
+        assertEquals("e7e8n", Move.toUci(underpromotion));
+        assertEquals(Move.NONE, promotion.parseUciMove("e7e8"));
+
+        // Pinned: the knight cannot leave the e-file.
+        EngineBoard pinned = EngineBoard.fromFen("4r1k1/8/8/8/8/8/4N3/4K3 w - - 0 1");
+        assertEquals(Move.NONE, pinned.parseUciMove("e2c3"));
+    }
+
+    @Test
+    void sanRoundTripsThroughEveryLegalMove() {
+        for (String fen : new String[] {KIWIPETE, POSITION_3, POSITION_4, POSITION_5}) {
+            EngineBoard board = EngineBoard.fromFen(fen);
+            int[] moves = new int[EngineBoard.MAX_MOVES];
+            int count = board.generateLegalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                String san = board.appendSan(moves[i], new StringBuilder()).toString();
+                assertEquals(moves[i], board.parseSanMove(san), fen + " " + san);
+            }
+        }
+    }
+
+    @Test
+    void sanMarksDisambiguationCastlingPromotionAndMate() {
+        EngineBoard kiwipete = EngineBoard.fromFen(KIWIPETE);
+        assertEquals("O-O", san(kiwipete, "e1g1"));
+        assertEquals("O-O-O", san(kiwipete, "e1c1"));
+        assertEquals("Bxa6", san(kiwipete, "e2a6"));
+        assertEquals("Nxd7", san(kiwipete, "e5d7"));
+        assertEquals("Nb5", san(kiwipete, "c3b5"));
+
+        EngineBoard knights = EngineBoard.fromFen("k7/8/8/8/8/2N1N3/8/4K3 w - - 0 1");
+        assertEquals("Ncd5", san(knights, "c3d5"));
+        assertEquals("Ned5", san(knights, "e3d5"));
+
+        EngineBoard rooks = EngineBoard.fromFen("7k/8/8/8/R7/8/8/R3K3 w - - 0 1");
+        assertEquals("R1a2", san(rooks, "a1a2"));
+        assertEquals("R4a2", san(rooks, "a4a2"));
+
+        EngineBoard promotion = EngineBoard.fromFen("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals("bxa8=Q+", san(promotion, "b7a8q"));
+        assertEquals("b8=N", san(promotion, "b7b8n"));
+
+        EngineBoard mate = EngineBoard.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8#", san(mate, "a1a8"));
+        EngineBoard check = EngineBoard.fromFen("6k1/5pp1/8/8/8/8/8/R5K1 w - - 0 1");
+        assertEquals("Ra8+", san(check, "a1a8"));
+    }
+
+    @Test
+    void sanAcceptsLooseSpellings() {
+        EngineBoard kiwipete = EngineBoard.fromFen(KIWIPETE);
+        assertEquals(kiwipete.parseUciMove("e1g1"), kiwipete.parseSanMove("0-0"));
+        assertEquals(kiwipete.parseUciMove("e1c1"), kiwipete.parseSanMove("O-O-O+"));
+        assertEquals(kiwipete.parseUciMove("e2a6"), kiwipete.parseSanMove("Ba6"));
+        assertEquals(kiwipete.parseUciMove("c3b5"), kiwipete.parseSanMove("Nc3b5"));
+        assertEquals(Move.NONE, kiwipete.parseSanMove("Nb6"));
+        assertEquals(Move.NONE, kiwipete.parseSanMove("Qh8"));
+
+        EngineBoard position4 = EngineBoard.fromFen(POSITION_4);
+        position4.makeMove(position4.parseUciMove("c4c5"));
+        assertEquals(position4.parseUciMove("b2a1q"), position4.parseSanMove("bxa1=Q"));
+        assertEquals(position4.parseUciMove("b2a1n"), position4.parseSanMove("bxa1N"));
+    }
+
+    private static String san(EngineBoard board, String uci) {
+        return board.appendSan(board.parseUciMove(uci), new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+// The clock runs on real time, so these allow generous slack for a busy machine.
+class GameClockTest {
+    private static final long SLACK_MILLIS = 150;
+
+    @Test
+    void incrementIsAddedAfterTheMove() throws InterruptedException {
+        GameClock clock = new GameClock(new TimeControl(10_000, 2_000, 0));
+        clock.start(PieceColor.WHITE);
+        Thread.sleep(100);
+        assertTrue(clock.completeMove(PieceColor.WHITE));
+        assertBetween(12_000 - 100 - SLACK_MILLIS, 12_000 - 100, clock.getRemainingMillis(PieceColor.WHITE));
+        // Black's clock runs now and white's is frozen.
+        assertTrue(clock.isRunning());
+        long white = clock.getRemainingMillis(PieceColor.WHITE);
+        Thread.sleep(50);
+        assertEquals(white, clock.getRemainingMillis(PieceColor.WHITE));
+        assertTrue(clock.getRemainingMillis(PieceColor.BLACK) <= 10_000 - 50);
+        assertThrows(IllegalStateException.class, () -> clock.completeMove(PieceColor.WHITE));
+    }
+
+    @Test
+    void delayIsFreeThinkingTime() throws InterruptedException {
+        GameClock clock = new GameClock(new TimeControl(10_000, 0, 1_000));
+        clock.start(PieceColor.WHITE);
+        Thread.sleep(100);
+        assertEquals(10_000, clock.getRemainingMillis(PieceColor.WHITE));
+        assertTrue(clock.completeMove(PieceColor.WHITE));
+        assertEquals(10_000, clock.getRemainingMillis(PieceColor.WHITE));
+
+        GameClock slow = new GameClock(new TimeControl(10_000, 0, 100));
+        slow.start(PieceColor.WHITE);
+        Thread.sleep(300);
+        assertBetween(10_000 - 200 - SLACK_MILLIS, 10_000 - 200, slow.getRemainingMillis(PieceColor.WHITE));
+    }
+
+    @Test
+    void flagFallsAtZero() throws InterruptedException {
+        GameClock clock = new GameClock(new TimeControl(100, 5_000, 0));
+        clock.start(PieceColor.WHITE);
+        assertFalse(clock.isFlagged(PieceColor.WHITE));
+        Thread.sleep(150);
+        assertTrue(clock.isFlagged(PieceColor.WHITE));
+        assertEquals(0, clock.getRemainingMillis(PieceColor.WHITE));
+        // Too late: no increment, and the clock stops at zero.
+        assertFalse(clock.completeMove(PieceColor.WHITE));
+        assertFalse(clock.isRunning());
+        assertEquals(0, clock.getRemainingMillis(PieceColor.WHITE));
+        assertFalse(clock.completeMove(PieceColor.WHITE));
+        assertTrue(clock.isFlagged(PieceColor.WHITE));
+        assertFalse(clock.isFlagged(PieceColor.BLACK));
+    }
+
+    @Test
+    void stoppedClockChargesNothing() throws InterruptedException {
+        GameClock clock = new GameClock(new TimeControl(60_000, 0, 0));
+        clock.start(PieceColor.BLACK);
+        Thread.sleep(50);
+        clock.stop();
+        long black = clock.getRemainingMillis(PieceColor.BLACK);
+        assertTrue(black <= 60_000 - 50);
+        Thread.sleep(50);
+        assertEquals(black, clock.getRemainingMillis(PieceColor.BLACK));
+
+        clock.setRemainingMillis(30_000, 20_000);
+        assertEquals(30_000, clock.getRemainingMillis(PieceColor.WHITE));
+        assertEquals(20_000, clock.getRemainingMillis(PieceColor.BLACK));
+        assertEquals("9.5", GameClock.format(9_500));
+        assertEquals("1:15", GameClock.format(75_000));
+    }
+
+    private static void assertBetween(long low, long high, long actual) {
+        assertTrue(actual >= low && actual <= high, actual + " not in [" + low + ", " + high + "]");
+    }
+}
@@ -0,0 +1,321 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GameJournalTest {
+    private static final TimeControl BLITZ = new TimeControl(180_000, 2_000, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void gamesSurviveCloseAndReopen() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        long finished;
+        long timed;
+        long untimed;
+        try (GameJournal journal = GameJournal.open(journalDir, 2)) {
+            assertTrue(journal.getRecoveredGames().isEmpty());
+            finished = journal.nextGameId();
+            timed = journal.nextGameId();
+            untimed = journal.nextGameId();
+            journal.startGame(finished, null);
+            record(journal, finished, -1, "f2f3", "e7e5", "g2g4", "d8h4");
+            journal.endGame(finished, GameRecord.BLACK_WINS);
+            journal.startGame(timed, BLITZ);
+            record(journal, timed, 175_000, "e2e4", "c7c5", "g1f3");
+            journal.startGame(untimed, null);
+            record(journal, untimed, -1, "d2d4", "d7d5");
+            // Taking back to ply 1 and playing on replaces the rest of the line.
+            journal.recordMove(untimed, 1, move("d2d4", "g8f6"), -1, -1);
+        }
+
+        try (GameJournal journal = GameJournal.open(journalDir, 2)) {
+            List<GameJournal.GameState> games = sorted(journal.getRecoveredGames());
+            assertEquals(2, games.size());
+            GameJournal.GameState first = games.get(0);
+            assertEquals(timed, first.getId());
+            assertEquals(BLITZ.toString(), first.getTimeControl().toString());
+            assertArrayEquals(moves("e2e4", "c7c5", "g1f3"), first.getMoves());
+            assertEquals(175_000 - 2, first.getWhiteMillis());
+            assertEquals(175_000 - 2 + 1, first.getBlackMillis());
+            assertFalse(first.isFinished());
+            GameJournal.GameState second = games.get(1);
+            assertEquals(untimed, second.getId());
+            assertNull(second.getTimeControl());
+            assertEquals("* d2d4 g8f6", second.toRecord().toLine());
+            assertEquals(-1, second.getWhiteMillis());
+            assertTrue(journal.nextGameId() > untimed);
+            assertEquals(List.of("0-1 f2f3 e7e5 g2g4 d8h4"), archived(journal, 2));
+
+            journal.endGame(timed, GameRecord.DRAW);
+        }
+
+        try (GameJournal journal = GameJournal.open(journalDir, 2)) {
+            assertEquals(List.of(untimed), ids(journal.getRecoveredGames()));
+            assertEquals(List.of("0-1 f2f3 e7e5 g2g4 d8h4", "1/2-1/2 e2e4 c7c5 g1f3"), sortedArchive(journal, 2));
+        }
+    }
+
+    // A crash loses at most the batch being written, and a torn record ends the replay.
+    @Test
+    void tornTailIsIgnored() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        Path crashed = dir.resolve("crashed");
+        long game;
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            game = journal.nextGameId();
+            journal.startGame(game, null);
+            record(journal, game, -1, "e2e4", "e7e5");
+            journal.sync();
+            record(journal, game, -1, "e2e4", "e7e5", "g1f3");
+            journal.sync();
+            crash(journalDir, crashed);
+        }
+        Path log = logs(crashed, 0).get(0);
+        byte[] bytes = Files.readAllBytes(log);
+        Files.write(log, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (GameJournal journal = GameJournal.open(crashed, 1)) {
+            List<GameJournal.GameState> games = journal.getRecoveredGames();
+            assertEquals(1, games.size());
+            assertArrayEquals(moves("e2e4", "e7e5"), games.get(0).getMoves());
+            record(journal, game, -1, "e2e4", "e7e5", "b1c3");
+        }
+        try (GameJournal journal = GameJournal.open(crashed, 1)) {
+            assertArrayEquals(moves("e2e4", "e7e5", "b1c3"), journal.getRecoveredGames().get(0).getMoves());
+        }
+    }
+
+    @Test
+    void corruptRecordEndsTheReplay() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        Path crashed = dir.resolve("crashed");
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            long game = journal.nextGameId();
+            journal.startGame(game, null);
+            record(journal, game, -1, "e2e4", "e7e5", "g1f3", "b8c6");
+            journal.sync();
+            crash(journalDir, crashed);
+        }
+        Path log = logs(crashed, 0).get(0);
+        byte[] bytes = Files.readAllBytes(log);
+        // Records are all the same size here: a START, then MOVEs of equal length. Flip a byte of the third move.
+        int moveRecord = (bytes.length - startRecordBytes()) / 4;
+        bytes[startRecordBytes() + 2 * moveRecord + 12] ^= 1;
+        Files.write(log, bytes);
+
+        try (GameJournal journal = GameJournal.open(crashed, 1)) {
+            assertArrayEquals(moves("e2e4", "e7e5"), journal.getRecoveredGames().get(0).getMoves());
+        }
+    }
+
+    // A crash after a checkpoint appended to the archive but before its snapshot was saved: the logs
+    // still hold the finished game, so recovery must cut the archive back rather than archive it twice.
+    @Test
+    void archiveLongerThanTheSnapshotIsTruncated() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        Path crashed = dir.resolve("crashed");
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            long game = journal.nextGameId();
+            journal.startGame(game, null);
+            record(journal, game, -1, "f2f3", "e7e5", "g2g4", "d8h4");
+            journal.endGame(game, GameRecord.BLACK_WINS);
+            journal.sync();
+            crash(journalDir, crashed);
+        }
+        Path archive = crashed.resolve("shard-0.games");
+        Files.writeString(archive, "0-1 f2f3 e7e5 g2g4 d8h4\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+
+        try (GameJournal journal = GameJournal.open(crashed, 1)) {
+            assertTrue(journal.getRecoveredGames().isEmpty());
+            assertEquals(List.of("0-1 f2f3 e7e5 g2g4 d8h4"), archived(journal, 1));
+        }
+        try (GameJournal journal = GameJournal.open(crashed, 1)) {
+            assertEquals(List.of("0-1 f2f3 e7e5 g2g4 d8h4"), archived(journal, 1));
+        }
+    }
+
+    @Test
+    void shardCountMustNotChange() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        try (GameJournal journal = GameJournal.open(journalDir, 2)) {
+            long game = journal.nextGameId();
+            journal.startGame(game, null);
+            record(journal, game, -1, "e2e4");
+        }
+        IOException e = assertThrows(IOException.class, () -> GameJournal.open(journalDir, 3));
+        assertTrue(e.getMessage().startsWith("Journal has 2 shards, not 3"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> GameJournal.open(journalDir, 0));
+        // The failed open let go of the lock and changed nothing.
+        try (GameJournal journal = GameJournal.open(journalDir, 2)) {
+            assertEquals(1, journal.getRecoveredGames().size());
+        }
+    }
+
+    @Test
+    void resettingATimedGameStartsItOnce() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            ChessGame game = new ChessGame(false);
+            game.attachJournal(journal);
+            game.setTimeControl(BLITZ);
+            game.resetGame();
+            journal.sync();
+            // One START each from attaching, the clock and the reset.
+            assertEquals(3, countRecords(journalDir, 0, 1));
+
+            assertTrue(game.makeMove(game.parseMove("e4")));
+            game.resetGame();
+            journal.sync();
+            // The abandoned game ends, and the new one starts once.
+            assertEquals(4, countRecords(journalDir, 0, 1));
+            assertEquals(1, countRecords(journalDir, 0, 3));
+        }
+    }
+
+    // The clocks of every ply come back, through the logs and through a snapshot, and resuming writes nothing.
+    @Test
+    void resumedGameKeepsItsClocks() throws Exception {
+        Path journalDir = dir.resolve("journal");
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            long game = journal.nextGameId();
+            journal.startGame(game, BLITZ);
+            record(journal, game, 175_000, "e2e4", "c7c5", "g1f3");
+        }
+        GameJournal.GameState logged;
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            logged = journal.getRecoveredGames().get(0);
+        }
+        try (GameJournal journal = GameJournal.open(journalDir, 1)) {
+            GameJournal.GameState state = journal.getRecoveredGames().get(0);
+            for (int ply = 0; ply < 3; ply++) {
+                assertEquals(175_000 - ply, state.getWhiteMillis(ply));
+                assertEquals(175_000 - ply + 1, state.getBlackMillis(ply));
+                assertEquals(logged.getWhiteMillis(ply), state.getWhiteMillis(ply));
+            }
+
+            ChessGame chess = new ChessGame(false);
+            chess.resumeJournalGame(journal, state);
+            journal.sync();
+            assertEquals(0, countRecords(journalDir, 0, 2));
+            assertEquals(3, chess.getPlyCount());
+            assertEquals(175_000 - 2, chess.getClock().getRemainingMillis(PieceColor.WHITE));
+            chess.jumpToPly(1);
+            assertEquals(175_000, chess.getClock().getRemainingMillis(PieceColor.WHITE));
+            chess.jumpToPly(2);
+            assertEquals(175_000, chess.getClock().getRemainingMillis(PieceColor.BLACK));
+            chess.jumpToPly(0);
+            assertEquals(BLITZ.getInitialMillis(), chess.getClock().getRemainingMillis(PieceColor.BLACK));
+        }
+    }
+
+    private static void record(GameJournal journal, long gameId, long clock, String... uci) {
+        int[] moves = moves(uci);
+        for (int ply = 0; ply < moves.length; ply++) {
+            long white = clock < 0 ? -1 : clock - ply;
+            long black = clock < 0 ? -1 : clock - ply + 1;
+            journal.recordMove(gameId, ply, moves[ply], white, black);
+        }
+    }
+
+    private static int move(String... line) {
+        int[] moves = moves(line);
+        return moves[moves.length - 1];
+    }
+
+    private static int[] moves(String... uci) {
+        EngineBoard board = EngineBoard.startingPosition();
+        int[] moves = new int[uci.length];
+        for (int i = 0; i < uci.length; i++) {
+            moves[i] = board.parseUciMove(uci[i]);
+            assertTrue(moves[i] != Move.NONE, uci[i]);
+            board.makeMove(moves[i]);
+        }
+        return moves;
+    }
+
+    // What a crash leaves behind: the files as they are on disk right now, minus the lock.
+    private static void crash(Path from, Path to) throws IOException {
+        Files.createDirectories(to);
+        try (Stream<Path> files = Files.list(from)) {
+            for (Path file : files.toList()) {
+                if (!file.getFileName().toString().equals("journal.lock")) {
+                    Files.copy(file, to.resolve(file.getFileName()));
+                }
+            }
+        }
+    }
+
+    private static List<Path> logs(Path journalDir, int shard) throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(file -> file.getFileName().toString().matches("shard-" + shard + "-\\d+\\.log")).sorted().toList();
+        }
+    }
+
+    // Frame header, type, id and the three time control longs.
+    private static int startRecordBytes() {
+        return 8 + 1 + 8 + 3 * 8;
+    }
+
+    private static int countRecords(Path journalDir, int shard, int type) throws IOException {
+        int count = 0;
+        for (Path log : logs(journalDir, shard)) {
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(log));
+            while (in.remaining() >= 8) {
+                int length = in.getInt();
+                in.getInt();
+                count += in.get(in.position()) == type ? 1 : 0;
+                in.position(in.position() + length);
+            }
+        }
+        return count;
+    }
+
+    private static List<String> archived(GameJournal journal, int shards) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            Path archive = journal.getArchive(shard);
+            if (Files.exists(archive)) {
+                lines.addAll(Files.readAllLines(archive));
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> sortedArchive(GameJournal journal, int shards) throws IOException {
+        List<String> lines = archived(journal, shards);
+        lines.sort(null);
+        return lines;
+    }
+
+    private static List<GameJournal.GameState> sorted(List<GameJournal.GameState> games) {
+        List<GameJournal.GameState> copy = new ArrayList<>(games);
+        copy.sort(Comparator.comparingLong(GameJournal.GameState::getId));
+        return copy;
+    }
+
+    private static List<Long> ids(List<GameJournal.GameState> games) {
+        return sorted(games).stream().map(GameJournal.GameState::getId).toList();
+    }
+}
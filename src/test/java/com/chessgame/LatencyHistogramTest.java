@@ -0,0 +1,69 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+    // Every value lands in a bucket whose upper bound is at most an eighth above it, and buckets are
+    // contiguous: each one starts right after the bound of the one before.
+    @Test
+    void bucketsCoverEveryValueWithinAnEighth() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            long bound = LatencyHistogram.upperBoundOf(LatencyHistogram.bucketFor(value));
+            assertTrue(bound >= value, value + " -> " + bound);
+            assertTrue(bound - value <= value / 8, value + " -> " + bound);
+        }
+        for (long value = 0; value < 8; value++) {
+            assertEquals(value, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketFor(value)));
+        }
+        int last = LatencyHistogram.bucketFor(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(last));
+        for (int bucket = 1; bucket <= last; bucket++) {
+            long start = LatencyHistogram.upperBoundOf(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucketFor(start), "bucket " + bucket);
+            assertEquals(bucket - 1, LatencyHistogram.bucketFor(start - 1), "bucket " + bucket);
+        }
+    }
+
+    @Test
+    void percentilesReadTheUpperBoundOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentileNanos(50));
+        for (long micros = 1; micros <= 100; micros++) {
+            histogram.record(micros * 1000);
+        }
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(0));
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketFor(50_000)), histogram.getPercentileNanos(50));
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketFor(100_000)), histogram.getPercentileNanos(100));
+        long p99 = histogram.getPercentileNanos(99);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 * 9 / 8, String.valueOf(p99));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    @Test
+    void metricsReportMicroseconds() {
+        OperationMetrics metrics = new OperationMetrics();
+        for (int i = 0; i < 99; i++) {
+            metrics.record(2_000);
+        }
+        metrics.record(1_000_000);
+        metrics.recordError();
+        assertEquals(100, metrics.getCount());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(LatencyHistogram.upperBoundOf(LatencyHistogram.bucketFor(2_000)) / 1000.0, metrics.getP50Micros());
+        assertEquals(metrics.getP50Micros(), metrics.getP99Micros());
+        assertEquals(1000.0, metrics.getMaxMicros());
+        metrics.reset();
+        assertEquals(0, metrics.getCount());
+        assertEquals(0, metrics.getErrorCount());
+        assertEquals(0.0, metrics.getMaxMicros());
+    }
+}
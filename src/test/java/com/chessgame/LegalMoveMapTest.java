@@ -0,0 +1,76 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LegalMoveMapTest {
+    // White can promote on b8 or by taking on a8, take en passant on d6 and castle either way.
+    private static final String SPECIAL_MOVES = "r3k2r/1P6/8/3pP3/8/8/8/R3K2R w KQkq d6 0 1";
+
+    @Test
+    void promotionDefaultsToTheQueenUnlessAPieceIsGiven() {
+        LegalMoveMap map = map(SPECIAL_MOVES);
+        int push = map.find(square("b7"), square("b8"));
+        assertEquals(Move.QUEEN, Move.promotion(push));
+        assertFalse(Move.isCapture(push));
+        assertTrue(map.isPromotion(square("b7"), square("b8")));
+        assertEquals(List.of(square("a8"), square("b8")), map.getTargets(square("b7")));
+
+        int knight = map.find(square("b7"), square("b8"), Move.KNIGHT);
+        assertEquals(Move.KNIGHT, Move.promotion(knight));
+        assertEquals("b7b8n", Move.toUci(knight));
+        int rookTakes = map.find(square("b7"), square("a8"), Move.ROOK);
+        assertEquals(Move.ROOK, Move.promotion(rookTakes));
+        assertTrue(Move.isCapture(rookTakes));
+        // A pawn on the last rank has to become something.
+        assertEquals(Move.NONE, map.find(square("b7"), square("b8"), 0));
+        assertEquals(Move.NONE, map.find(square("b7"), square("c8")));
+        assertEquals(Move.NONE, map.find(square("e1"), square("e3"), 0));
+    }
+
+    // A move known only by its squares and promotion comes back with the generator's flags.
+    @Test
+    void bareMovesResolveToTheirFlags() {
+        LegalMoveMap map = map(SPECIAL_MOVES);
+        int enPassant = map.find(bare("e5", "d6", 0));
+        assertTrue(Move.isEnPassant(enPassant));
+        assertTrue(map.isEnPassant(square("e5"), square("d6")));
+        assertFalse(Move.isEnPassant(map.find(bare("e5", "e6", 0))));
+        assertTrue(Move.isCastling(map.find(bare("e1", "g1", 0))));
+        assertTrue(Move.isCastling(map.find(bare("e1", "c1", 0))));
+        assertFalse(Move.isCastling(map.find(bare("e1", "f1", 0))));
+        assertTrue(Move.isCapture(map.find(bare("a1", "a8", 0))));
+        int bishop = map.find(bare("b7", "a8", Move.BISHOP));
+        assertTrue(Move.isCapture(bishop));
+        assertEquals(Move.BISHOP, Move.promotion(bishop));
+        assertEquals(Move.NONE, map.find(bare("b7", "b8", 0)));
+
+        // Flags on the request are ignored, right or wrong.
+        int castle = map.find(bare("e1", "g1", 0));
+        assertEquals(castle, map.find(bare("e1", "g1", 0) | Move.CAPTURE));
+        assertEquals(castle, map.find(castle));
+        assertEquals(Move.NONE, map.find(bare("e1", "e3", 0) | Move.CASTLING));
+
+        LegalMoveMap start = map("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        assertEquals(20, start.size());
+        assertTrue(Move.isDoublePush(start.find(bare("e2", "e4", 0))));
+        assertFalse(Move.isDoublePush(start.find(bare("e2", "e3", 0))));
+        assertEquals(Move.NONE, start.find(bare("e7", "e5", 0)));
+    }
+
+    private static LegalMoveMap map(String fen) {
+        return new LegalMoveMap(EngineBoard.fromFen(fen));
+    }
+
+    private static Position square(String name) {
+        return Position.fromChessNotation(name, 0);
+    }
+
+    private static int bare(String from, String to, int promotion) {
+        return Move.of(square(from).getSquare(), square(to).getSquare(), promotion, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MateSolverTest {
+    private static final String BACK_RANK = "6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1";
+    private static final String TWO_ROOKS = "7k/8/8/8/8/8/R7/1R4K1 w - - 0 1";
+    private static final String LEGAL_MATE = "r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1";
+    private static final String ROOK_LADDER = "8/8/8/7k/8/8/8/RR4K1 w - - 0 1";
+    private static final String QUEEN_AND_KING = "8/8/8/8/4k3/8/8/K1Q5 w - - 0 1";
+
+    @Test
+    void findsTheShortestMate() {
+        assertMateIn(1, BACK_RANK);
+        assertMateIn(2, TWO_ROOKS);
+        assertMateIn(2, LEGAL_MATE);
+        assertMateIn(4, ROOK_LADDER);
+        assertMateIn(7, QUEEN_AND_KING);
+        assertEquals("d5f6 g7f6 c4f7", uci(solve(LEGAL_MATE, 3).getLine()));
+    }
+
+    // Cross-checks the solver against exhaustive search where that is still cheap.
+    @Test
+    void agreesWithExhaustiveSearch() {
+        for (String fen : new String[] {BACK_RANK, TWO_ROOKS, LEGAL_MATE, ROOK_LADDER}) {
+            int mateIn = solve(fen, 4).getMateIn();
+            assertTrue(mates(EngineBoard.fromFen(fen), mateIn), fen);
+            assertFalse(mateIn > 1 && mates(EngineBoard.fromFen(fen), mateIn - 1), fen);
+        }
+    }
+
+    @Test
+    void provesThereIsNoMate() {
+        MateSolver.Solution start = solve("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 2);
+        assertTrue(start.isProvenNoMate());
+        assertEquals(0, start.getLine().length);
+        assertTrue(solve("8/8/4k3/8/8/4K3/8/8 w - - 0 1", 5).isProvenNoMate());
+        // The queen needs more than six moves from the corner.
+        assertTrue(solve("k7/8/8/8/8/8/8/K5Q1 w - - 0 1", 6).isProvenNoMate());
+        // One move short of the ladder.
+        assertTrue(solve(ROOK_LADDER, 3).isProvenNoMate());
+        // Stalemated and already mated sides have nothing to mate with.
+        assertTrue(solve("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1", 2).isProvenNoMate());
+        assertTrue(solve("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1", 2).isProvenNoMate());
+    }
+
+    @Test
+    void nodeLimitLeavesTheAnswerOpen() {
+        EngineBoard board = EngineBoard.fromFen(QUEEN_AND_KING);
+        MateSolver.Solution solution = new MateSolver(1).solve(board, 7, 1_000);
+        assertFalse(solution.isComplete());
+        assertFalse(solution.isMate());
+        assertFalse(solution.isProvenNoMate());
+        assertEquals(EngineBoard.fromFen(QUEEN_AND_KING).getHash(), board.getHash());
+    }
+
+    @Test
+    void gameSeesMateOnlyWhenNothingHelps() {
+        // 1. e4 f5 2. Qh5+: the king has no square, but g6 blocks.
+        ChessGame blockable = play("e4", "f5", "Qh5+");
+        assertTrue(blockable.isInCheck(PieceColor.BLACK));
+        assertFalse(blockable.isCheckmate(PieceColor.BLACK));
+        assertFalse(blockable.isStalemate(PieceColor.BLACK));
+
+        ChessGame scholars = play("e4", "e5", "Bc4", "Nc6", "Qh5", "Nf6", "Qxf7#");
+        assertTrue(scholars.isCheckmate(PieceColor.BLACK));
+        assertFalse(scholars.isCheckmate(PieceColor.WHITE));
+        assertFalse(scholars.isStalemate(PieceColor.BLACK));
+
+        ChessGame fools = play("f3", "e5", "g4");
+        MateSolver.Solution solution = fools.findForcedMate(2);
+        assertEquals(1, solution.getMateIn());
+        assertEquals("d8h4", uci(solution.getLine()));
+        assertTrue(fools.makeMove(solution.getLine()[0]));
+        assertTrue(fools.isCheckmate(PieceColor.WHITE));
+
+        // Sam Loyd's ten-move stalemate.
+        ChessGame stalemate = play("e3", "a5", "Qh5", "Ra6", "Qxa5", "h5", "h4", "Rah6", "Qxc7", "f6", "Qxd7+",
+                "Kf7", "Qxb7", "Qd3", "Qxb8", "Qh7", "Qxc8", "Kg6", "Qe6");
+        assertTrue(stalemate.isStalemate(PieceColor.BLACK));
+        assertFalse(stalemate.isCheckmate(PieceColor.BLACK));
+        assertFalse(stalemate.isStalemate(PieceColor.WHITE));
+    }
+
+    private static MateSolver.Solution solve(String fen, int maxMoves) {
+        return new MateSolver(1).solve(EngineBoard.fromFen(fen), maxMoves, MateSolver.DEFAULT_NODE_LIMIT);
+    }
+
+    // Mate in exactly mateIn, with a line that replays legally to checkmate.
+    private static void assertMateIn(int mateIn, String fen) {
+        MateSolver.Solution solution = solve(fen, MateSolver.MAX_MATE_MOVES);
+        assertTrue(solution.isComplete(), fen);
+        assertEquals(mateIn, solution.getMateIn(), fen);
+        int[] line = solution.getLine();
+        assertEquals(2 * mateIn - 1, line.length, fen);
+        EngineBoard board = EngineBoard.fromFen(fen);
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        for (int move : line) {
+            assertTrue(board.isLegal(move), fen + " " + Move.toUci(move));
+            board.makeMove(move);
+        }
+        assertTrue(board.isInCheck(), fen);
+        assertEquals(0, board.generateLegalMoves(moves), fen);
+    }
+
+    // Exhaustive: can the side to move mate in at most the given number of its own moves?
+    private static boolean mates(EngineBoard board, int moves) {
+        int[] attacks = new int[EngineBoard.MAX_MOVES];
+        int[] defences = new int[EngineBoard.MAX_MOVES];
+        int attackCount = board.generateLegalMoves(attacks);
+        for (int i = 0; i < attackCount; i++) {
+            board.makeMove(attacks[i]);
+            int defenceCount = board.generateLegalMoves(defences);
+            boolean mated = defenceCount == 0 && board.isInCheck();
+            if (!mated && defenceCount > 0 && moves > 1) {
+                mated = true;
+                for (int j = 0; j < defenceCount && mated; j++) {
+                    board.makeMove(defences[j]);
+                    mated = mates(board, moves - 1);
+                    board.unmakeMove(defences[j]);
+                }
+            }
+            board.unmakeMove(attacks[i]);
+            if (mated) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ChessGame play(String... sanMoves) {
+        ChessGame game = new ChessGame(false);
+        for (String san : sanMoves) {
+            assertTrue(game.makeMove(game.parseMove(san)), san);
+        }
+        return game;
+    }
+
+    private static String uci(int[] line) {
+        StringBuilder text = new StringBuilder();
+        for (int move : line) {
+            Move.appendUci(move, text.isEmpty() ? text : text.append(' '));
+        }
+        return text.toString();
+    }
+}
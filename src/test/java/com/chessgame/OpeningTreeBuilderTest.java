@@ -0,0 +1,52 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OpeningTreeBuilderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void oneGameFitsPastATinyEntryLimit() {
+        GameRecord game = new GameRecord(GameRecord.WHITE_WINS, TestGames.random(1, 1, 30).get(0).getMoves());
+        OpeningTreeBuilder builder = new OpeningTreeBuilder(40, 4);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> builder.addGame(game));
+        assertEquals(1, builder.getGamesAdded());
+    }
+
+    @Test
+    void spillingOftenGivesTheSameTreeAsOneRun() throws Exception {
+        List<GameRecord> games = TestGames.random(2, 200, 60);
+        Path archive = TestGames.writeArchive(directory.resolve("games.txt"), games);
+        Path small = directory.resolve("small.tree");
+        Path large = directory.resolve("large.tree");
+        // Hundreds of runs, so the merge also needs more than one pass.
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> new OpeningTreeBuilder(40, 4).build(archive, small));
+        new OpeningTreeBuilder(40, 1 << 16).build(archive, large);
+
+        try (OpeningTree expected = OpeningTree.open(large); OpeningTree actual = OpeningTree.open(small)) {
+            assertEquals(expected.size(), actual.size());
+            for (GameRecord game : games) {
+                EngineBoard board = EngineBoard.startingPosition();
+                for (String uci : game.getMoves().subList(0, Math.min(40, game.getMoves().size()))) {
+                    assertEquals(expected.lookup(board.getHash()).toString(), actual.lookup(board.getHash()).toString());
+                    board.makeMove(board.parseUciMove(uci));
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsATableTooLargeToIndex() {
+        assertThrows(IllegalArgumentException.class, () -> new OpeningTreeBuilder(40, 1 << 27));
+        assertThrows(IllegalArgumentException.class, () -> new OpeningTreeBuilder(0, 1000));
+    }
+}
@@ -0,0 +1,89 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PositionIndexBuilderTest {
+    private static final Duration LIMIT = Duration.ofSeconds(60);
+
+    @TempDir
+    Path dir;
+
+    // Small runs so the build spills many of them and goes through a merge pass.
+    @Test
+    void indexFindsEveryPositionOfEveryGame() throws IOException {
+        List<GameRecord> games = TestGames.random(1, 30, 60);
+        Path archive = TestGames.writeArchive(dir.resolve("games.txt"), games);
+        Path indexFile = dir.resolve("games.idx");
+        assertTimeoutPreemptively(LIMIT, () -> new PositionIndexBuilder(2, 16).build(archive, indexFile));
+
+        try (PositionIndex index = PositionIndex.open(indexFile)) {
+            long positions = 0;
+            for (int number = 1; number <= games.size(); number++) {
+                EngineBoard board = EngineBoard.startingPosition();
+                List<String> moves = games.get(number - 1).getMoves();
+                for (int ply = 0; ply <= moves.size(); ply++) {
+                    assertTrue(contains(index.lookup(board.getHash()), number, ply), number + " " + ply);
+                    if (ply < moves.size()) {
+                        board.makeMove(board.parseUciMove(moves.get(ply)));
+                    }
+                }
+                positions += moves.size() + 1;
+            }
+            assertEquals(positions, index.size());
+            assertEquals(games.size(), index.count(EngineBoard.startingPosition().getHash()));
+            assertEquals(0, index.count(EngineBoard.fromFen("8/8/4k3/8/8/4K3/8/8 w - - 0 1").getHash()));
+        }
+    }
+
+    // A build that cannot read the whole archive fails, publishes nothing and keeps the previous index.
+    @Test
+    void unreadableArchiveLeavesNoPartialIndex() throws IOException {
+        Path compact = dir.resolve("games.bin");
+        try (CompactGameWriter writer = CompactGameWriter.create(compact, false)) {
+            for (GameRecord game : TestGames.random(2, 40, 60)) {
+                writer.write(game);
+            }
+        }
+        byte[] bytes = Files.readAllBytes(compact);
+        Files.write(compact, Arrays.copyOf(bytes, bytes.length * 2 / 3));
+
+        Path fresh = dir.resolve("fresh.idx");
+        assertTimeoutPreemptively(LIMIT, () -> assertThrows(IOException.class,
+                () -> new PositionIndexBuilder(2, 64).build(compact, fresh)));
+        assertFalse(Files.exists(fresh));
+
+        Path existing = dir.resolve("existing.idx");
+        new PositionIndexBuilder(1, 64).build(TestGames.writeArchive(dir.resolve("games.txt"), TestGames.random(3, 5, 20)), existing);
+        byte[] before = Files.readAllBytes(existing);
+        assertTimeoutPreemptively(LIMIT, () -> assertThrows(IOException.class,
+                () -> new PositionIndexBuilder(2, 64).build(compact, existing)));
+        assertArrayEquals(before, Files.readAllBytes(existing));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().startsWith("position-index")));
+        }
+    }
+
+    private static boolean contains(List<PositionIndex.Occurrence> occurrences, int game, int ply) {
+        for (PositionIndex.Occurrence occurrence : occurrences) {
+            if (occurrence.getGame() == game && occurrence.getPly() == ply) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,94 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PuzzleMinerTest {
+    private static final Duration LIMIT = Duration.ofSeconds(60);
+
+    @TempDir
+    Path dir;
+
+    // Every position is a puzzle: a winning best line and a level second one.
+    private static final class FakeEngine implements AnalysisEngine {
+        @Override
+        public AnalysisResult analyze(String fen, SearchLimits limits) {
+            return new AnalysisResult(fen, "e2e4", 300, false, 1);
+        }
+
+        @Override
+        public List<AnalysisResult> analyze(String fen, SearchLimits limits, int lineCount) {
+            return List.of(analyze(fen, limits), new AnalysisResult(fen, "d2d4", 0, false, 1));
+        }
+
+        @Override
+        public boolean isAlive() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void minesPuzzlesFromRandomGames() throws IOException {
+        Path archive = TestGames.writeArchive(dir.resolve("games.txt"), TestGames.random(1, 40, 80));
+        Path output = dir.resolve("puzzles.csv");
+        try (PuzzleMiner miner = new PuzzleMiner(new BatchAnalyzer(FakeEngine::new, 2, 4), SearchLimits.depth(1), 2, 4)) {
+            long puzzles = assertTimeoutPreemptively(LIMIT, () -> miner.mine(archive, output));
+            assertTrue(puzzles > 0);
+            assertEquals(40, miner.getGamesScanned());
+            assertEquals(miner.getCandidatesFound(), puzzles);
+            assertEquals(puzzles + 1, Files.readAllLines(output).size());
+        }
+    }
+
+    @Test
+    void unreadableArchiveFailsTheRun() throws IOException {
+        Path compact = dir.resolve("games.bin");
+        try (CompactGameWriter writer = CompactGameWriter.create(compact, false)) {
+            for (GameRecord game : TestGames.random(2, 40, 80)) {
+                writer.write(game);
+            }
+        }
+        byte[] bytes = Files.readAllBytes(compact);
+        Files.write(compact, Arrays.copyOf(bytes, bytes.length * 2 / 3));
+        try (PuzzleMiner miner = new PuzzleMiner(new BatchAnalyzer(FakeEngine::new, 2, 4), SearchLimits.depth(1), 2, 4)) {
+            assertTimeoutPreemptively(LIMIT, () -> assertThrows(EOFException.class, () -> miner.mine(compact, dir.resolve("out.csv"))));
+            assertTrue(miner.getGamesScanned() > 0 && miner.getGamesScanned() < 40);
+        }
+    }
+
+    // A run that stops part way, here because the output device is full, must not strand its reader and
+    // workers on full queues where the next run would wait behind them.
+    @Test
+    void failedRunDoesNotBlockTheNext() throws IOException {
+        Path full = Paths.get("/dev/full");
+        assumeTrue(Files.isWritable(full));
+        // Random games are full of blunders, so the writer's buffer fills after a few of these.
+        Path large = TestGames.writeArchive(dir.resolve("large.txt"), TestGames.random(3, 400, 120));
+        Path small = TestGames.writeArchive(dir.resolve("small.txt"), TestGames.random(4, 5, 40));
+        try (PuzzleMiner miner = new PuzzleMiner(new BatchAnalyzer(FakeEngine::new, 1, 1), SearchLimits.depth(1), 1, 1)) {
+            assertTimeoutPreemptively(LIMIT, () -> {
+                assertThrows(IOException.class, () -> miner.mine(large, full));
+                assertTrue(miner.getGamesScanned() < 100);
+                miner.mine(small, dir.resolve("puzzles.csv"));
+            });
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.chessgame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Reproducible random legal games for tests that need archives.
+final class TestGames {
+    private static final String[] RESULTS = {GameRecord.WHITE_WINS, GameRecord.DRAW, GameRecord.BLACK_WINS, GameRecord.UNKNOWN};
+
+    private TestGames() {
+    }
+
+    // Random moves until the game ends or maxPlies have been played.
+    static GameRecord random(Random random, int maxPlies) {
+        EngineBoard board = EngineBoard.startingPosition();
+        int[] moves = new int[EngineBoard.MAX_MOVES];
+        List<String> played = new ArrayList<>();
+        for (int ply = 0; ply < maxPlies; ply++) {
+            int count = board.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            int move = moves[random.nextInt(count)];
+            played.add(Move.toUci(move));
+            board.makeMove(move);
+        }
+        return new GameRecord(RESULTS[random.nextInt(RESULTS.length)], played);
+    }
+
+    static List<GameRecord> random(long seed, int games, int maxPlies) {
+        Random random = new Random(seed);
+        List<GameRecord> records = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            records.add(random(random, maxPlies));
+        }
+        return records;
+    }
+
+    static Path writeArchive(Path file, List<GameRecord> games) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (GameRecord game : games) {
+            lines.add(game.toLine());
+        }
+        return Files.write(file, lines);
+    }
+}
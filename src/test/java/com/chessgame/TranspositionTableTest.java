@@ -0,0 +1,30 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TranspositionTableTest {
+    @Test
+    void sizesInMegabytesDoNotOverflow() {
+        assertEquals(1 << 16, TranspositionTable.entriesFor(1, 16));
+        assertEquals(1 << 16, TranspositionTable.entriesFor(0, 16));
+        assertEquals(1 << 20, TranspositionTable.entriesFor(24, 16));
+        assertEquals(1 << 27, TranspositionTable.entriesFor(2048, 16));
+        assertEquals(1 << 28, TranspositionTable.entriesFor(4096, 16));
+        assertEquals(TranspositionTable.MAX_ENTRIES, TranspositionTable.entriesFor(Integer.MAX_VALUE, 16));
+    }
+
+    @Test
+    void storedEntriesUnpack() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.of(12, 28, 0, 0);
+        table.store(0x1234_5678_9ABC_DEF0L, move, -317, 9, TranspositionTable.LOWER_BOUND);
+        long entry = table.probe(0x1234_5678_9ABC_DEF0L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(-317, TranspositionTable.score(entry));
+        assertEquals(9, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        assertEquals(0L, table.probe(0x1234_5678_9ABC_DEF1L));
+    }
+}
@@ -0,0 +1,198 @@
+package com.chessgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UciEngineTest {
+    private static final Duration LIMIT = Duration.ofSeconds(30);
+    private static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // A scripted engine: it logs every command, one "launch" per process, and answers each go with the
+    // lines of the reply file. A reply line "exit" kills the process there, the way a crash would.
+    private static final String SCRIPT = String.join("\n",
+            "#!/bin/sh",
+            "echo launch >> \"$0.log\"",
+            "while IFS= read -r line; do",
+            "  echo \"$line\" >> \"$0.log\"",
+            "  case \"$line\" in",
+            "    uci) echo 'id name Fake'; echo uciok ;;",
+            "    isready) echo readyok ;;",
+            "    go*) while IFS= read -r reply; do",
+            "        [ \"$reply\" = exit ] && exit 1",
+            "        echo \"$reply\"",
+            "      done < \"$0.go\" ;;",
+            "    quit) exit 0 ;;",
+            "  esac",
+            "done",
+            "");
+
+    @TempDir
+    Path dir;
+
+    private Path executable;
+
+    @BeforeEach
+    void writeEngine() throws IOException {
+        assumeTrue(Files.isExecutable(Paths.get("/bin/sh")));
+        executable = Files.writeString(dir.resolve("engine"), SCRIPT);
+        assumeTrue(executable.toFile().setExecutable(true));
+    }
+
+    // Each line keeps the last score and variation reported for it, whatever order the lines arrive in.
+    @Test
+    void infoLinesAreCollectedByMultiPv() throws IOException {
+        UciEngine engine = new UciEngine(executable.toString());
+        try {
+            reply("info depth 1 seldepth 1 multipv 1 score cp 15 nodes 20 pv d2d4",
+                    "info depth 1 seldepth 1 multipv 2 score cp 5 nodes 20 pv e2e4",
+                    "info string NNUE evaluation enabled",
+                    "info depth 2 currmove g1f3 currmovenumber 1",
+                    "info depth 2 seldepth 3 multipv 2 score cp 10 lowerbound nodes 80 pv d2d4 d7d5",
+                    "info depth 2 seldepth 3 multipv 1 score cp 40 nodes 80 pv e2e4 e7e5 g1f3",
+                    "info depth 2 seldepth 3 multipv 3 score mate -3 nodes 80 pv f2f3 e7e5",
+                    "info depth 2 multipv 4 score cp 0 pv a2a3",
+                    "bestmove e2e4 ponder e7e5");
+            List<AnalysisResult> results = assertTimeoutPreemptively(LIMIT, () -> engine.analyze(START, SearchLimits.depth(2), 3));
+            assertEquals(3, results.size());
+            assertResult(results.get(0), 40, false, 2, "e2e4", "e7e5", "g1f3");
+            assertResult(results.get(1), 10, false, 2, "d2d4", "d7d5");
+            assertResult(results.get(2), -3, true, 2, "f2f3", "e7e5");
+            List<String> commands = launches().get(0);
+            assertTrue(commands.contains("position fen " + START));
+            assertEquals("go depth 2", last(commands, "go"));
+
+            // Fewer lines than asked for, and a best move that is not where the reported line starts.
+            reply("info depth 5 multipv 1 score cp 12 pv e2e4 e7e5", "bestmove d2d4");
+            results = assertTimeoutPreemptively(LIMIT, () -> engine.analyze(START, SearchLimits.depth(5), 3));
+            assertEquals(1, results.size());
+            assertResult(results.get(0), 12, false, 5, "d2d4");
+
+            reply("info depth 3 score cp -25 pv g1f3", "bestmove g1f3");
+            AnalysisResult single = assertTimeoutPreemptively(LIMIT, () -> engine.analyze(START, SearchLimits.depth(3)));
+            assertResult(single, -25, false, 3, "g1f3");
+        } finally {
+            engine.close();
+        }
+    }
+
+    // Extra lines are for one analysis only: afterwards, after a crash and after a restart the engine
+    // is back to one line.
+    @Test
+    void multiPvIsOnlyForTheAnalysis() throws IOException {
+        UciEngine engine = new UciEngine(executable.toString());
+        try {
+            reply("info depth 1 multipv 1 score cp 20 pv e2e4", "info depth 1 multipv 2 score cp 10 pv d2d4", "bestmove e2e4");
+            assertTimeoutPreemptively(LIMIT, () -> engine.analyze(START, SearchLimits.depth(1), 2));
+            // Once the engine is ready it has logged everything sent before.
+            engine.syncReady();
+            assertEquals("setoption name MultiPV value 1", last(launches().get(0), "setoption"));
+
+            reply("info depth 1 multipv 1 score cp 20 pv e2e4", "exit");
+            assertTimeoutPreemptively(LIMIT, () -> assertThrows(IOException.class,
+                    () -> engine.analyze(START, SearchLimits.depth(1), 3)));
+            assertFalse(engine.isAlive());
+            engine.restart();
+            assertTrue(launches().get(1).stream().noneMatch(command -> command.contains("MultiPV")));
+        } finally {
+            engine.close();
+        }
+    }
+
+    // A crashed engine comes back configured as before, at the last position it was sent.
+    @Test
+    void restartReplaysOptionsAndPosition() throws IOException {
+        UciEngine engine = new UciEngine(executable.toString());
+        try {
+            engine.setOption("Hash", 64);
+            engine.setOption("Threads", 2);
+            engine.setOption("Hash", 128);
+            engine.send("position startpos moves e2e4");
+            reply("info depth 1 score cp 20 pv e7e5", "exit");
+            String fen = "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1";
+            assertTimeoutPreemptively(LIMIT, () -> assertThrows(IOException.class, () -> engine.analyze(fen, SearchLimits.depth(1))));
+            assertFalse(engine.isAlive());
+
+            assertTimeoutPreemptively(LIMIT, engine::restart);
+            assertTrue(engine.isAlive());
+            assertEquals(EngineState.READY, engine.getState());
+            assertEquals(1, engine.getRestartCount());
+            assertEquals(List.of("uci", "setoption name Hash value 128", "setoption name Threads value 2", "isready",
+                    "position fen " + fen), awaitLaunch(engine, 1));
+
+            reply("info depth 1 score cp 20 pv e7e5", "bestmove e7e5");
+            assertEquals("e7e5", assertTimeoutPreemptively(LIMIT, () -> engine.analyze(fen, SearchLimits.depth(1))).getBestMove());
+        } finally {
+            engine.close();
+        }
+    }
+
+    @Test
+    void engineThatWillNotStartAgainFails() throws IOException {
+        UciEngine engine = new UciEngine(executable.toString());
+        try {
+            Files.delete(executable);
+            IOException e = assertThrows(IOException.class, () -> assertTimeoutPreemptively(LIMIT, engine::restart));
+            assertTrue(e.getMessage().startsWith("Engine could not be restarted"), e.getMessage());
+            assertEquals(EngineState.FAILED, engine.getState());
+            assertFalse(engine.isAlive());
+        } finally {
+            engine.close();
+        }
+    }
+
+    // The position is sent after the last readyok, so wait for the script to log it too.
+    private List<String> awaitLaunch(UciEngine engine, int launch) throws IOException {
+        engine.syncReady();
+        List<String> commands = launches().get(launch);
+        return commands.subList(0, commands.size() - 1);
+    }
+
+    private static void assertResult(AnalysisResult result, int score, boolean mateScore, int depth, String... pv) {
+        assertEquals(score, result.getScore());
+        assertEquals(mateScore, result.isMateScore());
+        assertEquals(depth, result.getDepth());
+        assertEquals(pv[0], result.getBestMove());
+        assertEquals(List.of(pv), result.getPrincipalVariation());
+    }
+
+    private void reply(String... lines) throws IOException {
+        Files.write(Paths.get(executable + ".go"), List.of(lines));
+    }
+
+    // The commands each process received, in launch order.
+    private List<List<String>> launches() throws IOException {
+        List<List<String>> launches = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(executable + ".log"))) {
+            if (line.equals("launch")) {
+                launches.add(new ArrayList<>());
+            } else {
+                launches.get(launches.size() - 1).add(line);
+            }
+        }
+        return launches;
+    }
+
+    private static String last(List<String> commands, String prefix) {
+        String found = null;
+        for (String command : commands) {
+            if (command.startsWith(prefix)) {
+                found = command;
+            }
+        }
+        return found;
+    }
+}